@@ -18,7 +18,9 @@ export class MediaUploadComponent {
 	errorMessage: string = '';
 	successMessage: string = '';
 	myMedia: Media[] = [];
+	nextCursor: string | null = null;
 	isLoadingMedia: boolean = true;
+	isLoadingMore: boolean = false;
 
 	constructor(
 		private mediaService: MediaService,
@@ -29,8 +31,9 @@ export class MediaUploadComponent {
 
 	loadMyMedia(): void {
 		this.mediaService.getMyMedia().subscribe({
-			next: (media) => {
-				this.myMedia = media;
+			next: (page) => {
+				this.myMedia = page.items;
+				this.nextCursor = page.nextCursor;
 				this.isLoadingMedia = false;
 			},
 			error: (error) => {
@@ -40,6 +43,22 @@ export class MediaUploadComponent {
 		});
 	}
 
+	loadMore(): void {
+		if (!this.nextCursor) return;
+		this.isLoadingMore = true;
+		this.mediaService.getMyMedia(this.nextCursor).subscribe({
+			next: (page) => {
+				this.myMedia = [...this.myMedia, ...page.items];
+				this.nextCursor = page.nextCursor;
+				this.isLoadingMore = false;
+			},
+			error: (error) => {
+				console.error('Error loading media', error);
+				this.isLoadingMore = false;
+			}
+		});
+	}
+
 	onFileSelected(event: any): void {
 		const file = event.target.files[0];
 
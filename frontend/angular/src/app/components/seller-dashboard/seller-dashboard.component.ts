@@ -14,7 +14,9 @@ import { Product } from '../../models/product.model';
 })
 export class SellerDashboardComponent implements OnInit {
 	products: Product[] = [];
+	nextCursor: string | null = null;
 	isLoading: boolean = true;
+	isLoadingMore: boolean = false;
 	errorMessage: string = '';
 
 	constructor(
@@ -30,8 +32,9 @@ export class SellerDashboardComponent implements OnInit {
 	loadMyProducts(): void {
 		this.isLoading = true;
 		this.productService.getMyProducts().subscribe({
-			next: (products) => {
-				this.products = products;
+			next: (page) => {
+				this.products = page.items;
+				this.nextCursor = page.nextCursor;
 				this.isLoading = false;
 			},
 			error: (error) => {
@@ -42,6 +45,22 @@ export class SellerDashboardComponent implements OnInit {
 		});
 	}
 
+	loadMore(): void {
+		if (!this.nextCursor) return;
+		this.isLoadingMore = true;
+		this.productService.getMyProducts(this.nextCursor).subscribe({
+			next: (page) => {
+				this.products = [...this.products, ...page.items];
+				this.nextCursor = page.nextCursor;
+				this.isLoadingMore = false;
+			},
+			error: (error) => {
+				console.error('Error loading products', error);
+				this.isLoadingMore = false;
+			}
+		});
+	}
+
 	createProduct(): void {
 		this.router.navigate(['/product-form']);
 	}
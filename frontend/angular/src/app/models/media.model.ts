@@ -4,6 +4,10 @@ export interface Media {
 	contentType: string;
 	fileSize: number;
 	imagePath: string;
+	fileUrl: string;
+	width?: number;
+	height?: number;
+	placeholder?: string;
 	productId: string;
 	userId: string;
 	createdAt: Date;
@@ -15,6 +19,10 @@ export interface MediaUploadResponse {
 	contentType: string;
 	fileSize: number;
 	imagePath: string;
+	fileUrl: string;
+	width?: number;
+	height?: number;
+	placeholder?: string;
 	productId?: string;
 	createdAt: Date;
 }
\ No newline at end of file
@@ -1,8 +1,9 @@
 import { Injectable } from '@angular/core';
-import { HttpClient, HttpHeaders } from '@angular/common/http';
+import { HttpClient, HttpHeaders, HttpParams } from '@angular/common/http';
 import { Observable } from 'rxjs';
 import { environment } from '../../environments/environement';
 import { Media, MediaUploadResponse } from '../models/media.model';
+import { CursorPage } from '../models/cursor-page.model';
 import { AuthService } from './auth.service';
 
 @Injectable({
@@ -39,16 +40,24 @@ export class MediaService {
 		return this.http.get<Media>(`${this.apiUrl}/${id}`);
 	}
 
-	getMediaByProductId(productId: string): Observable<Media[]> {
-		return this.http.get<Media[]>(`${this.apiUrl}/product/${productId}`);
+	getMediaByProductId(productId: string, cursor?: string | null): Observable<CursorPage<Media>> {
+		return this.http.get<CursorPage<Media>>(`${this.apiUrl}/product/${productId}`, {
+			params: this.pageParams(cursor)
+		});
 	}
 
-	getMyMedia(): Observable<Media[]> {
-		return this.http.get<Media[]>(`${this.apiUrl}/my-media`, {
-			headers: this.getHeaders()
+	getMyMedia(cursor?: string | null): Observable<CursorPage<Media>> {
+		return this.http.get<CursorPage<Media>>(`${this.apiUrl}/my-media`, {
+			headers: this.getHeaders(),
+			params: this.pageParams(cursor)
 		});
 	}
 
+	// Page suivante : nextCursor de la page précédente
+	private pageParams(cursor?: string | null): HttpParams {
+		return cursor ? new HttpParams().set('cursor', cursor) : new HttpParams();
+	}
+
 	deleteMedia(id: string): Observable<any> {
 		return this.http.delete(`${this.apiUrl}/${id}`, {
 			headers: this.getHeaders()
@@ -1,8 +1,9 @@
 import { Injectable } from '@angular/core';
-import { HttpClient, HttpHeaders } from '@angular/common/http';
+import { HttpClient, HttpHeaders, HttpParams } from '@angular/common/http';
 import { Observable } from 'rxjs';
 import { environment } from '../../environments/environement';
 import { Product, CreateProductRequest, UpdateProductRequest } from '../models/product.model';
+import { CursorPage } from '../models/cursor-page.model';
 import { AuthService } from './auth.service';
 
 @Injectable({
@@ -23,17 +24,25 @@ export class ProductService {
 		});
 	}
 
-	getAllProducts(): Observable<Product[]> {
-		return this.http.get<Product[]>(this.apiUrl);
+	getAllProducts(cursor?: string | null): Observable<CursorPage<Product>> {
+		return this.http.get<CursorPage<Product>>(this.apiUrl, {
+			params: this.pageParams(cursor)
+		});
+	}
+
+	// Page suivante : nextCursor de la page précédente
+	private pageParams(cursor?: string | null): HttpParams {
+		return cursor ? new HttpParams().set('cursor', cursor) : new HttpParams();
 	}
 
 	getProductById(id: string): Observable<Product> {
 		return this.http.get<Product>(`${this.apiUrl}/${id}`);
 	}
 
-	getMyProducts(): Observable<Product[]> {
-		return this.http.get<Product[]>(`${this.apiUrl}/my-products`, {
-			headers: this.getHeaders()
+	getMyProducts(cursor?: string | null): Observable<CursorPage<Product>> {
+		return this.http.get<CursorPage<Product>>(`${this.apiUrl}/my-products`, {
+			headers: this.getHeaders(),
+			params: this.pageParams(cursor)
 		});
 	}
 
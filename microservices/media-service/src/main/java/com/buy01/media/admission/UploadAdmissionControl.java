@@ -0,0 +1,147 @@
+package com.buy01.media.admission;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Limite le nombre d'uploads simultanés ; la limite baisse quand la latence d'écriture disque dépasse la cible
+@Component
+public class UploadAdmissionControl {
+
+    private static final double EWMA_WEIGHT = 0.2;
+    private static final long MAX_RETRY_AFTER_SECONDS = 30;
+
+    private final int maxConcurrent;
+    private final int maxQueue;
+    private final long queueTimeoutNanos;
+    private final double targetWriteMillis;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition released = lock.newCondition();
+    private int inFlight;
+    private int queued;
+    // Bits du double : mise à jour par CAS, plusieurs écritures peuvent se terminer en même temps
+    private final AtomicLong writeLatencyMillis = new AtomicLong(Double.doubleToLongBits(0));
+
+    private final Counter admitted;
+    private final Counter shed;
+
+    public UploadAdmissionControl(MeterRegistry meterRegistry,
+                                  @Value("${media.admission.max-concurrent:8}") int maxConcurrent,
+                                  @Value("${media.admission.max-queue:32}") int maxQueue,
+                                  @Value("${media.admission.queue-timeout:PT2S}") Duration queueTimeout,
+                                  @Value("${media.admission.target-write-latency:PT0.2S}") Duration targetWriteLatency) {
+        this.maxConcurrent = maxConcurrent;
+        this.maxQueue = maxQueue;
+        this.queueTimeoutNanos = queueTimeout.toNanos();
+        this.targetWriteMillis = targetWriteLatency.toMillis();
+
+        this.admitted = Counter.builder("media.upload.admission.admitted").register(meterRegistry);
+        this.shed = Counter.builder("media.upload.admission.shed").register(meterRegistry);
+        Gauge.builder("media.upload.admission.in-flight", this, UploadAdmissionControl::inFlight).register(meterRegistry);
+        Gauge.builder("media.upload.admission.queued", this, UploadAdmissionControl::queued).register(meterRegistry);
+        Gauge.builder("media.upload.admission.limit", this, UploadAdmissionControl::currentLimit).register(meterRegistry);
+        Gauge.builder("media.storage.write.latency", this, UploadAdmissionControl::writeLatencyMillis)
+                .baseUnit("milliseconds").register(meterRegistry);
+    }
+
+    // true si l'upload peut passer (après une attente bornée en file), false s'il doit être rejeté
+    public boolean tryAdmit() throws InterruptedException {
+        lock.lock();
+        try {
+            // Pas de dépassement de file : un nouvel arrivant ne passe directement que si personne n'attend
+            if (queued == 0 && inFlight < currentLimit()) {
+                inFlight++;
+                admitted.increment();
+                return true;
+            }
+            if (queued >= maxQueue) {
+                shed.increment();
+                return false;
+            }
+
+            queued++;
+            try {
+                long remaining = queueTimeoutNanos;
+                while (inFlight >= currentLimit()) {
+                    if (remaining <= 0) {
+                        shed.increment();
+                        return false;
+                    }
+                    remaining = released.awaitNanos(remaining);
+                }
+                inFlight++;
+                admitted.increment();
+                return true;
+            } finally {
+                queued--;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void release() {
+        lock.lock();
+        try {
+            inFlight--;
+            released.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Moyenne mobile exponentielle des écritures disque mesurées par le stockage
+    public void recordWriteLatency(long nanos) {
+        double millis = nanos / 1_000_000.0;
+        writeLatencyMillis.updateAndGet(bits -> {
+            double current = Double.longBitsToDouble(bits);
+            return Double.doubleToLongBits(current == 0 ? millis : current + EWMA_WEIGHT * (millis - current));
+        });
+    }
+
+    public int currentLimit() {
+        double latency = writeLatencyMillis();
+        if (latency <= targetWriteMillis) {
+            return maxConcurrent;
+        }
+        return Math.max(1, (int) (maxConcurrent * targetWriteMillis / latency));
+    }
+
+    // Estimation du temps nécessaire pour écouler les uploads en cours et en attente
+    public long retryAfterSeconds() {
+        int limit = currentLimit();
+        double backlog = (double) (inFlight() + queued()) / limit;
+        long seconds = (long) Math.ceil(backlog * writeLatencyMillis() / 1000.0);
+        return Math.max(1, Math.min(MAX_RETRY_AFTER_SECONDS, seconds));
+    }
+
+    public int inFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int queued() {
+        lock.lock();
+        try {
+            return queued;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public double writeLatencyMillis() {
+        return Double.longBitsToDouble(writeLatencyMillis.get());
+    }
+}
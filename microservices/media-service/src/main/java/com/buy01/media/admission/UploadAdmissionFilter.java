@@ -0,0 +1,75 @@
+package com.buy01.media.admission;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.List;
+
+// Filtre placé avant le DispatcherServlet : un upload rejeté n'a pas encore lu ni parsé son corps
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class UploadAdmissionFilter extends OncePerRequestFilter {
+
+    private static final AntPathMatcher PATH_MATCHER = new AntPathMatcher();
+    private static final List<String> UPLOAD_PATHS = List.of(
+            "/api/media",
+            "/api/media/stream",
+            "/api/media/batch",
+            "/api/media/async",
+            "/api/media/uploads/*/chunks/*",
+            "/api/media/uploads/*/complete"
+    );
+
+    private final UploadAdmissionControl admissionControl;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String method = request.getMethod();
+        if (!"POST".equals(method) && !"PUT".equals(method)) {
+            return true;
+        }
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        return UPLOAD_PATHS.stream().noneMatch(pattern -> PATH_MATCHER.match(pattern, path));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        boolean admitted;
+        try {
+            admitted = admissionControl.tryAdmit();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            admitted = false;
+        }
+
+        if (!admitted) {
+            long retryAfter = admissionControl.retryAfterSeconds();
+            log.warn("Upload shed: {} in flight, {} queued, limit {}", admissionControl.inFlight(),
+                    admissionControl.queued(), admissionControl.currentLimit());
+            response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfter));
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.getWriter().write("{\"error\":\"Upload capacity exceeded, retry in " + retryAfter + "s\"}");
+            return;
+        }
+
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            admissionControl.release();
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.buy01.media.cache;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+// Count-Min Sketch à compteurs saturés à 15, divisés par deux périodiquement (vieillissement façon TinyLFU).
+// Compteurs atomiques : incrémenté à chaque lecture du cache, sans verrou
+class FrequencySketch {
+
+    private static final int DEPTH = 4;
+    private static final int MAX_COUNT = 15;
+    private static final int[] SEEDS = {0x9E3779B9, 0x85EBCA6B, 0xC2B2AE35, 0x27D4EB2F};
+
+    private final AtomicIntegerArray table;  // DEPTH lignes de width compteurs, à la suite
+    private final int width;
+    private final int mask;
+    private final int sampleSize;
+    private final AtomicInteger additions = new AtomicInteger();
+
+    FrequencySketch(int expectedEntries) {
+        this.width = Integer.highestOneBit(Math.max(64, expectedEntries) * 2 - 1) << 1;
+        this.table = new AtomicIntegerArray(DEPTH * width);
+        this.mask = width - 1;
+        this.sampleSize = 10 * width;
+    }
+
+    void increment(Object key) {
+        int hash = spread(key.hashCode());
+        for (int i = 0; i < DEPTH; i++) {
+            int index = indexOf(hash, i);
+            int count = table.get(index);
+            // Compteur saturé : pas d'écriture, donc pas de contention sur les clés les plus lues
+            while (count < MAX_COUNT && !table.weakCompareAndSetVolatile(index, count, count + 1)) {
+                count = table.get(index);
+            }
+        }
+        // Un seul appelant franchit le seuil : un seul vieillissement par période
+        if (additions.incrementAndGet() == sampleSize) {
+            reset();
+        }
+    }
+
+    int frequency(Object key) {
+        int hash = spread(key.hashCode());
+        int frequency = MAX_COUNT;
+        for (int i = 0; i < DEPTH; i++) {
+            frequency = Math.min(frequency, table.get(indexOf(hash, i)));
+        }
+        return frequency;
+    }
+
+    // Les anciennes popularités s'effacent pour laisser place aux nouvelles ; les incréments concurrents
+    // peuvent survivre ou non à la division, l'estimation reste approchée de toute façon
+    private void reset() {
+        for (int i = 0; i < table.length(); i++) {
+            table.updateAndGet(i, count -> count >>> 1);
+        }
+        additions.addAndGet(-sampleSize / 2);
+    }
+
+    private int indexOf(int hash, int row) {
+        int h = (hash ^ SEEDS[row]) * 0x01000193;
+        h ^= h >>> 15;
+        return row * width + (h & mask);
+    }
+
+    private static int spread(int hash) {
+        hash ^= hash >>> 16;
+        hash *= 0x45D9F3B;
+        return hash ^ (hash >>> 16);
+    }
+}
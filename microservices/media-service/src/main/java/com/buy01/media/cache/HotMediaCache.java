@@ -0,0 +1,223 @@
+package com.buy01.media.cache;
+
+import com.buy01.media.storage.MediaStorage;
+import com.buy01.media.storage.StoredFile;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Cache des images les plus demandées, stockées hors tas (direct buffers) pour ne pas peser sur le GC
+@Component
+@Slf4j
+public class HotMediaCache {
+
+    public record CachedMedia(String storageKey, String contentType, ByteBuffer content, long lastModified) {
+    }
+
+    private final MediaStorage mediaStorage;
+    private final boolean enabled;
+    private final long maxBytes;
+    private final long maxEntryBytes;
+
+    // Entrée et date de sa dernière lecture : la moins récemment lue est la première candidate à l'éviction
+    private static final class Entry {
+        final CachedMedia media;
+        volatile long lastAccess;
+
+        Entry(CachedMedia media) {
+            this.media = media;
+            this.lastAccess = System.nanoTime();
+        }
+
+        long bytes() {
+            return media.content().capacity();
+        }
+    }
+
+    private record Victim(String key, long bytes, long lastAccess) {
+    }
+
+    // Lues sans verrou ; le moniteur ne protège que l'admission, l'éviction et l'invalidation
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final FrequencySketch sketch;
+    private volatile long currentBytes;
+
+    // Incrémenté à chaque invalidation : un chargement commencé avant ne remet pas en cache un fichier supprimé
+    private final AtomicLong generation = new AtomicLong();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong rejections = new AtomicLong();
+
+    public HotMediaCache(MediaStorage mediaStorage,
+                         MeterRegistry meterRegistry,
+                         @Value("${media.cache.enabled:true}") boolean enabled,
+                         @Value("${media.cache.max-bytes:67108864}") long maxBytes,
+                         @Value("${media.cache.max-entry-bytes:524288}") long maxEntryBytes) {
+        this.mediaStorage = mediaStorage;
+        this.enabled = enabled;
+        this.maxBytes = maxBytes;
+        this.maxEntryBytes = Math.min(maxEntryBytes, maxBytes);
+        this.sketch = new FrequencySketch((int) Math.min(Integer.MAX_VALUE / 4, maxBytes / 16_384));
+
+        FunctionCounter.builder("media.cache.hits", hits, AtomicLong::get).register(meterRegistry);
+        FunctionCounter.builder("media.cache.misses", misses, AtomicLong::get).register(meterRegistry);
+        FunctionCounter.builder("media.cache.evictions", evictions, AtomicLong::get).register(meterRegistry);
+        FunctionCounter.builder("media.cache.rejections", rejections, AtomicLong::get).register(meterRegistry);
+        Gauge.builder("media.cache.size.bytes", this, HotMediaCache::sizeInBytes).register(meterRegistry);
+        Gauge.builder("media.cache.entries", this, HotMediaCache::entryCount).register(meterRegistry);
+    }
+
+    public CachedMedia get(String key) {
+        if (!enabled) {
+            return null;
+        }
+        sketch.increment(key);
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        entry.lastAccess = System.nanoTime();
+        hits.incrementAndGet();
+        return entry.media;
+    }
+
+    // Charge le fichier en mémoire s'il est assez fréquent pour mériter sa place ; null sinon
+    public CachedMedia load(String key, String storageKey, String contentType) throws IOException {
+        if (!enabled) {
+            return null;
+        }
+        long loadGeneration = generation.get();
+        Optional<StoredFile> stored = mediaStorage.stat(storageKey);
+        if (stored.isEmpty() || stored.get().size() == 0 || stored.get().size() > maxEntryBytes) {
+            return null;
+        }
+        long size = stored.get().size();
+        if (!admits(key, size)) {
+            rejections.incrementAndGet();
+            return null;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocateDirect((int) size);
+        try (ReadableByteChannel channel = openChannel(storageKey)) {
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // lecture jusqu'à remplir le buffer
+            }
+        }
+        buffer.flip();
+
+        CachedMedia cached = new CachedMedia(storageKey, contentType, buffer.asReadOnlyBuffer(),
+                stored.get().lastModified());
+        put(key, cached, loadGeneration);
+        return cached;
+    }
+
+    // Supprime toutes les déclinaisons en cache d'un fichier (clés "<clé de stockage>|<fichier servi>")
+    public synchronized void invalidate(String storageKey) {
+        generation.incrementAndGet();
+        String prefix = storageKey + "|";
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, Entry> entry = iterator.next();
+            if (entry.getKey().startsWith(prefix)) {
+                currentBytes -= entry.getValue().bytes();
+                iterator.remove();
+            }
+        }
+    }
+
+    public long sizeInBytes() {
+        return currentBytes;
+    }
+
+    public int entryCount() {
+        return entries.size();
+    }
+
+    // Admission TinyLFU : le candidat doit être plus fréquent que chacune des victimes qu'il évincerait
+    private synchronized boolean admits(String key, long size) {
+        long needed = currentBytes + size - maxBytes;
+        if (needed <= 0) {
+            return true;
+        }
+        int candidateFrequency = sketch.frequency(key);
+        for (Victim victim : leastRecentlyRead()) {
+            if (sketch.frequency(victim.key()) >= candidateFrequency) {
+                return false;
+            }
+            needed -= victim.bytes();
+            if (needed <= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private synchronized void put(String key, CachedMedia cached, long loadGeneration) {
+        if (generation.get() != loadGeneration) {
+            return;  // invalidé pendant la lecture : servi à cette requête, mais pas gardé
+        }
+        Entry previous = entries.remove(key);
+        if (previous != null) {
+            currentBytes -= previous.bytes();
+        }
+
+        Entry added = new Entry(cached);
+        List<String> victims = new ArrayList<>();
+        Iterator<Victim> iterator = leastRecentlyRead().iterator();
+        while (currentBytes + added.bytes() > maxBytes && iterator.hasNext()) {
+            Victim eldest = iterator.next();
+            entries.remove(eldest.key());
+            currentBytes -= eldest.bytes();
+            victims.add(eldest.key());
+        }
+        evictions.addAndGet(victims.size());
+
+        entries.put(key, added);
+        currentBytes += added.bytes();
+        if (!victims.isEmpty()) {
+            log.debug("Hot cache admitted {} and evicted {}", key, victims);
+        }
+    }
+
+    // Instantané trié par dernière lecture (figée : les lectures continuent pendant le tri) ;
+    // le cache ne tient que quelques milliers d'entrées
+    private List<Victim> leastRecentlyRead() {
+        List<Victim> snapshot = new ArrayList<>(entries.size());
+        entries.forEach((key, entry) -> snapshot.add(new Victim(key, entry.bytes(), entry.lastAccess)));
+        snapshot.sort(Comparator.comparingLong(Victim::lastAccess));
+        return snapshot;
+    }
+
+    // Lecture directe du fichier vers la mémoire hors tas quand le stockage est local
+    private ReadableByteChannel openChannel(String storageKey) throws IOException {
+        Optional<Path> localPath = mediaStorage.localPath(storageKey);
+        if (localPath.isPresent()) {
+            return FileChannel.open(localPath.get(), StandardOpenOption.READ);
+        }
+        InputStream in = mediaStorage.open(storageKey);
+        return Channels.newChannel(in);
+    }
+}
@@ -0,0 +1,54 @@
+package com.buy01.media.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
+
+@Configuration
+@EnableAsync
+public class AsyncConfig {
+
+    // Pool dédié au redimensionnement : borné pour ne pas concurrencer les requêtes HTTP
+    @Bean(name = "renditionExecutor")
+    public Executor renditionExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(2);
+        executor.setMaxPoolSize(2);
+        executor.setQueueCapacity(500);
+        executor.setThreadNamePrefix("rendition-");
+        executor.initialize();
+        return executor;
+    }
+
+    // Écritures parallèles des uploads groupés ; si la file est pleine, le thread appelant écrit lui-même
+    @Bean(name = "mediaIoExecutor")
+    public Executor mediaIoExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(4);
+        executor.setMaxPoolSize(8);
+        executor.setQueueCapacity(100);
+        executor.setThreadNamePrefix("media-io-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.initialize();
+        return executor;
+    }
+
+    // Fin des uploads acceptés en 202 ; file pleine : TaskRejectedException, l'upload est refusé en 503
+    // (le faire sur le thread de requête bloquerait Tomcat pendant une rafale)
+    @Bean(name = "mediaUploadExecutor")
+    public Executor mediaUploadExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(4);
+        executor.setMaxPoolSize(4);
+        executor.setQueueCapacity(200);
+        executor.setThreadNamePrefix("media-upload-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+        return executor;
+    }
+}
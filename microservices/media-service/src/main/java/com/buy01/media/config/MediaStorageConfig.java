@@ -0,0 +1,44 @@
+package com.buy01.media.config;
+
+import com.buy01.media.admission.UploadAdmissionControl;
+import com.buy01.media.storage.FileSystemMediaStorage;
+import com.buy01.media.storage.InMemoryMediaStorage;
+import com.buy01.media.storage.MediaStorage;
+import com.buy01.media.storage.TieredMediaStorage;
+import com.buy01.media.storage.WriteTimingMediaStorage;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+@Configuration
+public class MediaStorageConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "media.storage.type", havingValue = "filesystem", matchIfMissing = true)
+    public MediaStorage fileSystemMediaStorage(
+            @Value("${media.upload.dir}") String uploadDir,
+            @Value("${media.storage.layout:sharded}") String layout,
+            @Value("${media.tiering.enabled:false}") boolean tieringEnabled,
+            @Value("${media.tiering.archive-dir:${media.upload.dir}-archive}") String archiveDir,
+            @Value("${media.tiering.compress:false}") boolean compressArchive,
+            UploadAdmissionControl uploadAdmissionControl) throws IOException {
+        boolean sharded = "sharded".equals(layout);
+        MediaStorage storage = new FileSystemMediaStorage(Paths.get(uploadDir), sharded);
+        if (tieringEnabled) {
+            storage = new TieredMediaStorage(storage,
+                    new FileSystemMediaStorage(Paths.get(archiveDir), sharded), compressArchive);
+        }
+        // Latence d'écriture mesurée : elle règle le nombre d'uploads admis en parallèle
+        return new WriteTimingMediaStorage(storage, uploadAdmissionControl::recordWriteLatency);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "media.storage.type", havingValue = "memory")
+    public MediaStorage inMemoryMediaStorage() {
+        return new InMemoryMediaStorage();
+    }
+}
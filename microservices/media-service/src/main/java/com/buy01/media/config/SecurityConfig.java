@@ -31,8 +31,10 @@ public class SecurityConfig {
                 // ✅ ACCÈS PUBLIC AUX IMAGES
                 .requestMatchers(
                     "/api/media/*/file",
+                    "/api/media/files/*",
                     "/api/media/product/**",
-                    "/api/media/*"
+                    "/api/media/*",
+                    "/actuator/health"
                 ).permitAll()
 
                 // 🔒 le reste protégé
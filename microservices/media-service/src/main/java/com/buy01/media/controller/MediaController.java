@@ -1,9 +1,19 @@
 package com.buy01.media.controller;
 
+import com.buy01.media.cache.HotMediaCache;
+import com.buy01.media.dto.CursorPage;
+import com.buy01.media.dto.MediaBatchUploadResponse;
 import com.buy01.media.dto.MediaResponse;
+import com.buy01.media.dto.MediaStatusResponse;
 import com.buy01.media.dto.MediaUploadResponse;
+import com.buy01.media.service.AsyncUploadService;
+import com.buy01.media.service.IdempotencyService;
+import com.buy01.media.service.MediaAccessTracker;
 import com.buy01.media.service.MediaService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -11,14 +21,16 @@ import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
-import org.springframework.beans.factory.annotation.Value;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.io.IOException;
-
-import org.springframework.http.HttpHeaders;
-
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import java.util.Arrays;
+import java.util.HexFormat;
 import java.util.List;
 import java.util.Map;
 
@@ -29,20 +41,96 @@ import java.util.Map;
 public class MediaController {
 
 	private final MediaService mediaService;
-
-	@Value("${media.upload.dir}")
-	private String uploadDir;
+	private final AsyncUploadService asyncUploadService;
+	private final MediaFileStreamer mediaFileStreamer;
+	private final HotMediaCache hotMediaCache;
+	private final MediaAccessTracker mediaAccessTracker;
+	private final IdempotencyService idempotencyService;
 
 	@PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
 	@PreAuthorize("hasRole('SELLER')")
 	public ResponseEntity<MediaUploadResponse> uploadMedia(
 			Authentication authentication,
+			@RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
+			@RequestParam("file") MultipartFile file,
+			@RequestParam(value = "productId", required = false) String productId) throws IOException {
+
+		String userId = authentication.getName();
+		// Rejeu après timeout : même clé -> réponse d'origine, sans nouveau fichier ni nouvel événement
+		return idempotencyService.execute("POST /api/media", userId, idempotencyKey,
+				Arrays.asList(file.getOriginalFilename(), file.getSize(), productId, contentDigest(idempotencyKey, file)),
+				MediaUploadResponse.class,
+				() -> ResponseEntity.status(HttpStatus.CREATED).body(mediaService.uploadMedia(userId, file, productId)));
+	}
+
+	// Réponse dès la validation : persistance et post-traitements terminés en arrière-plan
+	@PostMapping(value = "/async", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+	@PreAuthorize("hasRole('SELLER')")
+	public ResponseEntity<MediaStatusResponse> uploadMediaAsync(
+			Authentication authentication,
+			@RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
 			@RequestParam("file") MultipartFile file,
+			@RequestParam(value = "productId", required = false) String productId) throws IOException {
+
+		String userId = authentication.getName();
+		return idempotencyService.execute("POST /api/media/async", userId, idempotencyKey,
+				Arrays.asList(file.getOriginalFilename(), file.getSize(), productId, contentDigest(idempotencyKey, file)),
+				MediaStatusResponse.class,
+				() -> {
+					MediaStatusResponse response = asyncUploadService.acceptUpload(userId, file, productId);
+					return ResponseEntity.status(HttpStatus.ACCEPTED)
+							.location(URI.create("/api/media/" + response.getId() + "/status"))
+							.body(response);
+				});
+	}
+
+	@GetMapping("/{id}/status")
+	@PreAuthorize("hasRole('SELLER')")
+	public ResponseEntity<MediaStatusResponse> getMediaStatus(
+			Authentication authentication,
+			@PathVariable String id) {
+
+		String userId = authentication.getName();
+		return ResponseEntity.ok(asyncUploadService.getStatus(userId, id));
+	}
+
+	@PostMapping(value = "/stream", consumes = {
+			MediaType.IMAGE_JPEG_VALUE, MediaType.IMAGE_PNG_VALUE, MediaType.IMAGE_GIF_VALUE,
+			"image/webp", MediaType.APPLICATION_OCTET_STREAM_VALUE})
+	@PreAuthorize("hasRole('SELLER')")
+	public ResponseEntity<MediaUploadResponse> uploadMediaStream(
+			Authentication authentication,
+			HttpServletRequest request,
+			@RequestHeader(value = "X-File-Name", required = false) String fileName,
+			@RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
+			@RequestParam(value = "productId", required = false) String productId) throws IOException {
+
+		String userId = authentication.getName();
+		long contentLength = request.getContentLengthLong();
+		InputStream body = request.getInputStream();
+		// Contenu volontairement hors empreinte : le corps n'est lu qu'une fois, en l'écrivant dans le stockage.
+		// Une clé rejouée avec un autre fichier de même nom et même taille reçoit donc la réponse d'origine
+		return idempotencyService.execute("POST /api/media/stream", userId, idempotencyKey,
+				Arrays.asList(fileName, contentLength, productId), MediaUploadResponse.class,
+				() -> ResponseEntity.status(HttpStatus.CREATED).body(
+						mediaService.uploadMediaStream(userId, body, contentLength, fileName, productId)));
+	}
+
+	@PostMapping(value = "/batch", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+	@PreAuthorize("hasRole('SELLER')")
+	public ResponseEntity<MediaBatchUploadResponse> uploadMediaBatch(
+			Authentication authentication,
+			@RequestParam("files") List<MultipartFile> files,
 			@RequestParam(value = "productId", required = false) String productId) {
 
 		String userId = authentication.getName();
-		MediaUploadResponse response = mediaService.uploadMedia(userId, file, productId);
-		return ResponseEntity.status(HttpStatus.CREATED).body(response);
+		MediaBatchUploadResponse response = mediaService.uploadMediaBatch(userId, files, productId);
+
+		// 201 si tout est passé, 207 en cas d'échec partiel, 400 si aucun fichier n'a été accepté
+		HttpStatus status = response.getFailed() == 0 ? HttpStatus.CREATED
+				: response.getSucceeded() > 0 ? HttpStatus.MULTI_STATUS
+				: HttpStatus.BAD_REQUEST;
+		return ResponseEntity.status(status).body(response);
 	}
 
 	@GetMapping("/{id}")
@@ -52,17 +140,33 @@ public class MediaController {
 	}
 
 	@GetMapping("/product/{productId}")
-	public ResponseEntity<List<MediaResponse>> getMediaByProductId(@PathVariable String productId) {
-		List<MediaResponse> mediaList = mediaService.getMediaByProductId(productId);
-		return ResponseEntity.ok(mediaList);
+	public ResponseEntity<CursorPage<MediaResponse>> getMediaByProductId(
+			@PathVariable String productId,
+			@RequestParam(required = false) String cursor,
+			@RequestParam(required = false) Integer limit) {
+		return ResponseEntity.ok(mediaService.getMediaByProductId(productId, cursor, limit));
+	}
+
+	// Grille de produits : ?productIds=a,b,c -> { productId: [media...] }
+	@GetMapping("/by-products")
+	public ResponseEntity<Map<String, List<MediaResponse>>> getMediaByProductIds(
+			@RequestParam("productIds") List<String> productIds) {
+		return ResponseEntity.ok(mediaService.getMediaByProductIds(productIds));
+	}
+
+	@GetMapping("/by-ids")
+	public ResponseEntity<List<MediaResponse>> getMediaByIds(@RequestParam("ids") List<String> ids) {
+		return ResponseEntity.ok(mediaService.getMediaByIds(ids));
 	}
 
 	@GetMapping("/my-media")
 	@PreAuthorize("hasRole('SELLER')")
-	public ResponseEntity<List<MediaResponse>> getMyMedia(Authentication authentication) {
+	public ResponseEntity<CursorPage<MediaResponse>> getMyMedia(
+			Authentication authentication,
+			@RequestParam(required = false) String cursor,
+			@RequestParam(required = false) Integer limit) {
 		String userId = authentication.getName();
-		List<MediaResponse> mediaList = mediaService.getMediaByUserId(userId);
-		return ResponseEntity.ok(mediaList);
+		return ResponseEntity.ok(mediaService.getMediaByUserId(userId, cursor, limit));
 	}
 
 	@DeleteMapping("/{id}")
@@ -76,28 +180,73 @@ public class MediaController {
 		return ResponseEntity.ok(Map.of("message", "Media deleted successfully"));
 	}
 
+	// Ancienne URL par identifiant : redirection permanente vers l'URL du fichier
 	@GetMapping("/{id}/file")
-public ResponseEntity<byte[]> getMediaFile(@PathVariable String id) {
-    try {
-        MediaResponse media = mediaService.getMediaById(id);
-        Path filePath = Paths.get(uploadDir).resolve(media.getImagePath().replace("/uploads/", ""));
-
-        if (!Files.exists(filePath)) {
-            return ResponseEntity.notFound().build();
-        }
-
-        byte[] fileContent = Files.readAllBytes(filePath);
-
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.parseMediaType(media.getContentType()));
-
-        return ResponseEntity.ok()
-                .headers(headers)
-                .body(fileContent);
-    } catch (IOException e) {
-        return ResponseEntity.notFound().build();
-    } catch (Exception e) {
-        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
-    }
+	public void getMediaFile(
+			@PathVariable String id,
+			@RequestParam(value = "size", required = false) Integer size,
+			HttpServletRequest request,
+			HttpServletResponse response) throws IOException {
+
+		MediaResponse media = mediaService.getMediaById(id);
+		String fileUrl = media.getFileUrl();
+		if (fileUrl.startsWith("/api/media/files/")) {
+			String location = size != null ? fileUrl + "?size=" + size : fileUrl;
+			response.setStatus(HttpServletResponse.SC_MOVED_PERMANENTLY);
+			response.setHeader(HttpHeaders.LOCATION, location);
+			return;
+		}
+
+		// Clé héritée sans extension reconnue : servie ici, le type vient du document
+		String storageKey = mediaService.resolveStorageKey(media, size);
+		boolean immutable = size == null || media.getRenditionWidths() != null;
+		mediaFileStreamer.serve(request, response, storageKey, media.getContentType(), immutable);
+	}
+
+	// URL auto-descriptive : ni lecture Mongo ni état, uniquement le stockage
+	@GetMapping("/files/{key}")
+	public void getFile(
+			@PathVariable String key,
+			@RequestParam(value = "size", required = false) Integer size,
+			HttpServletRequest request,
+			HttpServletResponse response) throws IOException {
+
+		// Images chaudes servies depuis la mémoire, sans lecture disque
+		String cacheKey = mediaService.hotCacheKey(key, size);
+		HotMediaCache.CachedMedia cached = hotMediaCache.get(cacheKey);
+		if (cached != null) {
+			mediaAccessTracker.recordAccess(key);
+			mediaFileStreamer.serve(request, response, cached);
+			return;
+		}
+
+		// Accès noté une fois la clé résolue : une clé inventée ne s'accumule pas en attente d'écriture
+		MediaService.ResolvedFile file = mediaService.resolveFile(key, size);
+		mediaAccessTracker.recordAccess(key);
+
+		// Tant que la miniature n'est pas générée, l'original servi à sa place est provisoire
+		if (file.immutable()) {
+			cached = hotMediaCache.load(cacheKey, file.storageKey(), file.contentType());
+			if (cached != null) {
+				mediaFileStreamer.serve(request, response, cached);
+				return;
+			}
+		}
+		mediaFileStreamer.serve(request, response, file.storageKey(), file.contentType(), file.immutable());
+	}
+
+	// Empreinte du fichier multipart (déjà reçu en entier) : une clé rejouée avec un autre contenu est refusée.
+	// Calculée seulement si la requête porte une clé d'idempotence
+	private static String contentDigest(String idempotencyKey, MultipartFile file) throws IOException {
+		if (idempotencyKey == null) {
+			return null;
+		}
+		try (InputStream in = file.getInputStream()) {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			in.transferTo(new DigestOutputStream(OutputStream.nullOutputStream(), digest));
+			return HexFormat.of().formatHex(digest.digest());
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 not available", e);
+		}
+	}
 }
-}
\ No newline at end of file
@@ -0,0 +1,197 @@
+package com.buy01.media.controller;
+
+import com.buy01.media.cache.HotMediaCache;
+import com.buy01.media.exception.ResourceNotFoundException;
+import com.buy01.media.storage.MediaStorage;
+import com.buy01.media.storage.StoredFile;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Optional;
+
+@Component
+@RequiredArgsConstructor
+public class MediaFileStreamer {
+
+    // Les fichiers sont nommés par UUID et jamais réécrits : cache client d'un an
+    private static final String CACHE_CONTROL = "public, max-age=31536000, immutable";
+    // Réponse provisoire (miniature pas encore prête) : courte durée pour revenir chercher la bonne
+    private static final String PROVISIONAL_CACHE_CONTROL = "public, max-age=60";
+
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private final MediaStorage mediaStorage;
+
+    public void serve(HttpServletRequest request, HttpServletResponse response,
+                      String key, String contentType, boolean immutable) throws IOException {
+
+        StoredFile stored = mediaStorage.stat(key)
+                .orElseThrow(() -> new ResourceNotFoundException("Media file not found: " + key));
+
+        long[] range = prepare(request, response, key, contentType, immutable, stored.size(), stored.lastModified());
+        if (range == null) {
+            return;
+        }
+        long start = range[0];
+        long count = range[1];
+
+        Optional<Path> localPath = mediaStorage.localPath(key);
+        if (localPath.isEmpty()) {
+            copyRange(key, start, count, response.getOutputStream());
+            return;
+        }
+        Path file = localPath.get();
+
+        // Tomcat (NIO) : envoi zero-copy via sendfile, le thread de requête est libéré
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute(SENDFILE_FILENAME, file.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, start + count);
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            long remaining = count;
+            while (remaining > 0) {
+                long written = channel.transferTo(position, remaining, out);
+                if (written <= 0) {
+                    break;
+                }
+                position += written;
+                remaining -= written;
+            }
+        }
+    }
+
+    // Réponse depuis le cache mémoire : aucune lecture disque ni base
+    public void serve(HttpServletRequest request, HttpServletResponse response,
+                      HotMediaCache.CachedMedia cached) throws IOException {
+
+        ByteBuffer content = cached.content();
+        long[] range = prepare(request, response, cached.storageKey(), cached.contentType(), true,
+                content.remaining(), cached.lastModified());
+        if (range == null) {
+            return;
+        }
+
+        ByteBuffer slice = content.duplicate();
+        slice.position(slice.position() + (int) range[0]);
+        slice.limit(slice.position() + (int) range[1]);
+        WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+        while (slice.hasRemaining()) {
+            out.write(slice);
+        }
+    }
+
+    // En-têtes de cache, requêtes conditionnelles et Range ; renvoie {début, longueur} ou null si pas de corps
+    private long[] prepare(HttpServletRequest request, HttpServletResponse response, String key,
+                           String contentType, boolean immutable, long length, long lastModified) {
+        String etag = buildETag(key, length, lastModified);
+
+        response.setHeader(HttpHeaders.CACHE_CONTROL, immutable ? CACHE_CONTROL : PROVISIONAL_CACHE_CONTROL);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+        // Gère If-None-Match / If-Modified-Since et pose ETag + Last-Modified
+        if (new ServletWebRequest(request, response).checkNotModified(etag, lastModified)) {
+            return null;
+        }
+
+        response.setContentType(contentType);
+
+        long start = 0;
+        long end = length - 1;
+
+        List<HttpRange> ranges = parseRanges(request, etag, lastModified);
+        if (ranges.size() == 1) {
+            HttpRange range = ranges.get(0);
+            try {
+                start = range.getRangeStart(length);
+                end = range.getRangeEnd(length);
+            } catch (IllegalArgumentException e) {
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return null;
+            }
+            response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+        }
+
+        long count = end - start + 1;
+        response.setContentLengthLong(count);
+
+        if ("HEAD".equals(request.getMethod()) || count == 0) {
+            return null;
+        }
+        return new long[] {start, count};
+    }
+
+    // Stockage non local : copie en flux de la plage demandée
+    private void copyRange(String key, long start, long count, OutputStream out) throws IOException {
+        try (InputStream in = mediaStorage.open(key)) {
+            in.skipNBytes(start);
+            byte[] buffer = new byte[8192];
+            long remaining = count;
+            while (remaining > 0) {
+                int read = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                if (read < 0) {
+                    break;
+                }
+                out.write(buffer, 0, read);
+                remaining -= read;
+            }
+        }
+    }
+
+    private List<HttpRange> parseRanges(HttpServletRequest request, String etag, long lastModified) {
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        if (rangeHeader == null) {
+            return List.of();
+        }
+
+        // If-Range : la plage n'est honorée que si la représentation n'a pas changé
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange != null && !ifRange.equals(etag)) {
+            long ifRangeDate = -1;
+            try {
+                ifRangeDate = request.getDateHeader(HttpHeaders.IF_RANGE);
+            } catch (IllegalArgumentException e) {
+                // ni un ETag identique ni une date : on renvoie le fichier entier
+            }
+            if (ifRangeDate == -1 || lastModified / 1000 > ifRangeDate / 1000) {
+                return List.of();
+            }
+        }
+
+        try {
+            return HttpRange.parseRanges(rangeHeader);
+        } catch (IllegalArgumentException e) {
+            // En-tête Range invalide : ignoré, comme le permet la RFC 9110
+            return List.of();
+        }
+    }
+
+    private String buildETag(String key, long length, long lastModified) {
+        return "\"" + key + "-" + Long.toHexString(length)
+                + "-" + Long.toHexString(lastModified) + "\"";
+    }
+}
@@ -0,0 +1,84 @@
+package com.buy01.media.controller;
+
+import com.buy01.media.dto.CreateUploadSessionRequest;
+import com.buy01.media.dto.MediaUploadResponse;
+import com.buy01.media.dto.UploadSessionResponse;
+import com.buy01.media.service.ResumableUploadService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.util.Map;
+
+// Upload par morceaux, reprenable après une coupure réseau
+@RestController
+@RequestMapping("/api/media/uploads")
+@RequiredArgsConstructor
+public class UploadSessionController {
+
+	private final ResumableUploadService resumableUploadService;
+
+	@PostMapping
+	@PreAuthorize("hasRole('SELLER')")
+	public ResponseEntity<UploadSessionResponse> createSession(
+			Authentication authentication,
+			@Valid @RequestBody CreateUploadSessionRequest request) {
+
+		String userId = authentication.getName();
+		UploadSessionResponse response = resumableUploadService.createSession(userId, request);
+		return ResponseEntity.status(HttpStatus.CREATED).body(response);
+	}
+
+	@PutMapping(value = "/{id}/chunks/{index}", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+	@PreAuthorize("hasRole('SELLER')")
+	public ResponseEntity<UploadSessionResponse> uploadChunk(
+			Authentication authentication,
+			HttpServletRequest request,
+			@PathVariable String id,
+			@PathVariable int index) throws IOException {
+
+		String userId = authentication.getName();
+		UploadSessionResponse response = resumableUploadService.uploadChunk(userId, id, index, request.getInputStream());
+		return ResponseEntity.ok(response);
+	}
+
+	// Reprise : le client relit les morceaux déjà reçus avant de renvoyer les manquants
+	@GetMapping("/{id}")
+	@PreAuthorize("hasRole('SELLER')")
+	public ResponseEntity<UploadSessionResponse> getSession(
+			Authentication authentication,
+			@PathVariable String id) {
+
+		String userId = authentication.getName();
+		return ResponseEntity.ok(resumableUploadService.getSession(userId, id));
+	}
+
+	@PostMapping("/{id}/complete")
+	@PreAuthorize("hasRole('SELLER')")
+	public ResponseEntity<MediaUploadResponse> completeSession(
+			Authentication authentication,
+			@PathVariable String id) {
+
+		String userId = authentication.getName();
+		MediaUploadResponse response = resumableUploadService.completeSession(userId, id);
+		return ResponseEntity.status(HttpStatus.CREATED).body(response);
+	}
+
+	@DeleteMapping("/{id}")
+	@PreAuthorize("hasRole('SELLER')")
+	public ResponseEntity<Map<String, String>> abortSession(
+			Authentication authentication,
+			@PathVariable String id) {
+
+		String userId = authentication.getName();
+		resumableUploadService.abortSession(userId, id);
+		return ResponseEntity.ok(Map.of("message", "Upload session aborted successfully"));
+	}
+}
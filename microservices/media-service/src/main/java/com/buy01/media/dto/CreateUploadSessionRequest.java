@@ -0,0 +1,21 @@
+package com.buy01.media.dto;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+@Data
+public class CreateUploadSessionRequest {
+
+    @NotBlank(message = "File name is required")
+    private String fileName;
+
+    @NotNull(message = "Total size is required")
+    @Min(value = 1, message = "Total size must be positive")
+    private Long totalSize;
+
+    private Integer chunkSize;
+
+    private String productId;
+}
@@ -0,0 +1,16 @@
+package com.buy01.media.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MediaBatchItemResult {
+    private int index;
+    private String fileName;
+    private boolean success;
+    private MediaUploadResponse media;
+    private String error;
+}
@@ -0,0 +1,16 @@
+package com.buy01.media.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MediaBatchUploadResponse {
+    private int succeeded;
+    private int failed;
+    private List<MediaBatchItemResult> results;
+}
@@ -3,6 +3,7 @@ package com.buy01.media.dto;
 import lombok.Data;
 
 import java.time.LocalDateTime;
+import java.util.List;
 
 @Data
 public class MediaResponse {
@@ -11,6 +12,11 @@ public class MediaResponse {
     private String contentType;
     private Long fileSize;
     private String imagePath;
+    private String fileUrl;
+    private Integer width;
+    private Integer height;
+    private String placeholder;
+    private List<Integer> renditionWidths;
     private String productId;
     private String userId;
     private LocalDateTime createdAt;
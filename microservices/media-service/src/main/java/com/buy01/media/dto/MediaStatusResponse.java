@@ -0,0 +1,17 @@
+package com.buy01.media.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MediaStatusResponse {
+    private String id;
+    private String status;
+    private String error;
+    private LocalDateTime updatedAt;
+}
@@ -15,6 +15,10 @@ public class MediaUploadResponse {
     private String contentType;
     private Long fileSize;
     private String imagePath;
+    private String fileUrl;
+    private Integer width;
+    private Integer height;
+    private String placeholder;
     private String productId;
     private LocalDateTime createdAt;
 }
\ No newline at end of file
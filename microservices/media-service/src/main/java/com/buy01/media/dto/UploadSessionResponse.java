@@ -0,0 +1,19 @@
+package com.buy01.media.dto;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+public class UploadSessionResponse {
+    private String id;
+    private String fileName;
+    private Long totalSize;
+    private Integer chunkSize;
+    private Integer totalChunks;
+    private List<Integer> receivedChunks;
+    private String status;
+    private String mediaId;
+    private LocalDateTime expiresAt;
+}
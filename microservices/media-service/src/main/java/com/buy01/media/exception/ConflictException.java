@@ -0,0 +1,7 @@
+package com.buy01.media.exception;
+
+public class ConflictException extends RuntimeException {
+    public ConflictException(String message) {
+        super(message);
+    }
+}
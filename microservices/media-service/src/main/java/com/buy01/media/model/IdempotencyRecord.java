@@ -0,0 +1,35 @@
+package com.buy01.media.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "idempotency_keys")
+public class IdempotencyRecord {
+
+    @Id
+    private String id;  // Route + utilisateur + valeur de l'en-tête Idempotency-Key
+
+    private String requestHash;  // Empreinte de la requête d'origine : une clé ne sert qu'à une seule requête
+
+    private IdempotencyStatus status;
+
+    private Integer responseStatus;
+
+    private String responseBody;  // Réponse d'origine sérialisée en JSON
+
+    private String responseLocation;
+
+    @Indexed(expireAfter = "24h")  // Index TTL : Mongo supprime la clé au bout de 24 h
+    private LocalDateTime createdAt;
+
+    private LocalDateTime lockedAt;  // Début de la tentative en cours
+}
@@ -4,14 +4,23 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.LocalDateTime;
+import java.util.List;
 
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 @Document(collection = "media")
+// Listes paginées par produit et par seller : égalité puis tri keyset (voir CursorPagination)
+@CompoundIndexes({
+        @CompoundIndex(name = "product_created_idx", def = "{'productId': 1, 'createdAt': -1, '_id': -1}"),
+        @CompoundIndex(name = "user_created_idx", def = "{'userId': 1, 'createdAt': -1, '_id': -1}")
+})
 public class Media {
 
     @Id
@@ -23,11 +32,36 @@ public class Media {
 
     private Long fileSize;
 
+    private Long bytesSaved;  // Octets gagnés par l'optimisation à l'ingestion (0 si l'original est conservé)
+
+    @Indexed
     private String imagePath;  // Chemin ou URL de l'image stockée
 
+    private Integer width;  // Dimensions d'affichage (orientation EXIF appliquée)
+
+    private Integer height;
+
+    private String placeholder;  // Aperçu flou en data URI, affiché avant le chargement de l'image
+
+    private String contentHash;  // Empreinte SHA-256 du blob partagé (mode content-addressed)
+
+    private List<Integer> renditionWidths;  // Largeurs des miniatures déjà générées
+
     private String productId;  // ID du produit associé
 
     private String userId;  // ID du seller qui a uploadé
 
     private LocalDateTime createdAt;
+
+    @Indexed
+    private LocalDateTime lastAccessedAt;  // Écrit par lots, à quelques minutes près
+
+    private LocalDateTime archivedAt;  // Fichier déplacé vers le stockage froid (absent s'il est sur le volume chaud)
+
+    @Indexed(sparse = true)
+    private MediaStatus status;  // PENDING/FAILED pendant un upload asynchrone ; absent une fois le média enregistré
+
+    private String statusError;  // Cause de l'échec d'un upload asynchrone
+
+    private LocalDateTime statusUpdatedAt;
 }
\ No newline at end of file
@@ -0,0 +1,27 @@
+package com.buy01.media.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "media_blobs")
+public class MediaBlob {
+
+    @Id
+    private String id;  // Empreinte SHA-256 du contenu
+
+    private String fileName;  // Nom du fichier partagé, propre à cette génération du blob
+
+    private Long fileSize;
+
+    private Long refCount;  // Nombre de documents Media qui pointent sur ce fichier
+
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,7 @@
+package com.buy01.media.model;
+
+public enum MediaStatus {
+    PENDING,
+    READY,
+    FAILED
+}
@@ -0,0 +1,47 @@
+package com.buy01.media.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.Set;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "upload_sessions")
+public class UploadSession {
+
+    @Id
+    private String id;
+
+    private String userId;
+
+    private String productId;
+
+    private String fileName;
+
+    private Long totalSize;
+
+    private Integer chunkSize;
+
+    private Integer totalChunks;
+
+    private Set<Integer> receivedChunks = new HashSet<>();  // Index des morceaux déjà reçus
+
+    private UploadSessionStatus status;
+
+    private LocalDateTime assemblingSince;  // Bail de la finalisation en cours : périmé, la session peut être reprise
+
+    private String mediaId;  // Media créé à la finalisation
+
+    private LocalDateTime createdAt;
+
+    @Indexed
+    private LocalDateTime expiresAt;
+}
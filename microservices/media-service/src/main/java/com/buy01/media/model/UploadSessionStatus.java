@@ -0,0 +1,8 @@
+package com.buy01.media.model;
+
+public enum UploadSessionStatus {
+    OPEN,
+    ASSEMBLING,
+    COMPLETED,
+    ABORTED  // réservée pour suppression : plus aucun morceau ni finalisation acceptés
+}
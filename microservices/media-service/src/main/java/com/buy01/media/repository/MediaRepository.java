@@ -1,15 +1,15 @@
 package com.buy01.media.repository;
 
 import com.buy01.media.model.Media;
+import com.buy01.media.model.MediaStatus;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface MediaRepository extends MongoRepository<Media, String> {
 
-    List<Media> findByProductId(String productId);
-
-    List<Media> findByUserId(String userId);
+    List<Media> findByProductIdInAndStatusNotIn(Collection<String> productIds, Collection<MediaStatus> statuses);
 }
\ No newline at end of file
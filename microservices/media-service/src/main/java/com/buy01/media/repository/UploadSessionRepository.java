@@ -0,0 +1,14 @@
+package com.buy01.media.repository;
+
+import com.buy01.media.model.UploadSession;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface UploadSessionRepository extends MongoRepository<UploadSession, String> {
+
+    List<UploadSession> findByExpiresAtBefore(LocalDateTime expiresAt);
+}
@@ -0,0 +1,198 @@
+package com.buy01.media.service;
+
+import com.buy01.media.dto.MediaStatusResponse;
+import com.buy01.media.exception.ResourceNotFoundException;
+import com.buy01.media.exception.ServiceUnavailableException;
+import com.buy01.media.exception.UnauthorizedException;
+import com.buy01.media.model.Media;
+import com.buy01.media.model.MediaStatus;
+import com.buy01.media.repository.MediaRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.Executor;
+import java.util.stream.Stream;
+
+// Upload accepté en 202 : le thread de requête ne fait que valider et déposer le fichier.
+// Le statut vit sur le document Media (réservé en PENDING) : lisible depuis toute instance, y compris après redémarrage
+@Service
+@Slf4j
+public class AsyncUploadService {
+
+    private final MediaService mediaService;
+    private final MediaRepository mediaRepository;
+    private final MongoTemplate mongoTemplate;
+    private final Executor mediaUploadExecutor;
+    private final Path stagingDir;
+    private final Duration failureRetention;
+    private final Duration stagingTimeout;
+    private final Duration queueFullRetryAfter;
+
+    public AsyncUploadService(MediaService mediaService,
+                              MediaRepository mediaRepository,
+                              MongoTemplate mongoTemplate,
+                              @Qualifier("mediaUploadExecutor") Executor mediaUploadExecutor,
+                              @Value("${media.upload.staging-dir:${media.upload.dir}/.staging}") String stagingDir,
+                              @Value("${media.upload.failure-retention:PT1H}") Duration failureRetention,
+                              @Value("${media.upload.staging-timeout:PT1H}") Duration stagingTimeout,
+                              @Value("${media.upload.queue-full-retry-after:PT5S}") Duration queueFullRetryAfter) {
+        this.mediaService = mediaService;
+        this.mediaRepository = mediaRepository;
+        this.mongoTemplate = mongoTemplate;
+        this.mediaUploadExecutor = mediaUploadExecutor;
+        this.stagingDir = Paths.get(stagingDir);
+        this.failureRetention = failureRetention;
+        this.stagingTimeout = stagingTimeout;
+        this.queueFullRetryAfter = queueFullRetryAfter;
+    }
+
+    public MediaStatusResponse acceptUpload(String userId, MultipartFile file, String productId) {
+        mediaService.validateUpload(file);
+
+        String mediaId = new ObjectId().toHexString();
+        String fileName = file.getOriginalFilename();
+        Path staged = stagingDir.resolve(mediaId + ".upload");
+        try {
+            Files.createDirectories(stagingDir);
+            // Le fichier temporaire multipart est supprimé en fin de requête : on le déplace (simple renommage)
+            file.transferTo(staged.toFile());
+        } catch (IOException e) {
+            log.error("Error staging upload {}", mediaId, e);
+            throw new RuntimeException("Failed to upload file: " + e.getMessage());
+        }
+
+        // Réservé avant la soumission : la tâche remplace ce document par le média enregistré
+        Media accepted = new Media();
+        accepted.setId(mediaId);
+        accepted.setFileName(fileName);
+        accepted.setProductId(productId);
+        accepted.setUserId(userId);
+        accepted.setCreatedAt(LocalDateTime.now());
+        accepted.setStatus(MediaStatus.PENDING);
+        accepted.setStatusUpdatedAt(accepted.getCreatedAt());
+        try {
+            mediaRepository.insert(accepted);
+        } catch (RuntimeException e) {
+            deleteStaged(staged);
+            throw e;
+        }
+
+        try {
+            mediaUploadExecutor.execute(() -> complete(mediaId, userId, staged, fileName, productId));
+        } catch (TaskRejectedException e) {
+            // File pleine : refus explicite plutôt que de terminer l'upload sur le thread de requête
+            mediaRepository.deleteById(mediaId);
+            deleteStaged(staged);
+            log.warn("Async upload queue full, rejecting upload for user: {}", userId);
+            throw new ServiceUnavailableException("Upload queue is full, please retry later",
+                    Math.max(1, queueFullRetryAfter.toSeconds()));
+        }
+        log.info("Accepted async upload {} for user: {} and product: {}", mediaId, userId, productId);
+        return toResponse(accepted);
+    }
+
+    public MediaStatusResponse getStatus(String userId, String mediaId) {
+        Media media = mediaRepository.findById(mediaId)
+                .orElseThrow(() -> new ResourceNotFoundException("Media not found with id: " + mediaId));
+        if (!media.getUserId().equals(userId)) {
+            throw new UnauthorizedException("You don't have permission to access this media");
+        }
+        return toResponse(media);
+    }
+
+    @Scheduled(fixedDelayString = "${media.upload.failure-retention:PT1H}")
+    public void purgeFailedUploads() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(failureRetention);
+        long purged = mongoTemplate.remove(Query.query(Criteria.where("status").is(MediaStatus.FAILED)
+                .and("statusUpdatedAt").lt(cutoff)), Media.class).getDeletedCount();
+        if (purged > 0) {
+            log.info("Purged {} failed async upload(s)", purged);
+        }
+    }
+
+    // Au démarrage puis périodiquement : une instance arrêtée en cours d'upload laisse un document PENDING
+    // et un fichier dans le répertoire de dépôt (caché, donc ignoré par le ramasse-miettes des orphelins)
+    @Scheduled(fixedDelayString = "${media.upload.staging-timeout:PT1H}")
+    public void sweepStaleUploads() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(stagingTimeout);
+        long interrupted = mongoTemplate.updateMulti(
+                Query.query(Criteria.where("status").is(MediaStatus.PENDING).and("statusUpdatedAt").lt(cutoff)),
+                failedUpdate("Upload interrupted before completion"), Media.class).getModifiedCount();
+
+        long cutoffMillis = System.currentTimeMillis() - stagingTimeout.toMillis();
+        int deleted = 0;
+        if (Files.isDirectory(stagingDir)) {
+            try (Stream<Path> files = Files.list(stagingDir)) {
+                for (Path file : files.toList()) {
+                    try {
+                        if (Files.isRegularFile(file) && Files.getLastModifiedTime(file).toMillis() < cutoffMillis
+                                && Files.deleteIfExists(file)) {
+                            deleted++;
+                        }
+                    } catch (IOException e) {
+                        log.warn("Could not sweep staged upload {}", file, e);
+                    }
+                }
+            } catch (IOException e) {
+                log.warn("Could not list staging directory {}", stagingDir, e);
+            }
+        }
+        if (interrupted > 0 || deleted > 0) {
+            log.info("Swept {} interrupted async upload(s) and {} stale staged file(s)", interrupted, deleted);
+        }
+    }
+
+    private void complete(String mediaId, String userId, Path staged, String fileName, String productId) {
+        try {
+            mediaService.uploadStagedFile(mediaId, userId, staged, fileName, productId);
+        } catch (Exception e) {
+            log.error("Async upload {} failed", mediaId, e);
+            // Seulement depuis PENDING : le balayage a pu passer avant nous
+            mongoTemplate.updateFirst(
+                    Query.query(Criteria.where("_id").is(mediaId).and("status").is(MediaStatus.PENDING)),
+                    failedUpdate(e.getMessage()), Media.class);
+        } finally {
+            deleteStaged(staged);
+        }
+    }
+
+    private static Update failedUpdate(String error) {
+        return new Update()
+                .set("status", MediaStatus.FAILED)
+                .set("statusError", error)
+                .set("statusUpdatedAt", LocalDateTime.now());
+    }
+
+    private void deleteStaged(Path staged) {
+        try {
+            Files.deleteIfExists(staged);
+        } catch (IOException e) {
+            log.warn("Could not delete staged upload {}", staged, e);
+        }
+    }
+
+    // Un document sans statut est un média enregistré
+    private static MediaStatusResponse toResponse(Media media) {
+        if (media.getStatus() == null) {
+            return new MediaStatusResponse(media.getId(), MediaStatus.READY.name(), null, media.getCreatedAt());
+        }
+        return new MediaStatusResponse(media.getId(), media.getStatus().name(), media.getStatusError(),
+                media.getStatusUpdatedAt());
+    }
+}
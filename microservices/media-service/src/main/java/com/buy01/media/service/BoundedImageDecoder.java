@@ -0,0 +1,53 @@
+package com.buy01.media.service;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+
+// Décodage borné : les dimensions sont lues dans l'en-tête avant d'allouer les pixels.
+// Un PNG de quelques Ko peut annoncer 30000×30000 pixels, soit plusieurs Go une fois décodé
+final class BoundedImageDecoder {
+
+    static class ImageTooLargeException extends IOException {
+        ImageTooLargeException(int width, int height, long maxPixels) {
+            super("Image is " + width + "x" + height + ", above the " + maxPixels + " pixel limit");
+        }
+    }
+
+    // Image décodée (éventuellement sous-échantillonnée) et dimensions d'origine
+    record DecodedImage(BufferedImage image, int sourceWidth, int sourceHeight) {
+    }
+
+    private BoundedImageDecoder() {
+    }
+
+    // targetWidth > 0 : une ligne sur n lue à la source, sans descendre sous cette largeur ; null si aucun décodeur
+    static DecodedImage decode(InputStream in, long maxPixels, int targetWidth) throws IOException {
+        try (ImageInputStream iis = ImageIO.createImageInputStream(in)) {
+            Iterator<ImageReader> readers = iis == null ? null : ImageIO.getImageReaders(iis);
+            if (readers == null || !readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(iis, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if ((long) width * height > maxPixels) {
+                    throw new ImageTooLargeException(width, height, maxPixels);
+                }
+                ImageReadParam param = reader.getDefaultReadParam();
+                int step = targetWidth > 0 ? Math.max(1, width / targetWidth) : 1;
+                param.setSourceSubsampling(step, step, 0, 0);
+                return new DecodedImage(reader.read(0, param), width, height);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.buy01.media.service;
+
+import com.buy01.media.dto.CursorPage;
+import com.buy01.media.exception.BadRequestException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+// Pagination par clé (keyset) : tri stable createdAt desc puis _id desc, reprise après le dernier élément servi.
+// Pas de skip ni de comptage : le coût d'une page ne dépend pas de sa position dans la collection.
+final class CursorPagination {
+
+    static final int DEFAULT_LIMIT = 20;
+    static final int MAX_LIMIT = 100;
+
+    private static final String SEPARATOR = "|";
+
+    private record Position(LocalDateTime createdAt, String id) {
+    }
+
+    private CursorPagination() {
+    }
+
+    // Une ligne de plus que la page : sa présence indique qu'il existe une page suivante
+    static Query query(Criteria filter, String cursor, Integer limit) {
+        Criteria criteria = filter;
+        if (cursor != null && !cursor.isBlank()) {
+            Position after = decode(cursor);
+            criteria = new Criteria().andOperator(filter, new Criteria().orOperator(
+                    Criteria.where("createdAt").lt(after.createdAt()),
+                    Criteria.where("createdAt").is(after.createdAt()).and("id").lt(after.id())));
+        }
+        return Query.query(criteria)
+                .with(Sort.by(Sort.Direction.DESC, "createdAt", "id"))
+                .limit(pageSize(limit) + 1);
+    }
+
+    static <E, T> CursorPage<T> page(List<E> rows, Integer limit, Function<E, LocalDateTime> createdAt,
+                                     Function<E, String> id, Function<E, T> mapper) {
+        int size = pageSize(limit);
+        if (rows.size() <= size) {
+            return new CursorPage<>(rows.stream().map(mapper).toList(), null);
+        }
+        E last = rows.get(size - 1);
+        return new CursorPage<>(rows.subList(0, size).stream().map(mapper).toList(),
+                encode(createdAt.apply(last), id.apply(last)));
+    }
+
+    // Paramètre limit absent : taille par défaut
+    static int pageSize(Integer limit) {
+        return limit == null ? DEFAULT_LIMIT : Math.max(1, Math.min(MAX_LIMIT, limit));
+    }
+
+    // Curseur opaque pour le client : base64url de "createdAt|id"
+    private static String encode(LocalDateTime createdAt, String id) {
+        String raw = createdAt + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Position decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(SEPARATOR);
+            if (separator <= 0 || separator == raw.length() - 1) {
+                throw new BadRequestException("Invalid cursor");
+            }
+            return new Position(LocalDateTime.parse(raw.substring(0, separator)), raw.substring(separator + 1));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new BadRequestException("Invalid cursor");
+        }
+    }
+}
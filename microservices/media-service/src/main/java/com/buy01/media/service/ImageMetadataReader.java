@@ -0,0 +1,210 @@
+package com.buy01.media.service;
+
+import com.buy01.media.storage.MediaStorage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Iterator;
+
+// Dimensions lues dans l'en-tête (sans décodage) et aperçu flou de quelques centaines d'octets pour les grilles
+@Component
+@Slf4j
+public class ImageMetadataReader {
+
+    public record ImageMetadata(Integer width, Integer height, String placeholder) {
+    }
+
+    // Segments APP (EXIF, ICC) compris : le SOF d'un JPEG se trouve presque toujours avant
+    static final int MAX_HEADER_BYTES = 256 * 1024;
+
+    private final MediaStorage mediaStorage;
+    private final int placeholderWidth;
+
+    public ImageMetadataReader(MediaStorage mediaStorage,
+                               @Value("${media.placeholder.width:16}") int placeholderWidth) {
+        this.mediaStorage = mediaStorage;
+        this.placeholderWidth = placeholderWidth;
+    }
+
+    public ImageMetadata read(String key, String contentType) {
+        Integer width = null;
+        Integer height = null;
+        int orientation = 1;
+        try {
+            byte[] header;
+            try (InputStream in = mediaStorage.open(key)) {
+                header = in.readNBytes(MAX_HEADER_BYTES);
+            }
+            if ("image/jpeg".equals(contentType)) {
+                orientation = ImageOptimizer.exifOrientation(header);
+            }
+            int[] dimensions = dimensions(header, contentType);
+            if (dimensions != null) {
+                // Orientation EXIF 5 à 8 : le navigateur affiche l'image tournée d'un quart de tour
+                boolean swapped = orientation >= 5 && orientation <= 8;
+                width = swapped ? dimensions[1] : dimensions[0];
+                height = swapped ? dimensions[0] : dimensions[1];
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not read dimensions of {}", key, e);
+        }
+        return new ImageMetadata(width, height, placeholder(key, orientation));
+    }
+
+    // Aperçu : décodage sous-échantillonné puis réduction à quelques pixels, JPEG ou PNG selon le plus léger
+    private String placeholder(String key, int orientation) {
+        try (InputStream in = mediaStorage.open(key);
+             ImageInputStream iis = ImageIO.createImageInputStream(in)) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(iis);
+            if (!readers.hasNext()) {
+                return null;  // WebP : pas de décodeur ImageIO
+            }
+            ImageReader reader = readers.next();
+            BufferedImage decoded;
+            try {
+                reader.setInput(iis, true, true);
+                int step = Math.max(1, reader.getWidth(0) / (placeholderWidth * 4));
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(step, step, 0, 0);
+                decoded = reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+
+            int width = Math.min(placeholderWidth, decoded.getWidth());
+            int height = Math.max(1, Math.round((float) decoded.getHeight() * width / decoded.getWidth()));
+            BufferedImage tiny = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            Graphics2D graphics = tiny.createGraphics();
+            try {
+                graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                graphics.setColor(Color.WHITE);
+                graphics.fillRect(0, 0, width, height);
+                graphics.drawImage(decoded, 0, 0, width, height, null);
+            } finally {
+                graphics.dispose();
+            }
+            tiny = ImageOptimizer.toRgb(tiny, orientation);
+
+            byte[] jpeg = encode(tiny, "jpg");
+            byte[] png = encode(tiny, "png");
+            return jpeg.length <= png.length
+                    ? "data:image/jpeg;base64," + Base64.getEncoder().encodeToString(jpeg)
+                    : "data:image/png;base64," + Base64.getEncoder().encodeToString(png);
+
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not build placeholder for {}", key, e);
+            return null;
+        }
+    }
+
+    private static byte[] encode(BufferedImage image, String format) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName(format).next();
+        ImageWriteParam param = writer.getDefaultWriteParam();
+        if ("jpg".equals(format)) {
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(0.4f);
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ImageOutputStream ios = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(ios);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+
+    // {largeur, hauteur} stockées dans le fichier, ou null si l'en-tête est illisible
+    static int[] dimensions(byte[] header, String contentType) {
+        return switch (contentType) {
+            case "image/png" -> header.length >= 24
+                    ? new int[] {readIntBigEndian(header, 16), readIntBigEndian(header, 20)} : null;
+            case "image/gif" -> header.length >= 10
+                    ? new int[] {readShortLittleEndian(header, 6), readShortLittleEndian(header, 8)} : null;
+            case "image/webp" -> webpDimensions(header);
+            default -> jpegDimensions(header);
+        };
+    }
+
+    // Parcours des marqueurs jusqu'au SOFn (hors DHT, JPG et DAC qui partagent la plage)
+    private static int[] jpegDimensions(byte[] data) {
+        int pos = 2;
+        while (pos + 4 <= data.length) {
+            if ((data[pos] & 0xFF) != 0xFF) {
+                return null;
+            }
+            int marker = data[pos + 1] & 0xFF;
+            if (marker == 0xFF) {
+                pos++;  // octet de bourrage
+                continue;
+            }
+            if (marker == 0x01 || (marker >= 0xD0 && marker <= 0xD7)) {
+                pos += 2;  // marqueurs sans longueur
+                continue;
+            }
+            int length = readShortBigEndian(data, pos + 2);
+            if (marker >= 0xC0 && marker <= 0xCF && marker != 0xC4 && marker != 0xC8 && marker != 0xCC) {
+                if (pos + 9 > data.length) {
+                    return null;
+                }
+                return new int[] {readShortBigEndian(data, pos + 7), readShortBigEndian(data, pos + 5)};
+            }
+            if (marker == 0xDA || length < 2) {
+                return null;
+            }
+            pos += 2 + length;
+        }
+        return null;
+    }
+
+    // RIFF....WEBP puis un premier bloc VP8 (avec perte), VP8L (sans perte) ou VP8X (étendu)
+    private static int[] webpDimensions(byte[] data) {
+        if (data.length < 30) {
+            return null;
+        }
+        String chunk = new String(data, 12, 4, StandardCharsets.US_ASCII);
+        return switch (chunk) {
+            case "VP8X" -> new int[] {1 + readInt24LittleEndian(data, 24), 1 + readInt24LittleEndian(data, 27)};
+            case "VP8L" -> {
+                int bits = (data[21] & 0xFF) | (data[22] & 0xFF) << 8 | (data[23] & 0xFF) << 16 | (data[24] & 0xFF) << 24;
+                yield new int[] {1 + (bits & 0x3FFF), 1 + ((bits >> 14) & 0x3FFF)};
+            }
+            case "VP8 " -> new int[] {readShortLittleEndian(data, 26) & 0x3FFF, readShortLittleEndian(data, 28) & 0x3FFF};
+            default -> null;
+        };
+    }
+
+    private static int readShortBigEndian(byte[] data, int offset) {
+        return (data[offset] & 0xFF) << 8 | (data[offset + 1] & 0xFF);
+    }
+
+    private static int readIntBigEndian(byte[] data, int offset) {
+        return readShortBigEndian(data, offset) << 16 | readShortBigEndian(data, offset + 2);
+    }
+
+    private static int readShortLittleEndian(byte[] data, int offset) {
+        return (data[offset] & 0xFF) | (data[offset + 1] & 0xFF) << 8;
+    }
+
+    private static int readInt24LittleEndian(byte[] data, int offset) {
+        return readShortLittleEndian(data, offset) | (data[offset + 2] & 0xFF) << 16;
+    }
+}
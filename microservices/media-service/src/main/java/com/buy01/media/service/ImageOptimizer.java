@@ -0,0 +1,234 @@
+package com.buy01.media.service;
+
+import com.buy01.media.storage.MediaStorage;
+import com.buy01.media.storage.StoredFile;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.UUID;
+
+// Ré-encodage à l'ingestion : métadonnées retirées, JPEG recompressé (progressif), PNG recompressé au maximum
+@Component
+@Slf4j
+public class ImageOptimizer {
+
+    private final MediaStorage mediaStorage;
+    private final boolean enabled;
+    private final float jpegQuality;
+    private final boolean progressive;
+    private final long maxPixels;
+
+    public ImageOptimizer(MediaStorage mediaStorage,
+                          @Value("${media.optimize.enabled:false}") boolean enabled,
+                          @Value("${media.optimize.jpeg-quality:0.82}") float jpegQuality,
+                          @Value("${media.optimize.progressive:true}") boolean progressive,
+                          @Value("${media.image.max-pixels:40000000}") long maxPixels) {
+        this.mediaStorage = mediaStorage;
+        this.enabled = enabled;
+        this.jpegQuality = jpegQuality;
+        this.progressive = progressive;
+        this.maxPixels = maxPixels;
+    }
+
+    // Remplace le fichier par sa version ré-encodée si elle est plus petite ; renvoie les octets gagnés
+    public long optimize(String key, String contentType) {
+        String format = formatFor(contentType);
+        if (!enabled || format == null) {
+            return 0;
+        }
+
+        try {
+            long originalSize = mediaStorage.stat(key).map(StoredFile::size).orElse(0L);
+            BufferedImage image;
+            int orientation;
+            // Seul l'en-tête est gardé en mémoire (orientation EXIF) ; les pixels sont décodés depuis le flux, bornés
+            try (InputStream in = new BufferedInputStream(mediaStorage.open(key))) {
+                in.mark(ImageMetadataReader.MAX_HEADER_BYTES);
+                orientation = "jpg".equals(format)
+                        ? exifOrientation(in.readNBytes(ImageMetadataReader.MAX_HEADER_BYTES)) : 1;
+                // Miroirs EXIF (2, 4, 5, 7) : rares, on garde l'original plutôt que de perdre l'orientation
+                if (orientation != 1 && orientation != 3 && orientation != 6 && orientation != 8) {
+                    return 0;
+                }
+                in.reset();
+                BoundedImageDecoder.DecodedImage decoded = BoundedImageDecoder.decode(in, maxPixels, 0);
+                if (decoded == null) {
+                    return 0;
+                }
+                image = decoded.image();
+            }
+            if ("jpg".equals(format)) {
+                // L'orientation EXIF disparaît avec les métadonnées : elle est appliquée aux pixels
+                image = toRgb(image, orientation);
+            }
+
+            byte[] optimized = encode(image, format);
+            if (optimized.length >= originalSize) {
+                log.debug("Re-encoding {} would not save space, original kept", key);
+                return 0;
+            }
+
+            // Écriture sous une clé temporaire puis renommage : jamais de fichier partiel sous la clé
+            String tempKey = "optimize-" + UUID.randomUUID() + ".tmp";
+            mediaStorage.write(tempKey, new ByteArrayInputStream(optimized));
+            mediaStorage.move(tempKey, key);
+
+            long saved = originalSize - optimized.length;
+            log.debug("Optimized {}: {} -> {} bytes", key, originalSize, optimized.length);
+            return saved;
+
+        } catch (IOException | RuntimeException e) {
+            // L'optimisation est facultative : en cas d'échec, l'original est conservé tel quel
+            log.warn("Failed to optimize {}, original kept", key, e);
+            return 0;
+        }
+    }
+
+    private byte[] encode(BufferedImage image, String format) throws IOException {
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName(format);
+        if (!writers.hasNext()) {
+            throw new IOException("No ImageIO writer for " + format);
+        }
+        ImageWriter writer = writers.next();
+        ImageWriteParam param = writer.getDefaultWriteParam();
+        if ("jpg".equals(format)) {
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(jpegQuality);
+            if (progressive) {
+                param.setProgressiveMode(ImageWriteParam.MODE_DEFAULT);
+            }
+        } else if (param.canWriteCompressed()) {
+            // PNG : qualité 0 = deflate au niveau maximal, sans perte
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(0.0f);
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ImageOutputStream ios = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(ios);
+            // Aucune métadonnée transmise : EXIF, ICC et XMP ne sont pas réécrits
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+
+    // Pixels en RGB (le writer JPEG refuse l'alpha), tournés selon l'orientation EXIF 3, 6 ou 8
+    static BufferedImage toRgb(BufferedImage source, int orientation) {
+        if (orientation == 1 && !source.getColorModel().hasAlpha()) {
+            return source;
+        }
+        int width = source.getWidth();
+        int height = source.getHeight();
+        boolean quarterTurn = orientation == 6 || orientation == 8;
+
+        AffineTransform transform = new AffineTransform();
+        switch (orientation) {
+            case 3 -> {
+                transform.translate(width, height);
+                transform.rotate(Math.PI);
+            }
+            case 6 -> {
+                transform.translate(height, 0);
+                transform.rotate(Math.PI / 2);
+            }
+            case 8 -> {
+                transform.translate(0, width);
+                transform.rotate(-Math.PI / 2);
+            }
+            default -> {
+                // orientation normale : simple conversion en RGB
+            }
+        }
+
+        BufferedImage target = new BufferedImage(quarterTurn ? height : width, quarterTurn ? width : height,
+                BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = target.createGraphics();
+        try {
+            graphics.drawImage(source, transform, null);
+        } finally {
+            graphics.dispose();
+        }
+        return target;
+    }
+
+    // Lecture du tag Orientation (0x0112) dans le segment APP1 Exif, sans décoder l'image
+    static int exifOrientation(byte[] jpeg) {
+        int pos = 2;
+        while (pos + 4 <= jpeg.length && (jpeg[pos] & 0xFF) == 0xFF) {
+            int marker = jpeg[pos + 1] & 0xFF;
+            int length = ((jpeg[pos + 2] & 0xFF) << 8) | (jpeg[pos + 3] & 0xFF);
+            if (marker == 0xDA || length < 2) {
+                break;
+            }
+            int end = Math.min(jpeg.length, pos + 2 + length);
+            if (marker == 0xE1 && pos + 10 <= end && jpeg[pos + 4] == 'E' && jpeg[pos + 5] == 'x'
+                    && jpeg[pos + 6] == 'i' && jpeg[pos + 7] == 'f' && jpeg[pos + 8] == 0 && jpeg[pos + 9] == 0) {
+                return tiffOrientation(jpeg, pos + 10, end);
+            }
+            pos += 2 + length;
+        }
+        return 1;
+    }
+
+    private static int tiffOrientation(byte[] data, int tiff, int end) {
+        if (tiff + 8 > end) {
+            return 1;
+        }
+        boolean littleEndian = data[tiff] == 'I' && data[tiff + 1] == 'I';
+        long ifd = tiff + (readInt(data, tiff + 4, littleEndian) & 0xFFFFFFFFL);
+        if (ifd + 2 > end) {
+            return 1;
+        }
+        int entries = readShort(data, (int) ifd, littleEndian);
+        for (int i = 0; i < entries; i++) {
+            int entry = (int) ifd + 2 + i * 12;
+            if (entry + 12 > end) {
+                break;
+            }
+            if (readShort(data, entry, littleEndian) == 0x0112) {
+                return readShort(data, entry + 8, littleEndian);
+            }
+        }
+        return 1;
+    }
+
+    private static int readShort(byte[] data, int offset, boolean littleEndian) {
+        int b0 = data[offset] & 0xFF;
+        int b1 = data[offset + 1] & 0xFF;
+        return littleEndian ? (b1 << 8) | b0 : (b0 << 8) | b1;
+    }
+
+    private static int readInt(byte[] data, int offset, boolean littleEndian) {
+        int high = readShort(data, littleEndian ? offset + 2 : offset, littleEndian);
+        int low = readShort(data, littleEndian ? offset : offset + 2, littleEndian);
+        return (high << 16) | low;
+    }
+
+    // GIF (animations) et WebP (pas de codec ImageIO) ne sont pas ré-encodés
+    private static String formatFor(String contentType) {
+        if ("image/jpeg".equals(contentType) || "image/jpg".equals(contentType)) {
+            return "jpg";
+        }
+        if ("image/png".equals(contentType)) {
+            return "png";
+        }
+        return null;
+    }
+}
@@ -0,0 +1,69 @@
+package com.buy01.media.service;
+
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+// Détection du format d'image à partir des octets magiques, sans se fier au Content-Type déclaré
+public final class ImageTypeDetector {
+
+    public static final int HEADER_SIZE = 12;
+
+    // Un seul segment, pas de fichier caché ni de chemin relatif
+    private static final Pattern SERVABLE_KEY = Pattern.compile("[A-Za-z0-9][A-Za-z0-9_-]*\\.[A-Za-z]+");
+
+    private ImageTypeDetector() {
+    }
+
+    public static String detect(byte[] header) {
+        if (startsWith(header, 0xFF, 0xD8, 0xFF)) {
+            return "image/jpeg";
+        }
+        if (startsWith(header, 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A)) {
+            return "image/png";
+        }
+        if (startsWith(header, 'G', 'I', 'F', '8')) {
+            return "image/gif";
+        }
+        // RIFF....WEBP
+        if (startsWith(header, 'R', 'I', 'F', 'F') && header.length >= 12
+                && header[8] == 'W' && header[9] == 'E' && header[10] == 'B' && header[11] == 'P') {
+            return "image/webp";
+        }
+        return null;
+    }
+
+    public static String extensionFor(String contentType) {
+        return switch (contentType) {
+            case "image/png" -> ".png";
+            case "image/gif" -> ".gif";
+            case "image/webp" -> ".webp";
+            default -> ".jpg";
+        };
+    }
+
+    // Type à partir de l'extension d'une clé de stockage ; null si la clé n'est pas une image servable
+    public static String contentTypeForKey(String key) {
+        if (key == null || !SERVABLE_KEY.matcher(key).matches()) {
+            return null;
+        }
+        return switch (key.substring(key.lastIndexOf('.') + 1).toLowerCase(Locale.ROOT)) {
+            case "jpg", "jpeg" -> "image/jpeg";
+            case "png" -> "image/png";
+            case "gif" -> "image/gif";
+            case "webp" -> "image/webp";
+            default -> null;
+        };
+    }
+
+    private static boolean startsWith(byte[] header, int... signature) {
+        if (header.length < signature.length) {
+            return false;
+        }
+        for (int i = 0; i < signature.length; i++) {
+            if ((header[i] & 0xFF) != signature[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
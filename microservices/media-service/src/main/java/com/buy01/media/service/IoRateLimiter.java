@@ -0,0 +1,24 @@
+package com.buy01.media.service;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+// Cadence les tâches de fond pour qu'elles ne dépassent pas un nombre d'opérations par seconde
+public class IoRateLimiter {
+
+    private final long intervalNanos;
+    private long nextFreeSlot = System.nanoTime();
+
+    public IoRateLimiter(double permitsPerSecond) {
+        this.intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond);
+    }
+
+    public synchronized void acquire() {
+        long now = System.nanoTime();
+        if (nextFreeSlot > now) {
+            LockSupport.parkNanos(nextFreeSlot - now);
+        }
+        // Pas de rattrapage après une pause : le débit reste lissé
+        nextFreeSlot = Math.max(nextFreeSlot, now) + intervalNanos;
+    }
+}
@@ -0,0 +1,94 @@
+package com.buy01.media.service;
+
+import com.buy01.media.model.Media;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Dernier accès par clé de stockage : noté en mémoire à chaque lecture, écrit en base par lots
+@Component
+@Slf4j
+public class MediaAccessTracker {
+
+    private static final int FLUSH_BATCH_SIZE = 500;
+
+    private final MongoTemplate mongoTemplate;
+    private final boolean enabled;
+
+    private final Map<String, Long> pendingAccesses = new ConcurrentHashMap<>();
+
+    public MediaAccessTracker(MongoTemplate mongoTemplate,
+                              @Value("${media.tiering.enabled:false}") boolean enabled) {
+        this.mongoTemplate = mongoTemplate;
+        this.enabled = enabled;
+    }
+
+    public void recordAccess(String key) {
+        if (enabled) {
+            pendingAccesses.put(key, System.currentTimeMillis());
+        }
+    }
+
+    // Accès pas encore écrits en base : le déplacement vers l'archive doit aussi en tenir compte
+    public boolean accessedSince(String key, long sinceMillis) {
+        Long lastAccess = pendingAccesses.get(key);
+        return lastAccess != null && lastAccess >= sinceMillis;
+    }
+
+    @Scheduled(fixedDelayString = "${media.tiering.access-flush-interval:PT5M}")
+    public void flush() {
+        if (pendingAccesses.isEmpty()) {
+            return;
+        }
+        try {
+            List<Map.Entry<String, Long>> batch = new ArrayList<>(FLUSH_BATCH_SIZE);
+            int flushed = 0;
+            for (Map.Entry<String, Long> entry : pendingAccesses.entrySet()) {
+                batch.add(Map.entry(entry.getKey(), entry.getValue()));
+                if (batch.size() == FLUSH_BATCH_SIZE) {
+                    flushed += write(batch);
+                    batch.clear();
+                }
+            }
+            if (!batch.isEmpty()) {
+                flushed += write(batch);
+            }
+            log.debug("Flushed last-access time of {} media file(s)", flushed);
+        } catch (Exception e) {
+            // Accès non retirés : réécrits au prochain flush ($max rend la répétition sans effet)
+            log.error("Failed to flush media access times", e);
+        }
+    }
+
+    // Retirés seulement une fois écrits ; remove(clé, valeur) : un accès arrivé entre-temps reste en attente
+    private int write(List<Map.Entry<String, Long>> batch) {
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Media.class);
+        for (Map.Entry<String, Long> entry : batch) {
+            // Un accès a remonté le fichier sur le volume chaud : il n'est plus archivé
+            bulk.updateMulti(
+                    Query.query(Criteria.where("imagePath").is("/uploads/" + entry.getKey())),
+                    new Update().max("lastAccessedAt", toLocalDateTime(entry.getValue())).unset("archivedAt"));
+        }
+        bulk.execute();
+        batch.forEach(entry -> pendingAccesses.remove(entry.getKey(), entry.getValue()));
+        return batch.size();
+    }
+
+    private static LocalDateTime toLocalDateTime(long millis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+    }
+}
@@ -0,0 +1,56 @@
+package com.buy01.media.service;
+
+import com.buy01.media.model.MediaBlob;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class MediaBlobService {
+
+    private final MongoTemplate mongoTemplate;
+
+    // Ajoute une référence au blob, en le créant s'il n'existe pas encore.
+    // Chaque création reçoit un nom de fichier neuf ("<empreinte>-<génération><ext>") : le fichier d'un blob
+    // dont la dernière référence vient d'être retirée peut être supprimé sans toucher celui d'un nouveau blob
+    public MediaBlob acquire(String digest, String fileExtension, long fileSize) {
+        Query query = Query.query(Criteria.where("_id").is(digest));
+        Update update = new Update()
+                .inc("refCount", 1)
+                .setOnInsert("fileName", digest + "-" + new ObjectId().toHexString() + fileExtension)
+                .setOnInsert("fileSize", fileSize)
+                .setOnInsert("createdAt", LocalDateTime.now());
+
+        MediaBlob blob = mongoTemplate.findAndModify(query, update,
+                FindAndModifyOptions.options().returnNew(true).upsert(true), MediaBlob.class);
+        log.debug("Blob {} now has {} reference(s)", digest, blob.getRefCount());
+        return blob;
+    }
+
+    // Retire une référence ; renvoie le blob s'il vient de perdre sa dernière référence.
+    // Son fichier peut alors être supprimé : un acquire ultérieur recrée un blob sous un autre nom
+    public Optional<MediaBlob> release(String digest) {
+        Query query = Query.query(Criteria.where("_id").is(digest));
+        MediaBlob blob = mongoTemplate.findAndModify(query, new Update().inc("refCount", -1),
+                FindAndModifyOptions.options().returnNew(true), MediaBlob.class);
+
+        if (blob == null || blob.getRefCount() > 0) {
+            return Optional.empty();
+        }
+
+        // Suppression conditionnelle : un upload concurrent a pu reprendre une référence entre-temps
+        Query unreferenced = Query.query(Criteria.where("_id").is(digest).and("refCount").lte(0));
+        return Optional.ofNullable(mongoTemplate.findAndRemove(unreferenced, MediaBlob.class));
+    }
+}
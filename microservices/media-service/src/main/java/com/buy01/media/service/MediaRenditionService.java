@@ -0,0 +1,199 @@
+package com.buy01.media.service;
+
+import com.buy01.media.model.Media;
+import com.buy01.media.storage.MediaStorage;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.ImageIO;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class MediaRenditionService {
+
+    private final MongoTemplate mongoTemplate;
+    private final MediaStorage mediaStorage;
+
+    @Value("${media.renditions.widths:128,400,1024}")
+    private int[] renditionWidths;
+
+    @Value("${media.image.max-pixels:40000000}")
+    private long maxPixels;
+
+    @Async("renditionExecutor")
+    public void generateRenditions(Media media) {
+        String format = formatFor(media.getContentType());
+        if (format == null) {
+            // Liste vide : l'original est définitif pour toutes les tailles
+            log.debug("No renditions for content type {}", media.getContentType());
+            saveRenditionWidths(media.getId(), List.of());
+            return;
+        }
+
+        try {
+            String fileName = MediaService.storageKey(media.getImagePath());
+            int[] widths = sortedWidths();
+            BoundedImageDecoder.DecodedImage decoded;
+            try (InputStream in = mediaStorage.open(fileName)) {
+                // Sous-échantillonné vers la plus grande déclinaison : inutile de décoder tous les pixels
+                decoded = BoundedImageDecoder.decode(in, maxPixels, widths.length == 0 ? 0 : widths[widths.length - 1]);
+            } catch (BoundedImageDecoder.ImageTooLargeException e) {
+                log.warn("No renditions for media {}: {}", media.getId(), e.getMessage());
+                saveRenditionWidths(media.getId(), List.of());
+                return;
+            }
+            if (decoded == null) {
+                log.warn("Unable to decode media {} for renditions", media.getId());
+                saveRenditionWidths(media.getId(), List.of());
+                return;
+            }
+            BufferedImage original = decoded.image();
+
+            List<Integer> generated = new ArrayList<>();
+            for (int width : widths) {
+                // Pas d'agrandissement : l'original sert au-delà de sa propre largeur
+                if (width >= decoded.sourceWidth()) {
+                    break;
+                }
+                String renditionKey = renditionFileName(fileName, width);
+                // Un blob dédupliqué peut déjà avoir ses déclinaisons en stockage
+                if (!mediaStorage.exists(renditionKey)) {
+                    write(resize(original, width), format, renditionKey);
+                }
+                generated.add(width);
+            }
+
+            saveRenditionWidths(media.getId(), generated);
+            log.info("Generated renditions {} for media {}", generated, media.getId());
+
+        } catch (Exception e) {
+            log.error("Failed to generate renditions for media {}", media.getId(), e);
+        }
+    }
+
+    // Plus petite déclinaison couvrant la largeur demandée, sinon l'original
+    public String selectFileName(String fileName, List<Integer> availableWidths, Integer requestedWidth) {
+        if (requestedWidth == null || availableWidths == null || availableWidths.isEmpty()) {
+            return fileName;
+        }
+        return availableWidths.stream()
+                .filter(width -> width >= requestedWidth)
+                .min(Integer::compare)
+                .map(width -> renditionFileName(fileName, width))
+                .orElse(fileName);
+    }
+
+    // Même choix à partir des largeurs configurées, pour servir un fichier sans lire son document
+    public String selectConfiguredFileName(String fileName, Integer requestedWidth) {
+        if (requestedWidth == null) {
+            return fileName;
+        }
+        for (int width : sortedWidths()) {
+            if (width >= requestedWidth) {
+                return renditionFileName(fileName, width);
+            }
+        }
+        return fileName;
+    }
+
+    public void deleteRenditions(String fileName, List<Integer> availableWidths) throws IOException {
+        if (availableWidths == null) {
+            return;
+        }
+        for (int width : availableWidths) {
+            mediaStorage.delete(renditionFileName(fileName, width));
+        }
+    }
+
+    // Toutes les largeurs configurées, plus celles connues du document (configuration modifiée depuis)
+    public void deleteAllRenditions(String fileName, List<Integer> knownWidths) throws IOException {
+        Set<Integer> widths = new TreeSet<>(knownWidths == null ? List.of() : knownWidths);
+        for (int width : renditionWidths) {
+            widths.add(width);
+        }
+        deleteRenditions(fileName, List.copyOf(widths));
+    }
+
+    public static String renditionFileName(String fileName, int width) {
+        int dot = fileName.lastIndexOf('.');
+        return dot < 0
+                ? fileName + "_" + width
+                : fileName.substring(0, dot) + "_" + width + fileName.substring(dot);
+    }
+
+    private void saveRenditionWidths(String mediaId, List<Integer> widths) {
+        mongoTemplate.updateFirst(
+                Query.query(Criteria.where("_id").is(mediaId)),
+                new Update().set("renditionWidths", widths),
+                Media.class);
+    }
+
+    private int[] sortedWidths() {
+        int[] widths = renditionWidths.clone();
+        Arrays.sort(widths);
+        return widths;
+    }
+
+    // GIF (animations) et WebP (pas de codec ImageIO) restent servis en original
+    private static String formatFor(String contentType) {
+        if ("image/jpeg".equals(contentType) || "image/jpg".equals(contentType)) {
+            return "jpg";
+        }
+        if ("image/png".equals(contentType)) {
+            return "png";
+        }
+        return null;
+    }
+
+    private static BufferedImage resize(BufferedImage source, int targetWidth) {
+        int type = source.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+        BufferedImage current = source;
+        int width = source.getWidth();
+        int height = source.getHeight();
+
+        // Réductions successives par moitié : meilleure qualité qu'un seul passage bilinéaire
+        do {
+            width = Math.max(targetWidth, width / 2);
+            height = Math.max(1, (int) Math.round((double) source.getHeight() * width / source.getWidth()));
+
+            BufferedImage step = new BufferedImage(width, height, type);
+            Graphics2D graphics = step.createGraphics();
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(current, 0, 0, width, height, null);
+            graphics.dispose();
+            current = step;
+        } while (width > targetWidth);
+
+        return current;
+    }
+
+    // Les miniatures sont petites : encodées en mémoire puis écrites d'un bloc
+    private void write(BufferedImage image, String format, String key) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        if (!ImageIO.write(image, format, buffer)) {
+            throw new IOException("No ImageIO writer for format " + format);
+        }
+        mediaStorage.write(key, new ByteArrayInputStream(buffer.toByteArray()));
+    }
+}
@@ -1,28 +1,63 @@
 package com.buy01.media.service;
 
+import com.buy01.media.cache.HotMediaCache;
+import com.buy01.media.dto.CursorPage;
+import com.buy01.media.dto.MediaBatchItemResult;
+import com.buy01.media.dto.MediaBatchUploadResponse;
 import com.buy01.media.dto.MediaResponse;
 import com.buy01.media.dto.MediaUploadResponse;
 import com.buy01.media.exception.BadRequestException;
+import com.buy01.media.exception.ConflictException;
 import com.buy01.media.exception.ResourceNotFoundException;
 import com.buy01.media.exception.UnauthorizedException;
 import com.buy01.media.model.Media;
+import com.buy01.media.model.MediaBlob;
+import com.buy01.media.model.MediaStatus;
 import com.buy01.media.repository.MediaRepository;
+import com.buy01.media.storage.MediaStorage;
+import com.buy01.media.storage.StoredFile;
+import com.mongodb.bulk.BulkWriteError;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.bson.types.ObjectId;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 import java.util.stream.Collectors;
 
 @Service
@@ -32,11 +67,29 @@ public class MediaService {
 
     private final MediaRepository mediaRepository;
     private final KafkaTemplate<String, String> kafkaTemplate;
+    private final MediaBlobService mediaBlobService;
+    private final MediaRenditionService mediaRenditionService;
+    private final MediaStorage mediaStorage;
+    private final HotMediaCache hotMediaCache;
+    private final ImageOptimizer imageOptimizer;
+    private final ImageMetadataReader imageMetadataReader;
+    private final MongoTemplate mongoTemplate;
 
-    @Value("${media.upload.dir}")
-    private String uploadDir;
+    // Qualifier recopié sur le paramètre du constructeur généré (voir lombok.config)
+    @Qualifier("mediaIoExecutor")
+    private final Executor mediaIoExecutor;
+
+    @Value("${media.dedup.enabled:false}")
+    private boolean contentAddressed;
+
+    @Value("${media.renditions.settle-time:PT10M}")
+    private Duration renditionSettleTime;
 
     private static final long MAX_FILE_SIZE = 2 * 1024 * 1024; // 2MB
+    private static final int MAX_BATCH_FILES = 10;
+    private static final int MAX_BULK_IDS = 200;
+    private static final String FILES_URL_PREFIX = "/api/media/files/";
+    static final List<MediaStatus> UNAVAILABLE_STATUSES = List.of(MediaStatus.PENDING, MediaStatus.FAILED);
     private static final List<String> ALLOWED_CONTENT_TYPES = Arrays.asList(
         "image/jpeg", "image/jpg", "image/png", "image/gif", "image/webp"
     );
@@ -44,98 +97,434 @@ public class MediaService {
     public MediaUploadResponse uploadMedia(String userId, MultipartFile file, String productId) {
         log.info("Uploading media for user: {} and product: {}", userId, productId);
 
-        // Validation de la taille du fichier
-        if (file.getSize() > MAX_FILE_SIZE) {
+        Media media = storeMedia(userId, file, productId);
+        return persistUploaded(media);
+    }
+
+    // Upload brut (corps de requête = image) : pas de fichier temporaire multipart intermédiaire
+    public MediaUploadResponse uploadMediaStream(String userId, InputStream body, long contentLength,
+                                                 String fileName, String productId) {
+        log.info("Streaming media upload for user: {} and product: {}", userId, productId);
+
+        // Rejet immédiat si la taille annoncée dépasse déjà la limite
+        if (contentLength > MAX_FILE_SIZE) {
             throw new BadRequestException("File size exceeds maximum limit of 2MB");
         }
 
-        // Validation du type de fichier
-        String contentType = file.getContentType();
-        if (contentType == null || !ALLOWED_CONTENT_TYPES.contains(contentType)) {
-            throw new BadRequestException("Invalid file type. Only images are allowed (JPEG, PNG, GIF, WebP)");
+        Media media;
+        try {
+            media = storeStream(userId, body, fileName, productId);
+        } catch (IOException e) {
+            log.error("Error uploading file", e);
+            throw new RuntimeException("Failed to upload file: " + e.getMessage());
         }
+        return persistUploaded(media);
+    }
 
-        // Validation que le fichier n'est pas vide
-        if (file.isEmpty()) {
-            throw new BadRequestException("File is empty");
-        }
+    // Fichier déjà assemblé sur disque (upload par morceaux) : déplacé dans le stockage, jamais recopié en mémoire
+    public MediaUploadResponse uploadAssembledFile(String userId, Path file, String fileName, String productId) {
+        return uploadStagedFile(null, userId, file, fileName, productId);
+    }
 
+    // Variante à identifiant imposé : l'upload asynchrone a déjà communiqué l'id au client
+    public MediaUploadResponse uploadStagedFile(String mediaId, String userId, Path file, String fileName,
+                                                String productId) {
+        log.info("Storing assembled upload for user: {} and product: {}", userId, productId);
+
+        Media media;
         try {
-            // Créer le dossier d'upload s'il n'existe pas
-            Path uploadPath = Paths.get(uploadDir);
-            if (!Files.exists(uploadPath)) {
-                Files.createDirectories(uploadPath);
+            byte[] header;
+            try (InputStream in = Files.newInputStream(file)) {
+                header = in.readNBytes(ImageTypeDetector.HEADER_SIZE);
+            }
+            String contentType = ImageTypeDetector.detect(header);
+            if (contentType == null) {
+                throw new BadRequestException("Invalid file type. Only images are allowed (JPEG, PNG, GIF, WebP)");
             }
 
-            // Générer un nom de fichier unique
-            String originalFilename = file.getOriginalFilename();
-            String fileExtension = originalFilename != null && originalFilename.contains(".")
-                ? originalFilename.substring(originalFilename.lastIndexOf("."))
-                : ".jpg";
-            String uniqueFileName = UUID.randomUUID().toString() + fileExtension;
-
-            // Sauvegarder le fichier
-            Path filePath = uploadPath.resolve(uniqueFileName);
-            Files.copy(file.getInputStream(), filePath, StandardCopyOption.REPLACE_EXISTING);
+            String fileExtension = ImageTypeDetector.extensionFor(contentType);
 
-            // Créer l'entité Media
-            Media media = new Media();
-            media.setFileName(originalFilename);
+            media = new Media();
+            media.setId(mediaId);
+            media.setFileName(fileName);
             media.setContentType(contentType);
-            media.setFileSize(file.getSize());
-            media.setImagePath("/uploads/" + uniqueFileName);
             media.setProductId(productId);
             media.setUserId(userId);
             media.setCreatedAt(LocalDateTime.now());
 
-            media = mediaRepository.save(media);
-            log.info("Media uploaded successfully with id: {}", media.getId());
+            if (contentAddressed) {
+                String contentHash = hashFile(file);
+                String tempKey = "upload-" + UUID.randomUUID() + ".tmp";
+                try {
+                    long fileSize = mediaStorage.importFile(tempKey, file);
+                    attachBlob(tempKey, contentHash, fileExtension, fileSize, media);
+                } finally {
+                    mediaStorage.delete(tempKey);
+                }
+            } else {
+                String uniqueFileName = UUID.randomUUID().toString() + fileExtension;
+                optimizeStoredFile(uniqueFileName, mediaStorage.importFile(uniqueFileName, file), media);
+                media.setImagePath("/uploads/" + uniqueFileName);
+            }
+            readImageMetadata(media);
+        } catch (IOException e) {
+            log.error("Error storing assembled file", e);
+            throw new RuntimeException("Failed to upload file: " + e.getMessage());
+        }
+        return mediaId == null ? persistUploaded(media) : persistStaged(media);
+    }
 
-            // Envoyer événement Kafka
+    public MediaBatchUploadResponse uploadMediaBatch(String userId, List<MultipartFile> files, String productId) {
+        log.info("Uploading batch of {} media for user: {} and product: {}", files.size(), userId, productId);
+
+        if (files.isEmpty()) {
+            throw new BadRequestException("No files provided");
+        }
+        if (files.size() > MAX_BATCH_FILES) {
+            throw new BadRequestException("A batch cannot contain more than " + MAX_BATCH_FILES + " files");
+        }
+
+        // Validation et écriture disque en parallèle, un échec n'annule pas les autres fichiers
+        List<CompletableFuture<Media>> stored = files.stream()
+                .map(file -> CompletableFuture.supplyAsync(() -> storeMedia(userId, file, productId), mediaIoExecutor))
+                .collect(Collectors.toList());
+
+        List<MediaBatchItemResult> results = new ArrayList<>();
+        List<Media> toInsert = new ArrayList<>();
+        for (int i = 0; i < files.size(); i++) {
+            String fileName = files.get(i).getOriginalFilename();
+            try {
+                toInsert.add(stored.get(i).join());
+                results.add(new MediaBatchItemResult(i, fileName, true, null, null));
+            } catch (CompletionException e) {
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                String error = cause instanceof BadRequestException ? cause.getMessage() : "Failed to store file";
+                log.warn("Batch item {} ({}) rejected: {}", i, fileName, cause.getMessage());
+                results.add(new MediaBatchItemResult(i, fileName, false, null, error));
+            }
+        }
+
+        List<Media> inserted = new ArrayList<>();
+        if (!toInsert.isEmpty()) {
+            // Un seul insertMany non ordonné pour tout le lot : un document en échec n'empêche pas les autres
+            Set<Integer> failed = insertBatch(toInsert);
+
+            Iterator<Media> storedMedia = toInsert.iterator();
+            int position = 0;
+            for (MediaBatchItemResult result : results) {
+                if (!result.isSuccess()) {
+                    continue;
+                }
+                Media media = storedMedia.next();
+                if (failed.contains(position++)) {
+                    discardStoredFile(media);
+                    log.warn("Batch item {} ({}) could not be saved", result.getIndex(), result.getFileName());
+                    result.setSuccess(false);
+                    result.setError("Failed to save file");
+                } else {
+                    inserted.add(media);
+                    result.setMedia(mapToUploadResponse(media));
+                }
+            }
+        }
+
+        if (!inserted.isEmpty()) {
+            // Un seul événement Kafka pour le lot
             try {
-                String message = String.format("MEDIA_UPLOADED:%s:%s:%s",
-                    media.getId(), userId, productId);
+                String ids = inserted.stream().map(Media::getId).collect(Collectors.joining(","));
+                String message = String.format("MEDIA_BATCH_UPLOADED:%s:%s:%s", userId, productId, ids);
                 kafkaTemplate.send("media-events", message);
             } catch (Exception e) {
                 log.error("Failed to send Kafka event", e);
             }
 
-            return mapToUploadResponse(media);
+            inserted.forEach(this::scheduleRenditions);
+        }
+
+        log.info("Batch upload done: {} stored, {} rejected", inserted.size(), files.size() - inserted.size());
+        return new MediaBatchUploadResponse(inserted.size(), files.size() - inserted.size(), results);
+    }
+
+    // Positions (dans le lot) des documents refusés par Mongo. Identifiants attribués avant l'envoi :
+    // l'insertion en masse ne les reporte pas sur les objets. Autre échec (connexion perdue…) : on ne sait
+    // pas ce qui a été écrit, tout le lot est annulé
+    private Set<Integer> insertBatch(List<Media> batch) {
+        batch.stream().filter(media -> media.getId() == null)
+                .forEach(media -> media.setId(new ObjectId().toHexString()));
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Media.class);
+        bulk.insert(batch);
+        try {
+            bulk.execute();
+            return Set.of();
+        } catch (BulkOperationException e) {
+            return e.getErrors().stream().map(BulkWriteError::getIndex).collect(Collectors.toSet());
+        } catch (RuntimeException e) {
+            batch.forEach(this::discardStoredFile);
+            throw e;
+        }
+    }
+
+    private MediaUploadResponse persistUploaded(Media media) {
+        try {
+            media = mediaRepository.save(media);
+        } catch (RuntimeException e) {
+            discardStoredFile(media);
+            throw e;
+        }
+        return published(media);
+    }
+
+    // Upload asynchrone : le document réservé n'est remplacé que s'il est encore PENDING. Marqué FAILED
+    // (balayage des uploads interrompus) ou purgé entre-temps, il n'est pas ressuscité en média prêt
+    private MediaUploadResponse persistStaged(Media media) {
+        Media reserved;
+        try {
+            reserved = mongoTemplate.findAndReplace(
+                    Query.query(Criteria.where("_id").is(media.getId()).and("status").is(MediaStatus.PENDING)),
+                    media);
+        } catch (RuntimeException e) {
+            discardStoredFile(media);
+            throw e;
+        }
+        if (reserved == null) {
+            discardStoredFile(media);
+            log.warn("Async upload {} is no longer pending, stored file discarded", media.getId());
+            throw new ConflictException("Upload " + media.getId() + " is no longer pending");
+        }
+        return published(media);
+    }
+
+    private MediaUploadResponse published(Media media) {
+        log.info("Media uploaded successfully with id: {}", media.getId());
+
+        // Envoyer événement Kafka
+        try {
+            String message = String.format("MEDIA_UPLOADED:%s:%s:%s",
+                media.getId(), media.getUserId(), media.getProductId());
+            kafkaTemplate.send("media-events", message);
+        } catch (Exception e) {
+            log.error("Failed to send Kafka event", e);
+        }
+
+        // Miniatures générées en arrière-plan, l'original est servi en attendant
+        scheduleRenditions(media);
 
+        return mapToUploadResponse(media);
+    }
+
+    // Le média est déjà enregistré : une file de miniatures pleine ne doit pas faire échouer l'upload.
+    // Sans déclinaisons, l'original est servi pour toutes les tailles (non immuable tant qu'il est récent)
+    private void scheduleRenditions(Media media) {
+        try {
+            mediaRenditionService.generateRenditions(media);
+        } catch (TaskRejectedException e) {
+            log.warn("Rendition queue full, renditions skipped for media {}", media.getId());
+        }
+    }
+
+    // Valide le fichier et l'écrit dans le stockage ; le Media renvoyé n'est pas encore persisté
+    private Media storeMedia(String userId, MultipartFile file, String productId) {
+        checkMultipart(file);
+
+        try (InputStream in = file.getInputStream()) {
+            return storeStream(userId, in, file.getOriginalFilename(), productId);
         } catch (IOException e) {
             log.error("Error uploading file", e);
             throw new RuntimeException("Failed to upload file: " + e.getMessage());
         }
     }
 
+    // Contrôles faits avant d'accepter un upload asynchrone : rien n'est écrit dans le stockage
+    public void validateUpload(MultipartFile file) {
+        checkMultipart(file);
+
+        try (InputStream in = file.getInputStream()) {
+            if (ImageTypeDetector.detect(in.readNBytes(ImageTypeDetector.HEADER_SIZE)) == null) {
+                throw new BadRequestException("Invalid file type. Only images are allowed (JPEG, PNG, GIF, WebP)");
+            }
+        } catch (IOException e) {
+            log.error("Error reading uploaded file", e);
+            throw new RuntimeException("Failed to upload file: " + e.getMessage());
+        }
+    }
+
+    private void checkMultipart(MultipartFile file) {
+        // Validation de la taille du fichier
+        if (file.getSize() > MAX_FILE_SIZE) {
+            throw new BadRequestException("File size exceeds maximum limit of 2MB");
+        }
+
+        // Validation du type de fichier
+        String contentType = file.getContentType();
+        if (contentType == null || !ALLOWED_CONTENT_TYPES.contains(contentType)) {
+            throw new BadRequestException("Invalid file type. Only images are allowed (JPEG, PNG, GIF, WebP)");
+        }
+
+        // Validation que le fichier n'est pas vide
+        if (file.isEmpty()) {
+            throw new BadRequestException("File is empty");
+        }
+    }
+
+    // Lit le flux une seule fois : type vérifié sur les octets magiques, taille plafonnée pendant l'écriture
+    private Media storeStream(String userId, InputStream body, String originalFilename, String productId)
+            throws IOException {
+        byte[] header = body.readNBytes(ImageTypeDetector.HEADER_SIZE);
+        if (header.length == 0) {
+            throw new BadRequestException("File is empty");
+        }
+
+        String contentType = ImageTypeDetector.detect(header);
+        if (contentType == null) {
+            throw new BadRequestException("Invalid file type. Only images are allowed (JPEG, PNG, GIF, WebP)");
+        }
+
+        InputStream content = new SizeLimitedInputStream(
+                new SequenceInputStream(new ByteArrayInputStream(header), body), MAX_FILE_SIZE);
+
+        // Extension dérivée du type détecté : l'URL du fichier suffit à connaître son Content-Type
+        String fileExtension = ImageTypeDetector.extensionFor(contentType);
+
+        // Créer l'entité Media
+        Media media = new Media();
+        media.setFileName(originalFilename);
+        media.setContentType(contentType);
+        media.setProductId(productId);
+        media.setUserId(userId);
+        media.setCreatedAt(LocalDateTime.now());
+
+        if (contentAddressed) {
+            storeContentAddressed(content, fileExtension, media);
+        } else {
+            // Générer un nom de fichier unique
+            String uniqueFileName = UUID.randomUUID().toString() + fileExtension;
+
+            // Écriture directe à l'emplacement final
+            optimizeStoredFile(uniqueFileName, mediaStorage.write(uniqueFileName, content), media);
+            media.setImagePath("/uploads/" + uniqueFileName);
+        }
+        readImageMetadata(media);
+        return media;
+    }
+
     public MediaResponse getMediaById(String mediaId) {
         log.info("Fetching media with id: {}", mediaId);
         Media media = mediaRepository.findById(mediaId)
+                .filter(MediaService::isAvailable)
                 .orElseThrow(() -> new ResourceNotFoundException("Media not found with id: " + mediaId));
 
         return mapToResponse(media);
     }
 
-    public List<MediaResponse> getMediaByProductId(String productId) {
+    // Clé à servir : la déclinaison la plus proche de la taille demandée, ou l'original
+    public String resolveStorageKey(MediaResponse media, Integer requestedWidth) {
+        String storageKey = storageKey(media.getImagePath());
+        String rendition = mediaRenditionService.selectFileName(storageKey, media.getRenditionWidths(), requestedWidth);
+        return mediaStorage.exists(rendition) ? rendition : storageKey;
+    }
+
+    public record ResolvedFile(String storageKey, String contentType, boolean immutable) {
+    }
+
+    // Résolution sans base : le type vient de l'extension, la déclinaison de la présence du fichier
+    public ResolvedFile resolveFile(String key, Integer requestedWidth) {
+        String contentType = ImageTypeDetector.contentTypeForKey(key);
+        if (contentType == null) {
+            throw new ResourceNotFoundException("Media file not found: " + key);
+        }
+
+        String rendition = mediaRenditionService.selectConfiguredFileName(key, requestedWidth);
+        if (rendition.equals(key) || mediaStorage.exists(rendition)) {
+            return new ResolvedFile(rendition, contentType, true);
+        }
+
+        // Déclinaison absente : pas encore générée, ou inutile (original plus étroit que la taille)
+        boolean settled;
+        try {
+            settled = mediaStorage.stat(key)
+                    .map(file -> System.currentTimeMillis() - file.lastModified() > renditionSettleTime.toMillis())
+                    .orElse(true);
+        } catch (IOException e) {
+            // Âge inconnu : réponse non immuable, le client revalidera
+            log.warn("Could not stat media file {}", key, e);
+            settled = false;
+        }
+        return new ResolvedFile(key, contentType, settled);
+    }
+
+    // Clé du cache chaud "<clé>|<fichier servi>" : toutes les tailles demandées qui mènent au même fichier partagent l'entrée
+    public String hotCacheKey(String key, Integer requestedWidth) {
+        return key + "|" + mediaRenditionService.selectConfiguredFileName(key, requestedWidth);
+    }
+
+    // URL immuable du fichier ; les anciennes clés à extension inconnue restent servies par identifiant
+    public static String fileUrl(String mediaId, String imagePath) {
+        String key = storageKey(imagePath);
+        return ImageTypeDetector.contentTypeForKey(key) != null
+                ? FILES_URL_PREFIX + key
+                : "/api/media/" + mediaId + "/file";
+    }
+
+    public CursorPage<MediaResponse> getMediaByProductId(String productId, String cursor, Integer limit) {
         log.info("Fetching media for product: {}", productId);
-        return mediaRepository.findByProductId(productId)
+        return findPage(Criteria.where("productId").is(productId), cursor, limit);
+    }
+
+    // Une seule requête $in pour toute une grille de produits, résultats groupés par produit
+    public Map<String, List<MediaResponse>> getMediaByProductIds(List<String> productIds) {
+        Set<String> ids = distinctIds(productIds);
+        log.info("Fetching media for {} products", ids.size());
+
+        Map<String, List<MediaResponse>> grouped = new LinkedHashMap<>();
+        ids.forEach(productId -> grouped.put(productId, new ArrayList<>()));
+        mediaRepository.findByProductIdInAndStatusNotIn(ids, UNAVAILABLE_STATUSES)
+                .forEach(media -> grouped.get(media.getProductId()).add(mapToResponse(media)));
+        return grouped;
+    }
+
+    public List<MediaResponse> getMediaByIds(List<String> mediaIds) {
+        Set<String> ids = distinctIds(mediaIds);
+        log.info("Fetching {} media by id", ids.size());
+
+        // Les ids inconnus sont simplement absents du résultat
+        return mediaRepository.findAllById(ids)
                 .stream()
+                .filter(MediaService::isAvailable)
                 .map(this::mapToResponse)
                 .collect(Collectors.toList());
     }
 
-    public List<MediaResponse> getMediaByUserId(String userId) {
+    private Set<String> distinctIds(List<String> ids) {
+        Set<String> distinct = new LinkedHashSet<>();
+        if (ids != null) {
+            ids.stream().filter(id -> id != null && !id.isBlank()).forEach(distinct::add);
+        }
+        if (distinct.isEmpty()) {
+            throw new BadRequestException("At least one id is required");
+        }
+        if (distinct.size() > MAX_BULK_IDS) {
+            throw new BadRequestException("Cannot request more than " + MAX_BULK_IDS + " ids at once");
+        }
+        return distinct;
+    }
+
+    public CursorPage<MediaResponse> getMediaByUserId(String userId, String cursor, Integer limit) {
         log.info("Fetching media for user: {}", userId);
-        return mediaRepository.findByUserId(userId)
-                .stream()
-                .map(this::mapToResponse)
-                .collect(Collectors.toList());
+        return findPage(Criteria.where("userId").is(userId), cursor, limit);
+    }
+
+    // Servi par les index composés (productId|userId, createdAt, _id) déclarés sur Media
+    private CursorPage<MediaResponse> findPage(Criteria filter, String cursor, Integer limit) {
+        Criteria available = filter.and("status").nin(UNAVAILABLE_STATUSES);
+        List<Media> rows = mongoTemplate.find(CursorPagination.query(available, cursor, limit), Media.class);
+        return CursorPagination.page(rows, limit, Media::getCreatedAt, Media::getId, this::mapToResponse);
     }
 
     public void deleteMedia(String userId, String mediaId) {
         log.info("Deleting media {} by user {}", mediaId, userId);
 
         Media media = mediaRepository.findById(mediaId)
+                .filter(MediaService::isAvailable)
                 .orElseThrow(() -> new ResourceNotFoundException("Media not found with id: " + mediaId));
 
         // Vérifier que l'utilisateur est le propriétaire
@@ -144,12 +533,16 @@ public class MediaService {
         }
 
         try {
-            // Supprimer le fichier physique
-            Path filePath = Paths.get(uploadDir).resolve(media.getImagePath().replace("/uploads/", ""));
-            Files.deleteIfExists(filePath);
+            // Supprimer le fichier physique (un blob partagé n'est supprimé qu'à sa dernière référence)
+            if (media.getContentHash() != null) {
+                releaseBlob(media);
+            } else {
+                deleteStoredFiles(media, storageKey(media.getImagePath()));
+            }
 
             // Supprimer de la base de données
             mediaRepository.delete(media);
+            hotMediaCache.invalidate(storageKey(media.getImagePath()));
             log.info("Media deleted successfully: {}", mediaId);
 
             // Envoyer événement Kafka
@@ -166,6 +559,116 @@ public class MediaService {
         }
     }
 
+    // Calcule l'empreinte pendant l'écriture, puis rattache le Media au blob partagé
+    private void storeContentAddressed(InputStream content, String fileExtension, Media media) throws IOException {
+        String tempKey = "upload-" + UUID.randomUUID() + ".tmp";
+        try {
+            MessageDigest digest = newSha256();
+            long fileSize = mediaStorage.write(tempKey, new DigestInputStream(content, digest));
+            attachBlob(tempKey, HexFormat.of().formatHex(digest.digest()), fileExtension, fileSize, media);
+        } finally {
+            mediaStorage.delete(tempKey);
+        }
+    }
+
+    // Rattache le contenu écrit sous tempKey au blob de même empreinte
+    private void attachBlob(String tempKey, String contentHash, String fileExtension, long fileSize, Media media)
+            throws IOException {
+        MediaBlob blob = mediaBlobService.acquire(contentHash, fileExtension, fileSize);
+
+        // Premier propriétaire du blob (ou fichier perdu) : on optimise puis on publie le contenu
+        if (blob.getRefCount() == 1 || !mediaStorage.exists(blob.getFileName())) {
+            try {
+                imageOptimizer.optimize(tempKey, media.getContentType());
+                mediaStorage.move(tempKey, blob.getFileName());
+            } catch (IOException | RuntimeException e) {
+                // Aucun Media ne portera cette référence : rendue, sinon le blob ne serait jamais libéré
+                mediaBlobService.release(contentHash);
+                throw e;
+            }
+        } else {
+            log.info("Duplicate upload detected, reusing blob {}", contentHash);
+        }
+
+        // L'empreinte porte sur l'original ; la taille servie est celle du fichier publié
+        long storedSize = mediaStorage.stat(blob.getFileName()).map(StoredFile::size).orElse(fileSize);
+        media.setContentHash(contentHash);
+        media.setFileSize(storedSize);
+        media.setBytesSaved(fileSize - storedSize);
+        media.setImagePath("/uploads/" + blob.getFileName());
+    }
+
+    // Dimensions et aperçu calculés sur le fichier finalement stocké (donc après optimisation)
+    private void readImageMetadata(Media media) {
+        ImageMetadataReader.ImageMetadata metadata =
+                imageMetadataReader.read(storageKey(media.getImagePath()), media.getContentType());
+        media.setWidth(metadata.width());
+        media.setHeight(metadata.height());
+        media.setPlaceholder(metadata.placeholder());
+    }
+
+    // Passe d'optimisation avant publication : aucun document ne référence encore le fichier
+    private void optimizeStoredFile(String key, long originalSize, Media media) {
+        long saved = imageOptimizer.optimize(key, media.getContentType());
+        media.setFileSize(originalSize - saved);
+        media.setBytesSaved(saved);
+    }
+
+    private void releaseBlob(Media media) throws IOException {
+        Optional<MediaBlob> released = mediaBlobService.release(media.getContentHash());
+        if (released.isPresent()) {
+            // Les déclinaisons du blob ont pu être générées par un autre Media que celui-ci
+            String fileName = released.get().getFileName();
+            mediaStorage.delete(fileName);
+            mediaRenditionService.deleteAllRenditions(fileName, media.getRenditionWidths());
+            log.info("Last reference to blob {} removed, file deleted", media.getContentHash());
+        }
+    }
+
+    // Annule l'écriture d'un fichier dont le document n'a pas pu être enregistré
+    private void discardStoredFile(Media media) {
+        try {
+            if (media.getContentHash() != null) {
+                releaseBlob(media);
+            } else {
+                mediaStorage.delete(storageKey(media.getImagePath()));
+            }
+        } catch (IOException e) {
+            log.warn("Failed to clean up stored file {}", media.getImagePath(), e);
+        }
+    }
+
+    private void deleteStoredFiles(Media media, String storageKey) throws IOException {
+        mediaStorage.delete(storageKey);
+        mediaRenditionService.deleteRenditions(storageKey, media.getRenditionWidths());
+    }
+
+    // Document réservé par un upload asynchrone pas encore (ou jamais) enregistré : aucun fichier derrière
+    static boolean isAvailable(Media media) {
+        return media.getStatus() == null || media.getStatus() == MediaStatus.READY;
+    }
+
+    // imagePath est exposé sous la forme "/uploads/<clé>"
+    public static String storageKey(String imagePath) {
+        return imagePath.replace("/uploads/", "");
+    }
+
+    private static String hashFile(Path file) throws IOException {
+        MessageDigest digest = newSha256();
+        try (InputStream in = new DigestInputStream(Files.newInputStream(file), digest)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
     private MediaUploadResponse mapToUploadResponse(Media media) {
         return new MediaUploadResponse(
             media.getId(),
@@ -173,6 +676,10 @@ public class MediaService {
             media.getContentType(),
             media.getFileSize(),
             media.getImagePath(),
+            fileUrl(media.getId(), media.getImagePath()),
+            media.getWidth(),
+            media.getHeight(),
+            media.getPlaceholder(),
             media.getProductId(),
             media.getCreatedAt()
         );
@@ -185,6 +692,11 @@ public class MediaService {
         response.setContentType(media.getContentType());
         response.setFileSize(media.getFileSize());
         response.setImagePath(media.getImagePath());
+        response.setFileUrl(fileUrl(media.getId(), media.getImagePath()));
+        response.setWidth(media.getWidth());
+        response.setHeight(media.getHeight());
+        response.setPlaceholder(media.getPlaceholder());
+        response.setRenditionWidths(media.getRenditionWidths());
         response.setProductId(media.getProductId());
         response.setUserId(media.getUserId());
         response.setCreatedAt(media.getCreatedAt());
@@ -0,0 +1,145 @@
+package com.buy01.media.service;
+
+import com.buy01.media.model.Media;
+import com.buy01.media.storage.DelegatingMediaStorage;
+import com.buy01.media.storage.MediaStorage;
+import com.buy01.media.storage.StoredFile;
+import com.buy01.media.storage.TieredMediaStorage;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Optional;
+
+// Descend dans l'archive les fichiers non lus depuis cold-after, pour garder le volume chaud dans le page cache
+@Component
+@ConditionalOnProperty(name = "media.tiering.enabled", havingValue = "true")
+@Slf4j
+public class MediaTierMover {
+
+    private final MediaStorage mediaStorage;
+    private final MongoTemplate mongoTemplate;
+    private final MediaAccessTracker mediaAccessTracker;
+    private final Duration coldAfter;
+    private final int batchSize;
+    private final double maxOperationsPerSecond;
+
+    private final Counter demotedFiles;
+    private final Counter demotedBytes;
+
+    public MediaTierMover(MediaStorage mediaStorage,
+                          MongoTemplate mongoTemplate,
+                          MediaAccessTracker mediaAccessTracker,
+                          MeterRegistry meterRegistry,
+                          @Value("${media.tiering.cold-after:P30D}") Duration coldAfter,
+                          @Value("${media.tiering.batch-size:500}") int batchSize,
+                          @Value("${media.tiering.max-operations-per-second:50}") double maxOperationsPerSecond) {
+        this.mediaStorage = mediaStorage;
+        this.mongoTemplate = mongoTemplate;
+        this.mediaAccessTracker = mediaAccessTracker;
+        this.coldAfter = coldAfter;
+        this.batchSize = batchSize;
+        this.maxOperationsPerSecond = maxOperationsPerSecond;
+
+        this.demotedFiles = Counter.builder("media.tiering.demoted.files").register(meterRegistry);
+        this.demotedBytes = Counter.builder("media.tiering.demoted.bytes").baseUnit("bytes").register(meterRegistry);
+    }
+
+    @Scheduled(initialDelayString = "${media.tiering.initial-delay:PT15M}", fixedDelayString = "${media.tiering.interval:PT6H}")
+    public void demoteColdFiles() {
+        Optional<TieredMediaStorage> tiered = DelegatingMediaStorage.unwrap(mediaStorage, TieredMediaStorage.class);
+        if (tiered.isEmpty()) {
+            log.warn("Media tiering enabled but storage has no archive tier, nothing to do");
+            return;
+        }
+
+        IoRateLimiter limiter = new IoRateLimiter(maxOperationsPerSecond);
+        LocalDateTime cutoff = LocalDateTime.now().minus(coldAfter);
+        long cutoffMillis = cutoff.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        long start = System.currentTimeMillis();
+        int demoted = 0;
+        String lastId = null;
+
+        try {
+            while (true) {
+                List<Media> batch = mongoTemplate.find(coldMediaQuery(cutoff, lastId), Media.class);
+                if (batch.isEmpty()) {
+                    break;
+                }
+                for (Media media : batch) {
+                    String key = MediaService.storageKey(media.getImagePath());
+                    if (mediaAccessTracker.accessedSince(key, cutoffMillis)) {
+                        continue;
+                    }
+                    limiter.acquire();
+                    demoted += demote(tiered.get(), key, media.getRenditionWidths());
+                    markArchived(media.getImagePath());
+                }
+                lastId = batch.get(batch.size() - 1).getId();
+            }
+            log.info("Media tier mover moved {} file(s) to the archive in {} ms",
+                    demoted, System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.error("Media tier mover run failed", e);
+        }
+    }
+
+    // L'original et ses miniatures partent ensemble ; renvoie le nombre de fichiers déplacés
+    private int demote(TieredMediaStorage storage, String key, List<Integer> renditionWidths) throws IOException {
+        int moved = 0;
+        // stat seulement sur le volume chaud : sur un fichier archivé, il le ferait remonter
+        if (storage.isHot(key)) {
+            long size = storage.stat(key).map(StoredFile::size).orElse(0L);
+            if (storage.demote(key)) {
+                demotedBytes.increment(size);
+                moved++;
+            }
+        }
+        if (renditionWidths != null) {
+            for (int width : renditionWidths) {
+                if (storage.demote(MediaRenditionService.renditionFileName(key, width))) {
+                    moved++;
+                }
+            }
+        }
+        demotedFiles.increment(moved);
+        return moved;
+    }
+
+    // Jamais lus depuis cutoff (ou jamais lus et créés avant), pas encore archivés
+    private Query coldMediaQuery(LocalDateTime cutoff, String lastId) {
+        Criteria cold = new Criteria().orOperator(
+                Criteria.where("lastAccessedAt").lt(cutoff),
+                Criteria.where("lastAccessedAt").exists(false).and("createdAt").lt(cutoff));
+        // Sans imagePath : upload asynchrone pas encore enregistré, rien à déplacer
+        Criteria notArchived = Criteria.where("archivedAt").exists(false).and("imagePath").exists(true);
+        Criteria criteria = lastId == null
+                ? new Criteria().andOperator(cold, notArchived)
+                : new Criteria().andOperator(cold, notArchived, Criteria.where("_id").gt(lastId));
+        Query query = Query.query(criteria).with(Sort.by(Sort.Direction.ASC, "_id")).limit(batchSize);
+        query.fields().include("imagePath").include("renditionWidths");
+        return query;
+    }
+
+    // Blob dédupliqué : tous les documents qui pointent sur le fichier sont marqués
+    private void markArchived(String imagePath) {
+        mongoTemplate.updateMulti(
+                Query.query(Criteria.where("imagePath").is(imagePath)),
+                new Update().set("archivedAt", LocalDateTime.now()),
+                Media.class);
+    }
+}
@@ -0,0 +1,213 @@
+package com.buy01.media.service;
+
+import com.buy01.media.model.Media;
+import com.buy01.media.model.MediaBlob;
+import com.buy01.media.storage.MediaStorage;
+import com.buy01.media.storage.StoredFile;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// Réconcilie le stockage et la collection media : fichiers sans document, documents sans fichier
+@Component
+@ConditionalOnProperty(name = "media.gc.enabled", havingValue = "true")
+@Slf4j
+public class OrphanMediaCollector {
+
+    // "<base>_<largeur>.<ext>" : une miniature appartient à l'original "<base>.<ext>"
+    private static final Pattern RENDITION_KEY = Pattern.compile("^(.+)_\\d+(\\.[^.]+)?$");
+
+    private final MediaStorage mediaStorage;
+    private final MongoTemplate mongoTemplate;
+    private final int batchSize;
+    private final Duration gracePeriod;
+    private final Duration quarantineRetention;
+    private final double maxOperationsPerSecond;
+
+    private final Counter reclaimedBytes;
+    private final Counter quarantinedFiles;
+    private final Counter deletedFiles;
+    private final AtomicLong danglingRecords = new AtomicLong();
+
+    public OrphanMediaCollector(MediaStorage mediaStorage,
+                                MongoTemplate mongoTemplate,
+                                MeterRegistry meterRegistry,
+                                @Value("${media.gc.batch-size:500}") int batchSize,
+                                @Value("${media.gc.grace-period:PT1H}") Duration gracePeriod,
+                                @Value("${media.gc.quarantine-retention:PT24H}") Duration quarantineRetention,
+                                @Value("${media.gc.max-operations-per-second:200}") double maxOperationsPerSecond) {
+        this.mediaStorage = mediaStorage;
+        this.mongoTemplate = mongoTemplate;
+        this.batchSize = batchSize;
+        this.gracePeriod = gracePeriod;
+        this.quarantineRetention = quarantineRetention;
+        this.maxOperationsPerSecond = maxOperationsPerSecond;
+
+        this.reclaimedBytes = Counter.builder("media.gc.reclaimed.bytes").baseUnit("bytes").register(meterRegistry);
+        this.quarantinedFiles = Counter.builder("media.gc.quarantined.files").register(meterRegistry);
+        this.deletedFiles = Counter.builder("media.gc.deleted.files").register(meterRegistry);
+        Gauge.builder("media.gc.dangling.records", danglingRecords, AtomicLong::get).register(meterRegistry);
+    }
+
+    @Scheduled(initialDelayString = "${media.gc.initial-delay:PT10M}", fixedDelayString = "${media.gc.interval:PT6H}")
+    public void collect() {
+        IoRateLimiter limiter = new IoRateLimiter(maxOperationsPerSecond);
+        long start = System.currentTimeMillis();
+        try {
+            purgeQuarantine(limiter);
+            quarantineOrphans(limiter);
+            reportDanglingRecords(limiter);
+            log.info("Media GC run finished in {} ms", System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.error("Media GC run failed", e);
+        }
+    }
+
+    // Étape 1 : suppression définitive des fichiers restés en quarantaine au-delà de la rétention
+    private void purgeQuarantine(IoRateLimiter limiter) throws IOException {
+        long cutoff = System.currentTimeMillis() - quarantineRetention.toMillis();
+        try (Stream<StoredFile> quarantined = mediaStorage.quarantined()) {
+            forEachBatch(quarantined.filter(file -> file.lastModified() < cutoff).iterator(), batch -> {
+                Set<String> referenced = referencedKeys(batch.stream().map(StoredFile::key).toList());
+                for (StoredFile file : batch) {
+                    limiter.acquire();
+                    // Référencé entre-temps (ex : blob dédupliqué réutilisé) : on le remet en place
+                    if (referenced.contains(file.key())) {
+                        mediaStorage.restore(file.key());
+                        log.warn("Restored quarantined media file {} which is referenced again", file.key());
+                    } else if (mediaStorage.deleteQuarantined(file.key())) {
+                        reclaimedBytes.increment(file.size());
+                        deletedFiles.increment();
+                    }
+                }
+            });
+        }
+    }
+
+    // Étape 2 : mise en quarantaine des fichiers sans document, passé le délai de grâce
+    private void quarantineOrphans(IoRateLimiter limiter) throws IOException {
+        long cutoff = System.currentTimeMillis() - gracePeriod.toMillis();
+        try (Stream<String> keys = mediaStorage.keys()) {
+            forEachBatch(keys.iterator(), batch -> {
+                Set<String> referenced = referencedKeys(batch);
+                for (String key : batch) {
+                    if (referenced.contains(key)) {
+                        continue;
+                    }
+                    limiter.acquire();
+                    // Un upload en cours n'a pas encore son document : on laisse passer le délai de grâce
+                    Optional<StoredFile> stored = mediaStorage.stat(key);
+                    if (stored.isPresent() && stored.get().lastModified() < cutoff) {
+                        mediaStorage.quarantine(key);
+                        quarantinedFiles.increment();
+                        log.info("Quarantined orphan media file {} ({} bytes)", key, stored.get().size());
+                    }
+                }
+            });
+        }
+    }
+
+    // Étape 3 : documents dont le fichier a disparu, parcourus par _id croissant
+    private void reportDanglingRecords(IoRateLimiter limiter) {
+        long dangling = 0;
+        List<String> samples = new ArrayList<>();
+        String lastId = null;
+
+        while (true) {
+            Query query = new Query().with(Sort.by(Sort.Direction.ASC, "_id")).limit(batchSize);
+            if (lastId != null) {
+                query.addCriteria(Criteria.where("_id").gt(lastId));
+            }
+            query.fields().include("imagePath");
+            List<Media> batch = mongoTemplate.find(query, Media.class);
+            if (batch.isEmpty()) {
+                break;
+            }
+            for (Media media : batch) {
+                limiter.acquire();
+                if (media.getImagePath() != null && !mediaStorage.exists(MediaService.storageKey(media.getImagePath()))) {
+                    dangling++;
+                    if (samples.size() < 20) {
+                        samples.add(media.getId());
+                    }
+                }
+            }
+            lastId = batch.get(batch.size() - 1).getId();
+        }
+
+        danglingRecords.set(dangling);
+        if (dangling > 0) {
+            log.warn("{} media record(s) point at missing files, e.g. {}", dangling, samples);
+        }
+    }
+
+    // Clés encore utilisées par un document Media ou par un blob partagé (directement ou via l'original d'une miniature).
+    // Un blob existe avant le document Media qui le référence : un upload dédupliqué en cours reste protégé
+    private Set<String> referencedKeys(List<String> keys) {
+        Set<String> owners = keys.stream().map(OrphanMediaCollector::ownerKey).collect(Collectors.toSet());
+        Set<String> imagePaths = owners.stream().map(owner -> "/uploads/" + owner).collect(Collectors.toSet());
+
+        Query query = Query.query(Criteria.where("imagePath").in(imagePaths));
+        query.fields().include("imagePath");
+        Set<String> referencedOwners = mongoTemplate.find(query, Media.class).stream()
+                .map(media -> MediaService.storageKey(media.getImagePath()))
+                .collect(Collectors.toCollection(HashSet::new));
+
+        Query blobQuery = Query.query(Criteria.where("fileName").in(owners));
+        blobQuery.fields().include("fileName");
+        mongoTemplate.find(blobQuery, MediaBlob.class).forEach(blob -> referencedOwners.add(blob.getFileName()));
+
+        return keys.stream()
+                .filter(key -> referencedOwners.contains(ownerKey(key)))
+                .collect(Collectors.toSet());
+    }
+
+    private static String ownerKey(String key) {
+        Matcher matcher = RENDITION_KEY.matcher(key);
+        if (!matcher.matches()) {
+            return key;
+        }
+        return matcher.group(1) + (matcher.group(2) != null ? matcher.group(2) : "");
+    }
+
+    private interface BatchAction<T> {
+        void accept(List<T> batch) throws IOException;
+    }
+
+    private <T> void forEachBatch(Iterator<T> iterator, BatchAction<T> action) throws IOException {
+        List<T> batch = new ArrayList<>(batchSize);
+        while (iterator.hasNext()) {
+            batch.add(iterator.next());
+            if (batch.size() == batchSize) {
+                action.accept(batch);
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+        if (!batch.isEmpty()) {
+            action.accept(batch);
+        }
+    }
+}
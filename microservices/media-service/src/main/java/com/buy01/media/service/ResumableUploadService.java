@@ -0,0 +1,361 @@
+package com.buy01.media.service;
+
+import com.buy01.media.dto.CreateUploadSessionRequest;
+import com.buy01.media.dto.MediaUploadResponse;
+import com.buy01.media.dto.UploadSessionResponse;
+import com.buy01.media.exception.BadRequestException;
+import com.buy01.media.exception.ResourceNotFoundException;
+import com.buy01.media.exception.UnauthorizedException;
+import com.buy01.media.model.UploadSession;
+import com.buy01.media.model.UploadSessionStatus;
+import com.buy01.media.repository.UploadSessionRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.FileSystemUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.stream.IntStream;
+
+@Service
+@Slf4j
+public class ResumableUploadService {
+
+    private static final long MIN_CHUNK_SIZE = 64 * 1024;       // 64KB
+    private static final long MAX_CHUNK_SIZE = 8 * 1024 * 1024; // 8MB
+    private static final int MAX_REPORTED_MISSING = 20;
+
+    private final UploadSessionRepository uploadSessionRepository;
+    private final MongoTemplate mongoTemplate;
+    private final MediaService mediaService;
+    private final Path chunkRoot;
+    private final long maxResumableSize;
+    private final long defaultChunkSize;
+    private final Duration sessionTtl;
+    private final Duration assemblyTimeout;
+
+    public ResumableUploadService(UploadSessionRepository uploadSessionRepository,
+                                  MongoTemplate mongoTemplate,
+                                  MediaService mediaService,
+                                  @Value("${media.upload.chunk-dir:${media.upload.dir}/.chunks}") String chunkDir,
+                                  @Value("${media.upload.max-resumable-size:20MB}") DataSize maxResumableSize,
+                                  @Value("${media.upload.default-chunk-size:1MB}") DataSize defaultChunkSize,
+                                  @Value("${media.upload.session-ttl:PT24H}") Duration sessionTtl,
+                                  @Value("${media.upload.assembly-timeout:PT15M}") Duration assemblyTimeout) {
+        this.uploadSessionRepository = uploadSessionRepository;
+        this.mongoTemplate = mongoTemplate;
+        this.mediaService = mediaService;
+        this.chunkRoot = Paths.get(chunkDir);
+        this.maxResumableSize = maxResumableSize.toBytes();
+        this.defaultChunkSize = defaultChunkSize.toBytes();
+        this.sessionTtl = sessionTtl;
+        this.assemblyTimeout = assemblyTimeout;
+    }
+
+    public UploadSessionResponse createSession(String userId, CreateUploadSessionRequest request) {
+        long totalSize = request.getTotalSize();
+        if (totalSize > maxResumableSize) {
+            throw new BadRequestException("File size exceeds maximum limit of " + (maxResumableSize / (1024 * 1024)) + "MB");
+        }
+
+        long chunkSize = request.getChunkSize() != null ? request.getChunkSize() : defaultChunkSize;
+        if (chunkSize < MIN_CHUNK_SIZE || chunkSize > MAX_CHUNK_SIZE) {
+            throw new BadRequestException("Chunk size must be between " + MIN_CHUNK_SIZE + " and " + MAX_CHUNK_SIZE + " bytes");
+        }
+
+        UploadSession session = new UploadSession();
+        session.setUserId(userId);
+        session.setProductId(request.getProductId());
+        session.setFileName(request.getFileName());
+        session.setTotalSize(totalSize);
+        session.setChunkSize((int) chunkSize);
+        session.setTotalChunks((int) ((totalSize + chunkSize - 1) / chunkSize));
+        session.setReceivedChunks(new HashSet<>());
+        session.setStatus(UploadSessionStatus.OPEN);
+        session.setCreatedAt(LocalDateTime.now());
+        session.setExpiresAt(session.getCreatedAt().plus(sessionTtl));
+
+        UploadSession saved = uploadSessionRepository.save(session);
+        log.info("Upload session {} opened for user {} ({} bytes in {} chunks)",
+                saved.getId(), userId, totalSize, saved.getTotalChunks());
+        return mapToResponse(saved);
+    }
+
+    public UploadSessionResponse uploadChunk(String userId, String sessionId, int index, InputStream body) {
+        UploadSession session = findOwnedSession(userId, sessionId);
+        if (session.getStatus() != UploadSessionStatus.OPEN) {
+            throw new BadRequestException("Upload session is no longer accepting chunks");
+        }
+        if (index < 0 || index >= session.getTotalChunks()) {
+            throw new BadRequestException("Chunk index must be between 0 and " + (session.getTotalChunks() - 1));
+        }
+
+        long expected = expectedChunkLength(session, index);
+        try {
+            Path sessionDir = chunkRoot.resolve(sessionId);
+            Files.createDirectories(sessionDir);
+            Path temp = Files.createTempFile(sessionDir, ".chunk-", ".tmp");
+            try {
+                long written;
+                try (InputStream in = new SizeLimitedInputStream(body, expected,
+                        "Chunk " + index + " must be exactly " + expected + " bytes")) {
+                    written = Files.copy(in, temp, StandardCopyOption.REPLACE_EXISTING);
+                }
+                if (written != expected) {
+                    throw new BadRequestException("Chunk " + index + " must be exactly " + expected + " bytes");
+                }
+
+                // Premier morceau : on refuse tout de suite ce qui n'est pas une image
+                if (index == 0) {
+                    byte[] header;
+                    try (InputStream in = Files.newInputStream(temp)) {
+                        header = in.readNBytes(ImageTypeDetector.HEADER_SIZE);
+                    }
+                    if (ImageTypeDetector.detect(header) == null) {
+                        throw new BadRequestException("Invalid file type. Only images are allowed (JPEG, PNG, GIF, WebP)");
+                    }
+                }
+
+                // Renvoi d'un morceau (reprise) : remplacement atomique, jamais de fichier à moitié écrit
+                moveAtomically(temp, chunkPath(sessionId, index));
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (IOException e) {
+            log.error("Error storing chunk {} of upload session {}", index, sessionId, e);
+            throw new RuntimeException("Failed to store chunk: " + e.getMessage());
+        }
+
+        UploadSession updated = mongoTemplate.findAndModify(
+                Query.query(Criteria.where("_id").is(sessionId).and("status").is(UploadSessionStatus.OPEN)),
+                new Update().addToSet("receivedChunks", index),
+                FindAndModifyOptions.options().returnNew(true),
+                UploadSession.class);
+        if (updated == null) {
+            throw new BadRequestException("Upload session is no longer accepting chunks");
+        }
+        return mapToResponse(updated);
+    }
+
+    public UploadSessionResponse getSession(String userId, String sessionId) {
+        return mapToResponse(findOwnedSession(userId, sessionId));
+    }
+
+    public MediaUploadResponse completeSession(String userId, String sessionId) {
+        UploadSession session = findOwnedSession(userId, sessionId);
+        if (session.getStatus() == UploadSessionStatus.COMPLETED) {
+            throw new BadRequestException("Upload session already completed as media " + session.getMediaId());
+        }
+
+        List<Integer> missing = IntStream.range(0, session.getTotalChunks())
+                .filter(i -> !session.getReceivedChunks().contains(i))
+                .limit(MAX_REPORTED_MISSING)
+                .boxed()
+                .toList();
+        if (!missing.isEmpty()) {
+            throw new BadRequestException("Missing chunks: " + missing);
+        }
+
+        // Transition OPEN -> ASSEMBLING atomique : une seule finalisation par session.
+        // Une finalisation interrompue (instance arrêtée) laisse un bail périmé : la session est reprise
+        LocalDateTime lease = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+        Criteria claimable = new Criteria().orOperator(
+                Criteria.where("status").is(UploadSessionStatus.OPEN),
+                Criteria.where("status").is(UploadSessionStatus.ASSEMBLING).andOperator(staleLease()));
+        UploadSession claimed = mongoTemplate.findAndModify(
+                Query.query(Criteria.where("_id").is(sessionId).andOperator(claimable)),
+                new Update().set("status", UploadSessionStatus.ASSEMBLING).set("assemblingSince", lease),
+                FindAndModifyOptions.options().returnNew(true),
+                UploadSession.class);
+        if (claimed == null) {
+            throw new BadRequestException("Upload session is already being completed");
+        }
+
+        MediaUploadResponse media;
+        try {
+            Path assembled = assemble(claimed);
+            media = mediaService.uploadAssembledFile(userId, assembled, claimed.getFileName(), claimed.getProductId());
+        } catch (IOException e) {
+            reopen(sessionId, lease);
+            log.error("Error assembling upload session {}", sessionId, e);
+            throw new RuntimeException("Failed to assemble upload: " + e.getMessage());
+        } catch (RuntimeException e) {
+            // Morceaux conservés : le client peut corriger et relancer la finalisation
+            reopen(sessionId, lease);
+            throw e;
+        }
+
+        long completed = mongoTemplate.updateFirst(holdingLease(sessionId, lease),
+                new Update().set("status", UploadSessionStatus.COMPLETED).set("mediaId", media.getId())
+                        .unset("assemblingSince"),
+                UploadSession.class).getModifiedCount();
+        if (completed == 0) {
+            // Bail repris par une autre finalisation : ses morceaux ne nous appartiennent plus
+            log.warn("Upload session {} was taken over while completing as media {}", sessionId, media.getId());
+            return media;
+        }
+        deleteChunks(sessionId);
+        log.info("Upload session {} completed as media {}", sessionId, media.getId());
+        return media;
+    }
+
+    public void abortSession(String userId, String sessionId) {
+        findOwnedSession(userId, sessionId);
+        // Réservation atomique : une finalisation qui a déjà pris la session (ASSEMBLING) garde ses morceaux
+        if (!claimForDeletion(sessionId)) {
+            throw new BadRequestException("Upload session is being completed and cannot be aborted");
+        }
+        deleteSession(sessionId);
+        log.info("Upload session {} aborted by user {}", sessionId, userId);
+    }
+
+    // Sessions abandonnées : suppression des morceaux et du document après expiration
+    @Scheduled(initialDelayString = "${media.upload.cleanup-initial-delay:PT5M}",
+            fixedDelayString = "${media.upload.cleanup-interval:PT1H}")
+    public void purgeExpiredSessions() {
+        try {
+            List<UploadSession> expired = uploadSessionRepository.findByExpiresAtBefore(LocalDateTime.now());
+            int purged = 0;
+            for (UploadSession session : expired) {
+                // Même réservation que l'abandon : la liste a pu vieillir pendant le parcours
+                if (claimForDeletion(session.getId())) {
+                    deleteSession(session.getId());
+                    purged++;
+                }
+            }
+            if (purged > 0) {
+                log.info("Purged {} expired upload sessions", purged);
+            }
+        } catch (Exception e) {
+            log.error("Upload session cleanup failed", e);
+        }
+    }
+
+    // OPEN|COMPLETED|ABORTED -> ABORTED ; false si la session est en cours de finalisation ou déjà supprimée.
+    // Une finalisation dont le bail a expiré ne protège plus la session
+    private boolean claimForDeletion(String sessionId) {
+        Criteria deletable = new Criteria().orOperator(
+                Criteria.where("status").ne(UploadSessionStatus.ASSEMBLING), staleLease());
+        UploadSession claimed = mongoTemplate.findAndModify(
+                Query.query(Criteria.where("_id").is(sessionId).andOperator(deletable)),
+                new Update().set("status", UploadSessionStatus.ABORTED),
+                FindAndModifyOptions.options().returnNew(true),
+                UploadSession.class);
+        return claimed != null;
+    }
+
+    private void deleteSession(String sessionId) {
+        deleteChunks(sessionId);
+        uploadSessionRepository.deleteById(sessionId);
+    }
+
+    // Concaténation des morceaux par transferTo : pas de passage par le tas
+    private Path assemble(UploadSession session) throws IOException {
+        Path assembled = chunkRoot.resolve(session.getId()).resolve("assembled");
+        try (FileChannel out = FileChannel.open(assembled, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (int i = 0; i < session.getTotalChunks(); i++) {
+                try (FileChannel in = FileChannel.open(chunkPath(session.getId(), i), StandardOpenOption.READ)) {
+                    long position = 0;
+                    long size = in.size();
+                    while (position < size) {
+                        position += in.transferTo(position, size - position, out);
+                    }
+                }
+            }
+            if (out.size() != session.getTotalSize()) {
+                throw new BadRequestException("Assembled file size does not match the declared total size");
+            }
+        }
+        return assembled;
+    }
+
+    private void reopen(String sessionId, LocalDateTime lease) {
+        mongoTemplate.updateFirst(holdingLease(sessionId, lease),
+                new Update().set("status", UploadSessionStatus.OPEN).unset("assemblingSince"),
+                UploadSession.class);
+    }
+
+    // Bail absent (session antérieure au bail) ou plus vieux que assemblyTimeout
+    private Criteria staleLease() {
+        return Criteria.where("assemblingSince").not().gte(LocalDateTime.now().minus(assemblyTimeout));
+    }
+
+    // Seule la finalisation qui détient encore le bail peut conclure ou rouvrir la session
+    private static Query holdingLease(String sessionId, LocalDateTime lease) {
+        return Query.query(Criteria.where("_id").is(sessionId)
+                .and("status").is(UploadSessionStatus.ASSEMBLING)
+                .and("assemblingSince").is(lease));
+    }
+
+    private UploadSession findOwnedSession(String userId, String sessionId) {
+        UploadSession session = uploadSessionRepository.findById(sessionId)
+                .orElseThrow(() -> new ResourceNotFoundException("Upload session not found with id: " + sessionId));
+        if (!session.getUserId().equals(userId)) {
+            throw new UnauthorizedException("You don't have permission to access this upload session");
+        }
+        return session;
+    }
+
+    private long expectedChunkLength(UploadSession session, int index) {
+        long offset = (long) index * session.getChunkSize();
+        return Math.min(session.getChunkSize(), session.getTotalSize() - offset);
+    }
+
+    private Path chunkPath(String sessionId, int index) {
+        return chunkRoot.resolve(sessionId).resolve(index + ".part");
+    }
+
+    private void moveAtomically(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private void deleteChunks(String sessionId) {
+        try {
+            FileSystemUtils.deleteRecursively(chunkRoot.resolve(sessionId));
+        } catch (IOException e) {
+            log.warn("Could not delete chunks of upload session {}", sessionId, e);
+        }
+    }
+
+    private UploadSessionResponse mapToResponse(UploadSession session) {
+        UploadSessionResponse response = new UploadSessionResponse();
+        response.setId(session.getId());
+        response.setFileName(session.getFileName());
+        response.setTotalSize(session.getTotalSize());
+        response.setChunkSize(session.getChunkSize());
+        response.setTotalChunks(session.getTotalChunks());
+        List<Integer> received = new ArrayList<>(session.getReceivedChunks());
+        received.sort(null);
+        response.setReceivedChunks(received);
+        response.setStatus(session.getStatus().name());
+        response.setMediaId(session.getMediaId());
+        response.setExpiresAt(session.getExpiresAt());
+        return response;
+    }
+}
@@ -0,0 +1,62 @@
+package com.buy01.media.service;
+
+import com.buy01.media.exception.BadRequestException;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+// Interrompt la lecture dès que la limite est dépassée, sans attendre la fin de l'upload
+public class SizeLimitedInputStream extends FilterInputStream {
+
+    private final long maxBytes;
+    private final String message;
+    private long count;
+
+    public SizeLimitedInputStream(InputStream in, long maxBytes) {
+        this(in, maxBytes, "File size exceeds maximum limit of " + (maxBytes / (1024 * 1024)) + "MB");
+    }
+
+    public SizeLimitedInputStream(InputStream in, long maxBytes, String message) {
+        super(in);
+        this.maxBytes = maxBytes;
+        this.message = message;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+        if (b >= 0) {
+            increment(1);
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        int read = super.read(buffer, offset, length);
+        if (read > 0) {
+            increment(read);
+        }
+        return read;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = super.skip(n);
+        increment(skipped);
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    private void increment(long bytes) {
+        count += bytes;
+        if (count > maxBytes) {
+            throw new BadRequestException(message);
+        }
+    }
+}
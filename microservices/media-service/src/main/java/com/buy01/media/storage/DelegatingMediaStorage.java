@@ -0,0 +1,100 @@
+package com.buy01.media.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+// Base des décorateurs de stockage : tout est délégué, les sous-classes ne redéfinissent que ce qui les concerne
+public abstract class DelegatingMediaStorage implements MediaStorage {
+
+    protected final MediaStorage delegate;
+
+    protected DelegatingMediaStorage(MediaStorage delegate) {
+        this.delegate = delegate;
+    }
+
+    public MediaStorage delegate() {
+        return delegate;
+    }
+
+    // Retrouve une implémentation précise sous une pile de décorateurs
+    public static <T extends MediaStorage> Optional<T> unwrap(MediaStorage storage, Class<T> type) {
+        MediaStorage current = storage;
+        while (true) {
+            if (type.isInstance(current)) {
+                return Optional.of(type.cast(current));
+            }
+            if (!(current instanceof DelegatingMediaStorage delegating)) {
+                return Optional.empty();
+            }
+            current = delegating.delegate();
+        }
+    }
+
+    @Override
+    public long write(String key, InputStream content) throws IOException {
+        return delegate.write(key, content);
+    }
+
+    @Override
+    public long importFile(String key, Path source) throws IOException {
+        return delegate.importFile(key, source);
+    }
+
+    @Override
+    public InputStream open(String key) throws IOException {
+        return delegate.open(key);
+    }
+
+    @Override
+    public Optional<StoredFile> stat(String key) throws IOException {
+        return delegate.stat(key);
+    }
+
+    @Override
+    public boolean exists(String key) {
+        return delegate.exists(key);
+    }
+
+    @Override
+    public boolean delete(String key) throws IOException {
+        return delegate.delete(key);
+    }
+
+    @Override
+    public void move(String sourceKey, String targetKey) throws IOException {
+        delegate.move(sourceKey, targetKey);
+    }
+
+    @Override
+    public Optional<Path> localPath(String key) {
+        return delegate.localPath(key);
+    }
+
+    @Override
+    public Stream<String> keys() throws IOException {
+        return delegate.keys();
+    }
+
+    @Override
+    public void quarantine(String key) throws IOException {
+        delegate.quarantine(key);
+    }
+
+    @Override
+    public void restore(String key) throws IOException {
+        delegate.restore(key);
+    }
+
+    @Override
+    public Stream<StoredFile> quarantined() throws IOException {
+        return delegate.quarantined();
+    }
+
+    @Override
+    public boolean deleteQuarantined(String key) throws IOException {
+        return delegate.deleteQuarantined(key);
+    }
+}
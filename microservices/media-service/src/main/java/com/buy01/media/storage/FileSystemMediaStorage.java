@@ -0,0 +1,269 @@
+package com.buy01.media.storage;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+@Slf4j
+public class FileSystemMediaStorage implements MediaStorage {
+
+    private static final String QUARANTINE_DIR = ".quarantine";
+    private static final char QUARANTINE_SEPARATOR = '~';
+
+    private final Path root;
+    private final Path quarantineRoot;
+    private final boolean sharded;
+
+    public FileSystemMediaStorage(Path root, boolean sharded) throws IOException {
+        this.root = root.toAbsolutePath().normalize();
+        this.quarantineRoot = this.root.resolve(QUARANTINE_DIR);
+        this.sharded = sharded;
+        Files.createDirectories(this.root);
+    }
+
+    @Override
+    public long write(String key, InputStream content) throws IOException {
+        Path target = pathFor(key);
+        Files.createDirectories(target.getParent());
+        Path tempFile = Files.createTempFile(target.getParent(), ".write-", ".tmp");
+        try {
+            long size = Files.copy(content, tempFile, StandardCopyOption.REPLACE_EXISTING);
+            Files.move(tempFile, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return size;
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    @Override
+    public long importFile(String key, Path source) throws IOException {
+        Path target = pathFor(key);
+        Files.createDirectories(target.getParent());
+        long size = Files.size(source);
+        try {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            // Source sur un autre volume : copie puis publication atomique
+            try (InputStream in = Files.newInputStream(source)) {
+                write(key, in);
+            }
+            Files.delete(source);
+        }
+        return size;
+    }
+
+    @Override
+    public InputStream open(String key) throws IOException {
+        return Files.newInputStream(resolveExisting(key));
+    }
+
+    @Override
+    public Optional<StoredFile> stat(String key) throws IOException {
+        Path path = resolveExisting(key);
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            return Optional.of(new StoredFile(key, attributes.size(), attributes.lastModifiedTime().toMillis()));
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public boolean exists(String key) {
+        return Files.exists(resolveExisting(key));
+    }
+
+    @Override
+    public boolean delete(String key) throws IOException {
+        return Files.deleteIfExists(resolveExisting(key));
+    }
+
+    @Override
+    public void move(String sourceKey, String targetKey) throws IOException {
+        Path target = pathFor(targetKey);
+        Files.createDirectories(target.getParent());
+        Files.move(resolveExisting(sourceKey), target,
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @Override
+    public Optional<Path> localPath(String key) {
+        return Optional.of(resolveExisting(key));
+    }
+
+    @Override
+    public Stream<String> keys() throws IOException {
+        return Files.walk(root, sharded ? 3 : 1)
+                .filter(path -> !isHidden(root.relativize(path)))
+                .filter(Files::isRegularFile)
+                .map(path -> path.getFileName().toString());
+    }
+
+    // "<clé>~<date de mise en quarantaine>" : la date de modification d'origine (donc l'ETag) est conservée
+    @Override
+    public void quarantine(String key) throws IOException {
+        Files.createDirectories(quarantineRoot);
+        Path target = quarantineRoot.resolve(validate(key) + QUARANTINE_SEPARATOR + System.currentTimeMillis());
+        Files.move(resolveExisting(key), target, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @Override
+    public void restore(String key) throws IOException {
+        Path source = findQuarantined(key).orElseThrow(() -> new NoSuchFileException(key));
+        Path target = pathFor(key);
+        Files.createDirectories(target.getParent());
+        Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @Override
+    public Stream<StoredFile> quarantined() throws IOException {
+        if (!Files.isDirectory(quarantineRoot)) {
+            return Stream.empty();
+        }
+        return Files.list(quarantineRoot)
+                .filter(Files::isRegularFile)
+                .map(path -> {
+                    try {
+                        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                        String name = path.getFileName().toString();
+                        int separator = name.lastIndexOf(QUARANTINE_SEPARATOR);
+                        // Ancien format sans horodatage : la date de modification en tient lieu
+                        return separator < 0
+                                ? new StoredFile(name, attributes.size(), attributes.lastModifiedTime().toMillis())
+                                : new StoredFile(name.substring(0, separator), attributes.size(),
+                                        Long.parseLong(name.substring(separator + 1)));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+    }
+
+    @Override
+    public boolean deleteQuarantined(String key) throws IOException {
+        boolean deleted = false;
+        Optional<Path> quarantined;
+        while ((quarantined = findQuarantined(key)).isPresent()) {
+            deleted |= Files.deleteIfExists(quarantined.get());
+        }
+        return deleted;
+    }
+
+    // Range les fichiers encore à plat dans leur répertoire de shard ; renvoie le nombre déplacé
+    public int migrateFlatFiles() throws IOException {
+        if (!sharded) {
+            return 0;
+        }
+        int migrated = 0;
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(root, Files::isRegularFile)) {
+            for (Path flatFile : entries) {
+                String key = flatFile.getFileName().toString();
+                if (key.startsWith(".")) {
+                    continue;
+                }
+                Path target = shardedPath(key);
+                Files.createDirectories(target.getParent());
+                Files.move(flatFile, target, StandardCopyOption.ATOMIC_MOVE);
+                migrated++;
+                if (migrated % 10_000 == 0) {
+                    log.info("Migrated {} flat media files so far", migrated);
+                }
+            }
+        }
+        return migrated;
+    }
+
+    // Fichiers temporaires (.write-*) et répertoires internes (.quarantine) ne sont pas des clés
+    private static boolean isHidden(Path relative) {
+        for (Path segment : relative) {
+            if (segment.toString().startsWith(".")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Emplacement d'une nouvelle écriture
+    private Path pathFor(String key) {
+        return sharded ? shardedPath(key) : flatPath(key);
+    }
+
+    // Emplacement de lecture : les fichiers non encore migrés restent trouvables à plat
+    private Path resolveExisting(String key) {
+        Path path = pathFor(key);
+        if (sharded && !Files.exists(path)) {
+            Path legacy = flatPath(key);
+            if (Files.exists(legacy)) {
+                return legacy;
+            }
+        }
+        return path;
+    }
+
+    private Optional<Path> findQuarantined(String key) throws IOException {
+        validate(key);
+        if (!Files.isDirectory(quarantineRoot)) {
+            return Optional.empty();
+        }
+        Path legacy = quarantineRoot.resolve(key);
+        if (Files.isRegularFile(legacy)) {
+            return Optional.of(legacy);
+        }
+        String prefix = key + QUARANTINE_SEPARATOR;
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(quarantineRoot,
+                path -> path.getFileName().toString().startsWith(prefix))) {
+            Iterator<Path> iterator = entries.iterator();
+            return iterator.hasNext() ? Optional.of(iterator.next()) : Optional.empty();
+        }
+    }
+
+    private Path flatPath(String key) {
+        return root.resolve(validate(key));
+    }
+
+    // ab/cd/<clé> : deux niveaux de 256 répertoires, les miniatures restent à côté de l'original
+    private Path shardedPath(String key) {
+        String shard = shardOf(validate(key));
+        return root.resolve(shard.substring(0, 2)).resolve(shard.substring(2, 4)).resolve(key);
+    }
+
+    private static String shardOf(String key) {
+        int end = key.length();
+        for (int i = 0; i < key.length(); i++) {
+            char c = key.charAt(i);
+            if (c == '_' || c == '.') {
+                end = i;
+                break;
+            }
+        }
+        try {
+            byte[] hash = MessageDigest.getInstance("MD5")
+                    .digest(key.substring(0, end).getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash, 0, 2);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("MD5 not available", e);
+        }
+    }
+
+    private static String validate(String key) {
+        if (key == null || key.isEmpty() || key.contains("/") || key.contains("\\") || key.contains("..")) {
+            throw new IllegalArgumentException("Invalid storage key: " + key);
+        }
+        return key;
+    }
+}
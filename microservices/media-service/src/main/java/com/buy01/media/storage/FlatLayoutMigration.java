@@ -0,0 +1,33 @@
+package com.buy01.media.storage;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+
+// Lancer une fois avec --media.storage.migrate-flat-files=true pour ranger l'ancien dossier plat
+@Component
+@ConditionalOnProperty(name = "media.storage.migrate-flat-files", havingValue = "true")
+@RequiredArgsConstructor
+@Slf4j
+public class FlatLayoutMigration implements ApplicationRunner {
+
+    private final MediaStorage mediaStorage;
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        Optional<FileSystemMediaStorage> fileSystemStorage =
+                DelegatingMediaStorage.unwrap(mediaStorage, FileSystemMediaStorage.class);
+        if (fileSystemStorage.isEmpty()) {
+            log.warn("Flat layout migration skipped: storage is not filesystem-based");
+            return;
+        }
+        log.info("Migrating flat media files to the sharded layout");
+        int migrated = fileSystemStorage.get().migrateFlatFiles();
+        log.info("Flat layout migration done, {} file(s) moved", migrated);
+    }
+}
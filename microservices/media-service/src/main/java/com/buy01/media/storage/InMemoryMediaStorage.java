@@ -0,0 +1,122 @@
+package com.buy01.media.storage;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+// Implémentation en mémoire pour les tests et les benchmarks
+public class InMemoryMediaStorage implements MediaStorage {
+
+    private record Entry(byte[] data, long lastModified) {
+    }
+
+    private record Quarantined(Entry entry, long quarantinedAt) {
+    }
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<String, Quarantined> quarantine = new ConcurrentHashMap<>();
+
+    @Override
+    public long write(String key, InputStream content) throws IOException {
+        byte[] data = content.readAllBytes();
+        entries.put(key, new Entry(data, System.currentTimeMillis()));
+        return data.length;
+    }
+
+    @Override
+    public long importFile(String key, Path source) throws IOException {
+        long size;
+        try (InputStream in = Files.newInputStream(source)) {
+            size = write(key, in);
+        }
+        Files.delete(source);
+        return size;
+    }
+
+    @Override
+    public InputStream open(String key) throws IOException {
+        return new ByteArrayInputStream(get(key).data());
+    }
+
+    @Override
+    public Optional<StoredFile> stat(String key) {
+        Entry entry = entries.get(key);
+        return entry == null
+                ? Optional.empty()
+                : Optional.of(new StoredFile(key, entry.data().length, entry.lastModified()));
+    }
+
+    @Override
+    public boolean exists(String key) {
+        return entries.containsKey(key);
+    }
+
+    @Override
+    public boolean delete(String key) {
+        return entries.remove(key) != null;
+    }
+
+    @Override
+    public void move(String sourceKey, String targetKey) throws IOException {
+        Entry entry = entries.remove(sourceKey);
+        if (entry == null) {
+            throw new NoSuchFileException(sourceKey);
+        }
+        entries.put(targetKey, entry);
+    }
+
+    @Override
+    public Optional<Path> localPath(String key) {
+        return Optional.empty();
+    }
+
+    @Override
+    public Stream<String> keys() {
+        return List.copyOf(entries.keySet()).stream();
+    }
+
+    @Override
+    public void quarantine(String key) throws IOException {
+        Entry entry = entries.remove(key);
+        if (entry == null) {
+            throw new NoSuchFileException(key);
+        }
+        quarantine.put(key, new Quarantined(entry, System.currentTimeMillis()));
+    }
+
+    @Override
+    public void restore(String key) throws IOException {
+        Quarantined quarantined = quarantine.remove(key);
+        if (quarantined == null) {
+            throw new NoSuchFileException(key);
+        }
+        entries.put(key, quarantined.entry());
+    }
+
+    @Override
+    public Stream<StoredFile> quarantined() {
+        return List.copyOf(quarantine.entrySet()).stream()
+                .map(e -> new StoredFile(e.getKey(), e.getValue().entry().data().length, e.getValue().quarantinedAt()));
+    }
+
+    @Override
+    public boolean deleteQuarantined(String key) {
+        return quarantine.remove(key) != null;
+    }
+
+    private Entry get(String key) throws NoSuchFileException {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            throw new NoSuchFileException(key);
+        }
+        return entry;
+    }
+}
@@ -0,0 +1,44 @@
+package com.buy01.media.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+// Stockage physique des fichiers média, indexé par clé (ex : "<uuid>.jpg")
+public interface MediaStorage {
+
+    // Écrit le contenu sous la clé ; le fichier n'est visible qu'une fois complet
+    long write(String key, InputStream content) throws IOException;
+
+    // Reprend un fichier local déjà complet (déplacé si possible, sinon copié) ; la source est consommée
+    long importFile(String key, Path source) throws IOException;
+
+    InputStream open(String key) throws IOException;
+
+    Optional<StoredFile> stat(String key) throws IOException;
+
+    boolean exists(String key);
+
+    boolean delete(String key) throws IOException;
+
+    // Renommage atomique, utilisé pour publier un fichier écrit sous une clé temporaire
+    void move(String sourceKey, String targetKey) throws IOException;
+
+    // Chemin local lorsque le stockage est sur disque (permet le sendfile)
+    Optional<Path> localPath(String key);
+
+    // Toutes les clés stockées ; le flux doit être fermé par l'appelant
+    Stream<String> keys() throws IOException;
+
+    // Mise à l'écart d'un fichier orphelin avant suppression définitive
+    void quarantine(String key) throws IOException;
+
+    void restore(String key) throws IOException;
+
+    // lastModified = date de mise en quarantaine ; le flux doit être fermé par l'appelant
+    Stream<StoredFile> quarantined() throws IOException;
+
+    boolean deleteQuarantined(String key) throws IOException;
+}
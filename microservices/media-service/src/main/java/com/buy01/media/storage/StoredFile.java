@@ -0,0 +1,4 @@
+package com.buy01.media.storage;
+
+public record StoredFile(String key, long size, long lastModified) {
+}
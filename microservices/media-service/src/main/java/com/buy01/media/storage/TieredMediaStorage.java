@@ -0,0 +1,181 @@
+package com.buy01.media.storage;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+// Deux niveaux : le volume chaud (délégué) et une archive pour les fichiers froids, éventuellement compressés.
+// Un fichier archivé remonte sur le volume chaud dès qu'il est lu ; la copie d'archive est conservée.
+@Slf4j
+public class TieredMediaStorage extends DelegatingMediaStorage {
+
+    private static final String GZIP_SUFFIX = ".gz";
+
+    private final MediaStorage archive;
+    private final boolean compress;
+
+    public TieredMediaStorage(MediaStorage hot, MediaStorage archive, boolean compress) {
+        super(hot);
+        this.archive = archive;
+        this.compress = compress;
+    }
+
+    // Descend un fichier dans l'archive et libère le volume chaud ; false s'il n'y était pas
+    public boolean demote(String key) throws IOException {
+        if (!delegate.exists(key)) {
+            return false;
+        }
+        // Déjà archivé lors d'un précédent passage : il suffit de libérer le volume chaud
+        if (archivedKey(key).isEmpty()) {
+            try (InputStream in = delegate.open(key)) {
+                if (compress) {
+                    archiveCompressed(key, in);
+                } else {
+                    archive.write(key, in);
+                }
+            }
+        }
+        // Une lecture concurrente qui trouve le fichier chaud disparu le fait remonter (voir open et stat)
+        return delegate.delete(key);
+    }
+
+    public boolean isHot(String key) {
+        return delegate.exists(key);
+    }
+
+    @Override
+    public InputStream open(String key) throws IOException {
+        promoteIfArchived(key);
+        try {
+            return delegate.open(key);
+        } catch (NoSuchFileException e) {
+            // Descendu par demote entre la vérification et l'ouverture : une seule nouvelle tentative
+            promoteIfArchived(key);
+            return delegate.open(key);
+        }
+    }
+
+    @Override
+    public Optional<StoredFile> stat(String key) throws IOException {
+        promoteIfArchived(key);
+        Optional<StoredFile> stored = delegate.stat(key);
+        if (stored.isEmpty()) {
+            promoteIfArchived(key);
+            stored = delegate.stat(key);
+        }
+        return stored;
+    }
+
+    @Override
+    public boolean exists(String key) {
+        return delegate.exists(key) || archivedKey(key).isPresent();
+    }
+
+    @Override
+    public boolean delete(String key) throws IOException {
+        boolean deleted = delegate.delete(key);
+        Optional<String> archived = archivedKey(key);
+        if (archived.isPresent()) {
+            deleted |= archive.delete(archived.get());
+        }
+        return deleted;
+    }
+
+    @Override
+    public Stream<String> keys() throws IOException {
+        return Stream.concat(delegate.keys(), archive.keys().map(TieredMediaStorage::logicalKey)).distinct();
+    }
+
+    @Override
+    public void quarantine(String key) throws IOException {
+        Optional<String> archived = archivedKey(key);
+        if (delegate.exists(key)) {
+            delegate.quarantine(key);
+            if (archived.isPresent()) {
+                archive.delete(archived.get());
+            }
+        } else if (archived.isPresent()) {
+            archive.quarantine(archived.get());
+        } else {
+            throw new NoSuchFileException(key);
+        }
+    }
+
+    @Override
+    public void restore(String key) throws IOException {
+        try {
+            delegate.restore(key);
+        } catch (NoSuchFileException e) {
+            try {
+                archive.restore(key + GZIP_SUFFIX);
+            } catch (NoSuchFileException notCompressed) {
+                archive.restore(key);
+            }
+        }
+    }
+
+    @Override
+    public Stream<StoredFile> quarantined() throws IOException {
+        return Stream.concat(delegate.quarantined(), archive.quarantined()
+                .map(file -> new StoredFile(logicalKey(file.key()), file.size(), file.lastModified())));
+    }
+
+    @Override
+    public boolean deleteQuarantined(String key) throws IOException {
+        boolean deleted = delegate.deleteQuarantined(key);
+        deleted |= archive.deleteQuarantined(key + GZIP_SUFFIX);
+        deleted |= archive.deleteQuarantined(key);
+        return deleted;
+    }
+
+    // Remontée à la lecture ; deux lectures simultanées écrivent le même contenu, la dernière publication gagne
+    private void promoteIfArchived(String key) throws IOException {
+        if (delegate.exists(key)) {
+            return;
+        }
+        Optional<String> archived = archivedKey(key);
+        if (archived.isEmpty()) {
+            return;
+        }
+        try (InputStream in = archive.open(archived.get())) {
+            delegate.write(key, archived.get().endsWith(GZIP_SUFFIX) ? new GZIPInputStream(in) : in);
+        }
+        log.debug("Promoted archived media file {}", key);
+    }
+
+    // Nom dans l'archive : compressé ou non selon la configuration au moment de l'archivage
+    private Optional<String> archivedKey(String key) {
+        if (archive.exists(key + GZIP_SUFFIX)) {
+            return Optional.of(key + GZIP_SUFFIX);
+        }
+        return archive.exists(key) ? Optional.of(key) : Optional.empty();
+    }
+
+    private static String logicalKey(String archiveKey) {
+        return archiveKey.endsWith(GZIP_SUFFIX)
+                ? archiveKey.substring(0, archiveKey.length() - GZIP_SUFFIX.length())
+                : archiveKey;
+    }
+
+    // Compressé dans un fichier temporaire puis importé : jamais le fichier entier en mémoire
+    private void archiveCompressed(String key, InputStream in) throws IOException {
+        Path compressed = Files.createTempFile("demote-", GZIP_SUFFIX);
+        try {
+            try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(compressed))) {
+                in.transferTo(out);
+            }
+            archive.importFile(key + GZIP_SUFFIX, compressed);
+        } finally {
+            Files.deleteIfExists(compressed);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.buy01.media.storage;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.function.LongConsumer;
+
+// Décorateur mesurant la durée des écritures (en nanosecondes).
+// Le temps passé à attendre la source (client lent sur un upload en flux) est exclu : seul le stockage est mesuré
+public class WriteTimingMediaStorage extends DelegatingMediaStorage {
+
+    private final LongConsumer writeListener;
+
+    public WriteTimingMediaStorage(MediaStorage delegate, LongConsumer writeListener) {
+        super(delegate);
+        this.writeListener = writeListener;
+    }
+
+    @Override
+    public long write(String key, InputStream content) throws IOException {
+        SourceTimingInputStream source = new SourceTimingInputStream(content);
+        long start = System.nanoTime();
+        try {
+            return delegate.write(key, source);
+        } finally {
+            writeListener.accept(Math.max(0, System.nanoTime() - start - source.readNanos));
+        }
+    }
+
+    // Source déjà sur disque : un déplacement, entièrement du côté du stockage
+    @Override
+    public long importFile(String key, Path source) throws IOException {
+        long start = System.nanoTime();
+        try {
+            return delegate.importFile(key, source);
+        } finally {
+            writeListener.accept(System.nanoTime() - start);
+        }
+    }
+
+    private static final class SourceTimingInputStream extends FilterInputStream {
+
+        private long readNanos;
+
+        private SourceTimingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            long start = System.nanoTime();
+            try {
+                return super.read();
+            } finally {
+                readNanos += System.nanoTime() - start;
+            }
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            long start = System.nanoTime();
+            try {
+                return super.read(b, off, len);
+            } finally {
+                readNanos += System.nanoTime() - start;
+            }
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long start = System.nanoTime();
+            try {
+                return super.skip(n);
+            } finally {
+                readNanos += System.nanoTime() - start;
+            }
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.buy01.media.admission;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UploadAdmissionControlTest {
+
+    private static final long MILLIS = 1_000_000L;
+
+    private UploadAdmissionControl newControl() {
+        return new UploadAdmissionControl(new SimpleMeterRegistry(), 8, 4,
+                Duration.ofMillis(50), Duration.ofMillis(200));
+    }
+
+    @Test
+    void limitFollowsWriteLatency() {
+        UploadAdmissionControl control = newControl();
+        assertEquals(8, control.currentLimit());
+
+        control.recordWriteLatency(100 * MILLIS);
+        assertEquals(8, control.currentLimit());
+
+        // Premier échantillon pris tel quel, puis moyenne pondérée (0.2)
+        UploadAdmissionControl slow = newControl();
+        slow.recordWriteLatency(800 * MILLIS);
+        assertEquals(800, slow.writeLatencyMillis(), 0.001);
+        assertEquals(2, slow.currentLimit());
+        slow.recordWriteLatency(300 * MILLIS);
+        assertEquals(700, slow.writeLatencyMillis(), 0.001);
+    }
+
+    @Test
+    void concurrentSamplesKeepTheAverageWithinTheirRange() throws Exception {
+        UploadAdmissionControl control = newControl();
+        control.recordWriteLatency(100 * MILLIS);
+
+        int threads = 8;
+        int samples = 2000;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            long sample = (t % 2 == 0 ? 100 : 300) * MILLIS;
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < samples; i++) {
+                    control.recordWriteLatency(sample);
+                }
+            });
+            worker.start();
+            workers.add(worker);
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join(TimeUnit.SECONDS.toMillis(10));
+        }
+
+        double latency = control.writeLatencyMillis();
+        assertTrue(latency >= 100 && latency <= 300, "latency " + latency);
+    }
+
+    @Test
+    void queueIsBoundedAndTimesOut() throws Exception {
+        UploadAdmissionControl control = new UploadAdmissionControl(new SimpleMeterRegistry(), 1, 0,
+                Duration.ofMillis(20), Duration.ofMillis(200));
+        assertTrue(control.tryAdmit());
+        assertFalse(control.tryAdmit());
+        control.release();
+        assertTrue(control.tryAdmit());
+        control.release();
+        assertEquals(0, control.inFlight());
+    }
+}
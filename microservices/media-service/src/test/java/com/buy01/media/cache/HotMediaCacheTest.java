@@ -0,0 +1,153 @@
+package com.buy01.media.cache;
+
+import com.buy01.media.storage.DelegatingMediaStorage;
+import com.buy01.media.storage.InMemoryMediaStorage;
+import com.buy01.media.storage.MediaStorage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HotMediaCacheTest {
+
+    private final InMemoryMediaStorage storage = new InMemoryMediaStorage();
+
+    @Test
+    void loadedFileIsServedFromMemory() throws Exception {
+        write("a.jpg", "abcd");
+        HotMediaCache cache = cache(storage, 1024);
+
+        assertNull(cache.get("a.jpg|a.jpg"));
+        HotMediaCache.CachedMedia loaded = cache.load("a.jpg|a.jpg", "a.jpg", "image/jpeg");
+
+        assertNotNull(loaded);
+        assertEquals("abcd", text(cache.get("a.jpg|a.jpg")));
+        assertEquals(4, cache.sizeInBytes());
+    }
+
+    @Test
+    void invalidateDropsEverySizeOfAFile() throws Exception {
+        write("a.jpg", "abcd");
+        write("a_128.jpg", "ab");
+        HotMediaCache cache = cache(storage, 1024);
+        cache.load("a.jpg|a.jpg", "a.jpg", "image/jpeg");
+        cache.load("a.jpg|a_128.jpg", "a_128.jpg", "image/jpeg");
+
+        cache.invalidate("a.jpg");
+
+        assertNull(cache.get("a.jpg|a.jpg"));
+        assertNull(cache.get("a.jpg|a_128.jpg"));
+        assertEquals(0, cache.sizeInBytes());
+    }
+
+    @Test
+    void loadRacingAnInvalidationIsNotKept() throws Exception {
+        write("a.jpg", "abcd");
+        HotMediaCache[] holder = new HotMediaCache[1];
+        // Suppression du média entre la lecture du fichier et sa mise en cache
+        MediaStorage racing = new DelegatingMediaStorage(storage) {
+            @Override
+            public InputStream open(String key) throws IOException {
+                InputStream in = super.open(key);
+                holder[0].invalidate("a.jpg");
+                return in;
+            }
+        };
+        holder[0] = cache(racing, 1024);
+
+        assertNotNull(holder[0].load("a.jpg|a.jpg", "a.jpg", "image/jpeg"));
+        assertNull(holder[0].get("a.jpg|a.jpg"));
+        assertEquals(0, holder[0].sizeInBytes());
+    }
+
+    @Test
+    void rareFileDoesNotEvictFrequentOnes() throws Exception {
+        write("hot.jpg", "1234");
+        write("warm.jpg", "5678");
+        write("rare.jpg", "9012");
+        HotMediaCache cache = cache(storage, 8);
+        for (int i = 0; i < 3; i++) {
+            cache.get("hot.jpg|hot.jpg");
+            cache.get("warm.jpg|warm.jpg");
+        }
+        cache.load("hot.jpg|hot.jpg", "hot.jpg", "image/jpeg");
+        cache.load("warm.jpg|warm.jpg", "warm.jpg", "image/jpeg");
+
+        assertNull(cache.load("rare.jpg|rare.jpg", "rare.jpg", "image/jpeg"));
+        assertEquals(2, cache.entryCount());
+        assertEquals(8, cache.sizeInBytes());
+    }
+
+    @Test
+    void frequentFileEvictsWithinTheByteBound() throws Exception {
+        write("old.jpg", "1234");
+        write("new.jpg", "56789");
+        HotMediaCache cache = cache(storage, 8);
+        cache.load("old.jpg|old.jpg", "old.jpg", "image/jpeg");
+        for (int i = 0; i < 5; i++) {
+            cache.get("new.jpg|new.jpg");
+        }
+
+        assertNotNull(cache.load("new.jpg|new.jpg", "new.jpg", "image/jpeg"));
+        assertNull(cache.get("old.jpg|old.jpg"));
+        assertTrue(cache.sizeInBytes() <= 8);
+    }
+
+    @Test
+    void concurrentReadsAndLoadsKeepTheByteBound() throws Exception {
+        for (int i = 0; i < 20; i++) {
+            write(i + ".jpg", "1234");
+        }
+        HotMediaCache cache = cache(storage, 32);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                int seed = t;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 2_000; i++) {
+                        String file = (i * 7 + seed) % 20 + ".jpg";
+                        // Lectures sans verrou pendant les admissions et évictions des autres threads
+                        if (cache.get(file + "|" + file) == null) {
+                            cache.load(file + "|" + file, file, "image/jpeg");
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertTrue(cache.sizeInBytes() <= 32);
+        assertEquals(4L * cache.entryCount(), cache.sizeInBytes());
+    }
+
+    private HotMediaCache cache(MediaStorage mediaStorage, long maxBytes) {
+        return new HotMediaCache(mediaStorage, new SimpleMeterRegistry(), true, maxBytes, maxBytes);
+    }
+
+    private void write(String key, String content) throws IOException {
+        storage.write(key, new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static String text(HotMediaCache.CachedMedia cached) {
+        byte[] bytes = new byte[cached.content().remaining()];
+        cached.content().duplicate().get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
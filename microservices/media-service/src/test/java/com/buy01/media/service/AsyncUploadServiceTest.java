@@ -0,0 +1,152 @@
+package com.buy01.media.service;
+
+import com.buy01.media.dto.MediaStatusResponse;
+import com.buy01.media.exception.ServiceUnavailableException;
+import com.buy01.media.exception.UnauthorizedException;
+import com.buy01.media.model.Media;
+import com.buy01.media.model.MediaStatus;
+import com.buy01.media.repository.MediaRepository;
+import com.mongodb.client.result.UpdateResult;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class AsyncUploadServiceTest {
+
+    private static final String USER = "seller-1";
+
+    @TempDir
+    Path stagingDir;
+
+    private final MediaService mediaService = mock(MediaService.class);
+    private final MediaRepository repository = mock(MediaRepository.class);
+    private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    private final List<Runnable> submitted = new ArrayList<>();
+    private boolean queueFull;
+    private AsyncUploadService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new AsyncUploadService(mediaService, repository, mongoTemplate, task -> {
+            if (queueFull) {
+                throw new TaskRejectedException("queue full");
+            }
+            submitted.add(task);
+        }, stagingDir.toString(), Duration.ofHours(1), Duration.ofHours(1), Duration.ofSeconds(7));
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(Media.class)))
+                .thenReturn(UpdateResult.acknowledged(1, 1L, null));
+        when(mongoTemplate.updateMulti(any(Query.class), any(Update.class), eq(Media.class)))
+                .thenReturn(UpdateResult.acknowledged(0, 0L, null));
+    }
+
+    @Test
+    void acceptedUploadIsPersistedAsPending() {
+        MediaStatusResponse response = service.acceptUpload(USER, image(), "product-1");
+
+        assertEquals(MediaStatus.PENDING.name(), response.getStatus());
+        verify(repository).insert(argThat((Media media) -> media.getId().equals(response.getId())
+                && media.getStatus() == MediaStatus.PENDING && USER.equals(media.getUserId())));
+        assertEquals(1, submitted.size());
+        assertTrue(Files.exists(stagingDir.resolve(response.getId() + ".upload")));
+    }
+
+    @Test
+    void fullQueueRejectsTheUploadInsteadOfRunningItOnTheCaller() throws Exception {
+        queueFull = true;
+
+        ServiceUnavailableException e = assertThrows(ServiceUnavailableException.class,
+                () -> service.acceptUpload(USER, image(), "product-1"));
+
+        assertEquals(7, e.getRetryAfterSeconds());
+        verify(repository).deleteById(any());
+        verify(mediaService, never()).uploadStagedFile(any(), any(), any(), any(), any());
+        try (var staged = Files.list(stagingDir)) {
+            assertEquals(0, staged.count());
+        }
+    }
+
+    @Test
+    void failedCompletionIsRecordedOnlyOverAPendingDocument() {
+        when(mediaService.uploadStagedFile(any(), any(), any(), any(), any()))
+                .thenThrow(new RuntimeException("disk full"));
+        MediaStatusResponse response = service.acceptUpload(USER, image(), "product-1");
+
+        submitted.get(0).run();
+
+        verify(mongoTemplate).updateFirst(argThat((Query query) ->
+                        query.getQueryObject().get("_id").equals(response.getId())
+                                && "PENDING".equals(String.valueOf(query.getQueryObject().get("status")))),
+                argThat((Update update) -> "disk full".equals(update.getUpdateObject()
+                        .get("$set", Document.class).get("statusError"))),
+                eq(Media.class));
+        assertFalse(Files.exists(stagingDir.resolve(response.getId() + ".upload")));
+    }
+
+    @Test
+    void statusIsReadFromTheDocumentSoAnyInstanceCanAnswer() {
+        Media pending = media(MediaStatus.PENDING);
+        when(repository.findById("m1")).thenReturn(Optional.of(pending));
+        assertEquals("PENDING", service.getStatus(USER, "m1").getStatus());
+
+        Media failed = media(MediaStatus.FAILED);
+        failed.setStatusError("disk full");
+        when(repository.findById("m1")).thenReturn(Optional.of(failed));
+        MediaStatusResponse response = service.getStatus(USER, "m1");
+        assertEquals("FAILED", response.getStatus());
+        assertEquals("disk full", response.getError());
+
+        // Média enregistré : le document ne porte plus de statut
+        when(repository.findById("m1")).thenReturn(Optional.of(media(null)));
+        assertEquals("READY", service.getStatus(USER, "m1").getStatus());
+
+        assertThrows(UnauthorizedException.class, () -> service.getStatus("someone-else", "m1"));
+    }
+
+    @Test
+    void sweepRemovesStaleStagedFilesAndFailsInterruptedUploads() throws Exception {
+        Path stale = Files.writeString(stagingDir.resolve("old.upload"), "x");
+        Files.setLastModifiedTime(stale, FileTime.fromMillis(System.currentTimeMillis() - Duration.ofHours(2).toMillis()));
+        Path recent = Files.writeString(stagingDir.resolve("new.upload"), "x");
+
+        service.sweepStaleUploads();
+
+        assertFalse(Files.exists(stale));
+        assertTrue(Files.exists(recent));
+        verify(mongoTemplate).updateMulti(argThat((Query query) ->
+                "PENDING".equals(String.valueOf(query.getQueryObject().get("status")))), any(Update.class), eq(Media.class));
+    }
+
+    private static MockMultipartFile image() {
+        return new MockMultipartFile("file", "photo.jpg", "image/jpeg", new byte[]{(byte) 0xFF, (byte) 0xD8, 1, 2});
+    }
+
+    private static Media media(MediaStatus status) {
+        Media media = new Media();
+        media.setId("m1");
+        media.setUserId(USER);
+        media.setStatus(status);
+        media.setCreatedAt(LocalDateTime.now());
+        media.setStatusUpdatedAt(LocalDateTime.now());
+        return media;
+    }
+}
@@ -0,0 +1,54 @@
+package com.buy01.media.service;
+
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoundedImageDecoderTest {
+
+    @Test
+    void imageDeclaringTooManyPixelsIsRejectedBeforeDecoding() throws Exception {
+        byte[] png = png(8, 8);
+        // IHDR réécrit : 30000×30000 annoncés pour quelques octets de données
+        writeInt(png, 16, 30_000);
+        writeInt(png, 20, 30_000);
+
+        assertThrows(BoundedImageDecoder.ImageTooLargeException.class,
+                () -> BoundedImageDecoder.decode(new ByteArrayInputStream(png), 40_000_000, 0));
+    }
+
+    @Test
+    void decodingIsSubsampledTowardsTheTargetWidth() throws Exception {
+        BoundedImageDecoder.DecodedImage decoded =
+                BoundedImageDecoder.decode(new ByteArrayInputStream(png(1000, 500)), 40_000_000, 200);
+
+        assertEquals(1000, decoded.sourceWidth());
+        assertEquals(500, decoded.sourceHeight());
+        assertEquals(200, decoded.image().getWidth());
+        assertEquals(100, decoded.image().getHeight());
+    }
+
+    @Test
+    void unknownFormatHasNoDecoder() throws Exception {
+        assertNull(BoundedImageDecoder.decode(new ByteArrayInputStream(new byte[] {1, 2, 3, 4}), 100, 0));
+    }
+
+    private static byte[] png(int width, int height) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB), "png", out);
+        return out.toByteArray();
+    }
+
+    private static void writeInt(byte[] data, int offset, int value) {
+        data[offset] = (byte) (value >>> 24);
+        data[offset + 1] = (byte) (value >>> 16);
+        data[offset + 2] = (byte) (value >>> 8);
+        data[offset + 3] = (byte) value;
+    }
+}
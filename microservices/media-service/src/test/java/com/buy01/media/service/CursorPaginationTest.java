@@ -0,0 +1,68 @@
+package com.buy01.media.service;
+
+import com.buy01.media.dto.CursorPage;
+import com.buy01.media.exception.BadRequestException;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.query.Criteria;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CursorPaginationTest {
+
+    private record Row(LocalDateTime createdAt, String id) {
+    }
+
+    private static final LocalDateTime T = LocalDateTime.of(2024, 5, 1, 12, 0);
+
+    @Test
+    void equalCreatedAtIsBrokenByIdDescending() {
+        // Trois lignes à la même seconde : le curseur reprend après l'id, pas après la date
+        List<Row> rows = List.of(new Row(T, "c"), new Row(T, "b"), new Row(T, "a"));
+
+        CursorPage<String> page = CursorPagination.page(rows, 2, Row::createdAt, Row::id, Row::id);
+        assertEquals(List.of("c", "b"), page.getItems());
+        assertNotNull(page.getNextCursor());
+
+        Document query = CursorPagination.query(Criteria.where("productId").is("p"), page.getNextCursor(), 2)
+                .getQueryObject();
+        List<?> or = (List<?>) ((Document) ((List<?>) query.get("$and")).get(1)).get("$or");
+        assertEquals(new Document("$lt", T), ((Document) or.get(0)).get("createdAt"));
+        Document tie = (Document) or.get(1);
+        assertEquals(T, tie.get("createdAt"));
+        assertEquals(new Document("$lt", "b"), tie.get("id"));
+    }
+
+    @Test
+    void lastPageHasNoCursor() {
+        CursorPage<String> page = CursorPagination.page(List.of(new Row(T, "a")), 2, Row::createdAt, Row::id, Row::id);
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    void invalidOrTamperedCursorsAreRejected() {
+        Criteria filter = Criteria.where("productId").is("p");
+        for (String cursor : List.of("not base64!", encode("no-separator"), encode("|id"), encode("2024-05-01T12:00|"),
+                encode("yesterday|id"))) {
+            assertThrows(BadRequestException.class, () -> CursorPagination.query(filter, cursor, 20), cursor);
+        }
+    }
+
+    @Test
+    void limitDefaultsAndIsBounded() {
+        assertEquals(CursorPagination.DEFAULT_LIMIT, CursorPagination.pageSize(null));
+        assertEquals(1, CursorPagination.pageSize(0));
+        assertEquals(CursorPagination.MAX_LIMIT, CursorPagination.pageSize(10_000));
+        assertEquals(CursorPagination.DEFAULT_LIMIT + 1,
+                CursorPagination.query(Criteria.where("userId").is("u"), null, null).getLimit());
+    }
+
+    private static String encode(String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
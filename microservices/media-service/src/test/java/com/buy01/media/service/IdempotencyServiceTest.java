@@ -0,0 +1,139 @@
+package com.buy01.media.service;
+
+import com.buy01.media.exception.ConflictException;
+import com.buy01.media.model.IdempotencyRecord;
+import com.buy01.media.model.IdempotencyStatus;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.http.ResponseEntity;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class IdempotencyServiceTest {
+
+    private static final String USER = "user-1";
+    private static final String KEY = "key-1";
+
+    private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final IdempotencyService service =
+            new IdempotencyService(mongoTemplate, objectMapper, 100, Duration.ofMinutes(5));
+
+    @Test
+    void failedAttemptReleasesOnlyItsOwnClaim() {
+        AtomicInteger calls = new AtomicInteger();
+
+        assertThrows(IllegalStateException.class, () -> service.execute("POST /x", USER, KEY, "req",
+                String.class, () -> {
+                    calls.incrementAndGet();
+                    throw new IllegalStateException("boom");
+                }));
+
+        assertEquals(1, calls.get());
+        verify(mongoTemplate).insert(any(IdempotencyRecord.class));
+        // Suppression conditionnée au lockedAt posé par cette tentative : un repreneur garde sa réservation
+        verify(mongoTemplate).remove(argThat((Query query) -> query.getQueryObject().containsKey("lockedAt")
+                && query.getQueryObject().get("_id").equals("POST /x:" + USER + ":" + KEY)), eq(IdempotencyRecord.class));
+    }
+
+    @Test
+    void takeoverReleasesWithTheNewLockTime() {
+        when(mongoTemplate.insert(any(IdempotencyRecord.class))).thenThrow(new DuplicateKeyException("dup"));
+        IdempotencyRecord stale = inProgress(fingerprintOf("req"), LocalDateTime.now().minusHours(1));
+        when(mongoTemplate.findById(any(), eq(IdempotencyRecord.class))).thenReturn(stale);
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(IdempotencyRecord.class))).thenReturn(stale);
+
+        assertThrows(IllegalStateException.class, () -> service.execute("POST /x", USER, KEY, "req",
+                String.class, () -> {
+                    throw new IllegalStateException("boom");
+                }));
+
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).findAndModify(any(Query.class), update.capture(), any(FindAndModifyOptions.class),
+                eq(IdempotencyRecord.class));
+        Object takenAt = update.getValue().getUpdateObject().get("$set", Document.class).get("lockedAt");
+        verify(mongoTemplate).remove(argThat((Query query) -> takenAt.equals(query.getQueryObject().get("lockedAt"))),
+                eq(IdempotencyRecord.class));
+    }
+
+    @Test
+    void claimRetriesABoundedNumberOfTimes() {
+        // Clé supprimée à chaque relecture : plus de récursion infinie, un 409 après quelques essais
+        when(mongoTemplate.insert(any(IdempotencyRecord.class))).thenThrow(new DuplicateKeyException("dup"));
+        when(mongoTemplate.findById(any(), eq(IdempotencyRecord.class))).thenReturn(null);
+        AtomicInteger calls = new AtomicInteger();
+
+        assertThrows(ConflictException.class, () -> service.execute("POST /x", USER, KEY, "req",
+                String.class, () -> {
+                    calls.incrementAndGet();
+                    return ResponseEntity.ok("done");
+                }));
+
+        assertEquals(0, calls.get());
+        verify(mongoTemplate, times(3)).insert(any(IdempotencyRecord.class));
+    }
+
+    @Test
+    void claimSucceedsOnceTheFailedAttemptHasReleasedTheKey() {
+        when(mongoTemplate.insert(any(IdempotencyRecord.class)))
+                .thenThrow(new DuplicateKeyException("dup"))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+        when(mongoTemplate.findById(any(), eq(IdempotencyRecord.class))).thenReturn(null);
+
+        ResponseEntity<String> response = service.execute("POST /x", USER, KEY, "req", String.class,
+                () -> ResponseEntity.ok("done"));
+
+        assertEquals("done", response.getBody());
+        verify(mongoTemplate, times(2)).insert(any(IdempotencyRecord.class));
+    }
+
+    @Test
+    void completedRequestIsReplayed() throws Exception {
+        when(mongoTemplate.insert(any(IdempotencyRecord.class))).thenThrow(new DuplicateKeyException("dup"));
+        IdempotencyRecord completed = inProgress(fingerprintOf("req"), LocalDateTime.now());
+        completed.setStatus(IdempotencyStatus.COMPLETED);
+        completed.setResponseStatus(201);
+        completed.setResponseBody(objectMapper.writeValueAsString("first"));
+        when(mongoTemplate.findById(any(), eq(IdempotencyRecord.class))).thenReturn(completed);
+
+        ResponseEntity<String> response = service.execute("POST /x", USER, KEY, "req", String.class,
+                () -> fail("must not run twice"));
+
+        assertEquals(201, response.getStatusCode().value());
+        assertEquals("first", response.getBody());
+        assertEquals("true", response.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+    }
+
+    private IdempotencyRecord inProgress(String requestHash, LocalDateTime lockedAt) {
+        return new IdempotencyRecord("POST /x:" + USER + ":" + KEY, requestHash, IdempotencyStatus.IN_PROGRESS,
+                null, null, null, lockedAt, lockedAt);
+    }
+
+    // Même empreinte que le service : SHA-256 du JSON de la requête
+    private String fingerprintOf(Object request) {
+        try {
+            byte[] json = objectMapper.writeValueAsString(request).getBytes(StandardCharsets.UTF_8);
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(json));
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.buy01.media.service;
+
+import com.buy01.media.storage.FileSystemMediaStorage;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImageOptimizerTest {
+
+    @TempDir
+    Path root;
+
+    @Test
+    void imageAboveThePixelCapIsKeptWithoutDecoding() throws Exception {
+        FileSystemMediaStorage storage = new FileSystemMediaStorage(root, false);
+        byte[] png = png(8, 8);
+        // IHDR réécrit : 30000×30000 annoncés
+        writeInt(png, 16, 30_000);
+        writeInt(png, 20, 30_000);
+        storage.write("bomb.png", new ByteArrayInputStream(png));
+
+        ImageOptimizer optimizer = new ImageOptimizer(storage, true, 0.82f, true, 40_000_000);
+
+        assertEquals(0, optimizer.optimize("bomb.png", "image/png"));
+        assertEquals(png.length, storage.stat("bomb.png").orElseThrow().size());
+    }
+
+    @Test
+    void smallerReEncodingReplacesTheFile() throws Exception {
+        FileSystemMediaStorage storage = new FileSystemMediaStorage(root, false);
+        BufferedImage image = new BufferedImage(200, 100, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(Color.ORANGE);
+        graphics.fillRect(0, 0, 200, 100);
+        graphics.dispose();
+        ByteArrayOutputStream jpeg = new ByteArrayOutputStream();
+        ImageIO.write(image, "jpg", jpeg);
+        // Métadonnées inutiles gonflant l'original : le ré-encodage est forcément plus petit
+        byte[] original = withComment(jpeg.toByteArray(), 20_000);
+        storage.write("photo.jpg", new ByteArrayInputStream(original));
+
+        ImageOptimizer optimizer = new ImageOptimizer(storage, true, 0.82f, true, 40_000_000);
+        long saved = optimizer.optimize("photo.jpg", "image/jpeg");
+
+        assertTrue(saved > 0);
+        assertEquals(original.length - saved, storage.stat("photo.jpg").orElseThrow().size());
+    }
+
+    private static byte[] png(int width, int height) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB), "png", out);
+        return out.toByteArray();
+    }
+
+    // Segment COM inséré juste après SOI
+    private static byte[] withComment(byte[] jpeg, int size) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(jpeg, 0, 2);
+        out.write(0xFF);
+        out.write(0xFE);
+        out.write((size + 2) >>> 8);
+        out.write((size + 2) & 0xFF);
+        out.write(new byte[size], 0, size);
+        out.write(jpeg, 2, jpeg.length - 2);
+        return out.toByteArray();
+    }
+
+    private static void writeInt(byte[] data, int offset, int value) {
+        data[offset] = (byte) (value >>> 24);
+        data[offset + 1] = (byte) (value >>> 16);
+        data[offset + 2] = (byte) (value >>> 8);
+        data[offset + 3] = (byte) value;
+    }
+}
@@ -0,0 +1,33 @@
+package com.buy01.media.service;
+
+import com.buy01.media.model.Media;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class MediaAccessTrackerTest {
+
+    private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    private final BulkOperations bulk = mock(BulkOperations.class);
+    private final MediaAccessTracker tracker = new MediaAccessTracker(mongoTemplate, true);
+
+    @Test
+    void failedFlushKeepsTheAccessesForTheNextOne() {
+        when(mongoTemplate.bulkOps(any(BulkOperations.BulkMode.class), eq(Media.class))).thenReturn(bulk);
+        when(bulk.execute()).thenThrow(new DataAccessResourceFailureException("mongo down")).thenReturn(null);
+        tracker.recordAccess("a.jpg");
+
+        tracker.flush();
+        assertTrue(tracker.accessedSince("a.jpg", 0));
+
+        tracker.flush();
+        assertFalse(tracker.accessedSince("a.jpg", 0));
+        verify(bulk, times(2)).execute();
+    }
+}
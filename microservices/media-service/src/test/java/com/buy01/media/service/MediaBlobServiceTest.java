@@ -0,0 +1,82 @@
+package com.buy01.media.service;
+
+import com.buy01.media.model.MediaBlob;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class MediaBlobServiceTest {
+
+    private static final String DIGEST = "ab12";
+
+    private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    private final MediaBlobService service = new MediaBlobService(mongoTemplate);
+
+    @Test
+    void eachBlobCreationGetsItsOwnFileName() {
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(MediaBlob.class))).thenReturn(blob(1));
+
+        service.acquire(DIGEST, ".jpg", 10);
+        service.acquire(DIGEST, ".jpg", 10);
+
+        ArgumentCaptor<Update> updates = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate, times(2)).findAndModify(any(Query.class), updates.capture(),
+                any(FindAndModifyOptions.class), eq(MediaBlob.class));
+        List<String> names = updates.getAllValues().stream().map(MediaBlobServiceTest::insertedFileName).toList();
+
+        // Un blob recréé après suppression ne reprend jamais le nom du fichier en cours d'effacement
+        assertNotEquals(names.get(0), names.get(1));
+        names.forEach(name -> {
+            assertTrue(name.startsWith(DIGEST + "-"), name);
+            assertTrue(name.endsWith(".jpg"), name);
+        });
+    }
+
+    @Test
+    void releaseKeepsBlobWhileReferenced() {
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(MediaBlob.class))).thenReturn(blob(1));
+
+        assertTrue(service.release(DIGEST).isEmpty());
+        verify(mongoTemplate, never()).findAndRemove(any(Query.class), eq(MediaBlob.class));
+    }
+
+    @Test
+    void releaseReturnsBlobOnlyWhenItsDocumentIsRemoved() {
+        MediaBlob last = blob(0);
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(MediaBlob.class))).thenReturn(last);
+        when(mongoTemplate.findAndRemove(any(Query.class), eq(MediaBlob.class))).thenReturn(last, (MediaBlob) null);
+
+        assertEquals(Optional.of(last), service.release(DIGEST));
+        // Référence reprise entre le décrément et la suppression : le fichier ne doit pas être effacé
+        assertTrue(service.release(DIGEST).isEmpty());
+    }
+
+    @Test
+    void releaseOfUnknownBlobIsIgnored() {
+        assertTrue(service.release(DIGEST).isEmpty());
+    }
+
+    private static String insertedFileName(Update update) {
+        return ((Document) update.getUpdateObject().get("$setOnInsert")).getString("fileName");
+    }
+
+    private static MediaBlob blob(long refCount) {
+        return new MediaBlob(DIGEST, DIGEST + "-gen.jpg", 10L, refCount, LocalDateTime.now());
+    }
+}
@@ -0,0 +1,157 @@
+package com.buy01.media.service;
+
+import com.buy01.media.cache.HotMediaCache;
+import com.buy01.media.dto.MediaBatchItemResult;
+import com.buy01.media.dto.MediaBatchUploadResponse;
+import com.buy01.media.exception.ConflictException;
+import com.buy01.media.model.Media;
+import com.buy01.media.model.MediaBlob;
+import com.buy01.media.repository.MediaRepository;
+import com.buy01.media.storage.FileSystemMediaStorage;
+import com.mongodb.bulk.BulkWriteError;
+import org.bson.BsonDocument;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.multipart.MultipartFile;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class MediaServiceTest {
+
+    private static final String USER = "seller-1";
+
+    @TempDir
+    Path root;
+
+    private final MediaRepository mediaRepository = mock(MediaRepository.class);
+    private final MediaBlobService mediaBlobService = mock(MediaBlobService.class);
+    private final ImageOptimizer imageOptimizer = mock(ImageOptimizer.class);
+    private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    private final ImageMetadataReader imageMetadataReader = mock(ImageMetadataReader.class);
+    private FileSystemMediaStorage storage;
+    private MediaService service;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() throws Exception {
+        storage = new FileSystemMediaStorage(root.resolve("uploads"), false);
+        MediaRenditionService renditions = new MediaRenditionService(mongoTemplate, storage);
+        ReflectionTestUtils.setField(renditions, "renditionWidths", new int[]{128, 400});
+        service = new MediaService(mediaRepository, mock(KafkaTemplate.class), mediaBlobService, renditions, storage,
+                mock(HotMediaCache.class), imageOptimizer, imageMetadataReader, mongoTemplate, Runnable::run);
+        ReflectionTestUtils.setField(service, "contentAddressed", true);
+    }
+
+    @Test
+    void failedPublicationGivesTheBlobReferenceBack() throws Exception {
+        when(mediaBlobService.acquire(anyString(), anyString(), anyLong())).thenReturn(blob(1));
+        when(imageOptimizer.optimize(anyString(), anyString())).thenThrow(new IllegalStateException("disk full"));
+        Path file = root.resolve("assembled");
+        Files.write(file, png());
+
+        assertThrows(IllegalStateException.class, () -> service.uploadAssembledFile(USER, file, "a.png", "p1"));
+
+        ArgumentCaptor<String> digest = ArgumentCaptor.forClass(String.class);
+        // Référence prise puis rendue sous la même empreinte : aucun blob ne reste compté sans Media
+        verify(mediaBlobService).acquire(digest.capture(), anyString(), anyLong());
+        verify(mediaBlobService).release(digest.getValue());
+        verify(mediaRepository, never()).save(any(Media.class));
+    }
+
+    @Test
+    void lastReferenceDeletesEveryConfiguredRendition() throws Exception {
+        Media media = new Media();
+        media.setId("m1");
+        media.setUserId(USER);
+        media.setContentHash("abc");
+        media.setImagePath("/uploads/abc-1.png");
+        media.setRenditionWidths(List.of());  // déclinaisons générées pour un autre Media du même blob
+        when(mediaRepository.findById("m1")).thenReturn(Optional.of(media));
+        when(mediaBlobService.release("abc")).thenReturn(Optional.of(blob(0)));
+        for (String key : List.of("abc-1.png", "abc-1_128.png", "abc-1_400.png")) {
+            storage.write(key, new ByteArrayInputStream(new byte[]{1}));
+        }
+
+        service.deleteMedia(USER, "m1");
+
+        assertEquals(List.of(), storage.keys().toList());
+    }
+
+    @Test
+    void stagedUploadNoLongerPendingIsNotResurrected() throws Exception {
+        ReflectionTestUtils.setField(service, "contentAddressed", false);
+        when(imageMetadataReader.read(anyString(), anyString()))
+                .thenReturn(new ImageMetadataReader.ImageMetadata(4, 4, null));
+        // Document passé FAILED (balayage) ou purgé pendant le traitement : rien à remplacer
+        when(mongoTemplate.findAndReplace(any(Query.class), any(Media.class))).thenReturn(null);
+        Path file = root.resolve("staged");
+        Files.write(file, png());
+
+        assertThrows(ConflictException.class, () -> service.uploadStagedFile("m1", USER, file, "a.png", "p1"));
+
+        verify(mongoTemplate).findAndReplace(argThat((Query query) ->
+                "PENDING".equals(String.valueOf(query.getQueryObject().get("status")))), any(Media.class));
+        verify(mediaRepository, never()).save(any(Media.class));
+        assertEquals(List.of(), storage.keys().toList());
+    }
+
+    @Test
+    void batchDiscardsOnlyTheDocumentsMongoRefused() throws Exception {
+        ReflectionTestUtils.setField(service, "contentAddressed", false);
+        when(imageMetadataReader.read(anyString(), anyString()))
+                .thenReturn(new ImageMetadataReader.ImageMetadata(4, 4, null));
+        BulkOperations bulk = mock(BulkOperations.class);
+        when(mongoTemplate.bulkOps(any(BulkOperations.BulkMode.class), eq(Media.class))).thenReturn(bulk);
+        BulkOperationException refused = mock(BulkOperationException.class);
+        when(refused.getErrors()).thenReturn(List.of(new BulkWriteError(11000, "duplicate key", new BsonDocument(), 1)));
+        when(bulk.execute()).thenThrow(refused);
+        List<MultipartFile> files = List.of(
+                new MockMultipartFile("files", "a.png", "image/png", png()),
+                new MockMultipartFile("files", "b.png", "image/png", png()),
+                new MockMultipartFile("files", "c.png", "image/png", png()));
+
+        MediaBatchUploadResponse response = service.uploadMediaBatch(USER, files, "p1");
+
+        assertEquals(2, response.getSucceeded());
+        assertEquals(1, response.getFailed());
+        assertEquals(List.of(true, false, true), response.getResults().stream().map(MediaBatchItemResult::isSuccess).toList());
+        // Seul le fichier du document refusé est supprimé ; les deux autres restent servis
+        assertEquals(2, storage.keys().count());
+        assertTrue(response.getResults().stream().filter(MediaBatchItemResult::isSuccess)
+                .allMatch(result -> result.getMedia().getId() != null));
+    }
+
+    private static MediaBlob blob(int refCount) {
+        MediaBlob blob = new MediaBlob();
+        blob.setId("abc");
+        blob.setFileName("abc-1.png");
+        blob.setRefCount((long) refCount);
+        return blob;
+    }
+
+    private static byte[] png() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(4, 4, BufferedImage.TYPE_INT_RGB), "png", out);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,204 @@
+package com.buy01.media.service;
+
+import com.buy01.media.dto.MediaUploadResponse;
+import com.buy01.media.exception.BadRequestException;
+import com.buy01.media.model.UploadSession;
+import com.buy01.media.model.UploadSessionStatus;
+import com.buy01.media.repository.UploadSessionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import com.mongodb.client.result.UpdateResult;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class ResumableUploadServiceTest {
+
+    private static final String USER = "seller-1";
+    private static final String SESSION = "session-1";
+    private static final int CHUNK = 64 * 1024;
+
+    @TempDir
+    Path chunkRoot;
+
+    private final UploadSessionRepository repository = mock(UploadSessionRepository.class);
+    private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    private final MediaService mediaService = mock(MediaService.class);
+    private ResumableUploadService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new ResumableUploadService(repository, mongoTemplate, mediaService, chunkRoot.toString(),
+                DataSize.ofMegabytes(20), DataSize.ofBytes(CHUNK), Duration.ofHours(24), Duration.ofMinutes(15));
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(UploadSession.class)))
+                .thenReturn(UpdateResult.acknowledged(1, 1L, null));
+    }
+
+    @Test
+    void abortLosingTheClaimToCompletionKeepsTheChunks() throws Exception {
+        givenSession(UploadSessionStatus.OPEN, Set.of());
+        Files.createDirectories(chunkRoot.resolve(SESSION));
+        // completeSession a pris la session entre la lecture et la réservation
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(UploadSession.class))).thenReturn(null);
+
+        assertThrows(BadRequestException.class, () -> service.abortSession(USER, SESSION));
+
+        assertTrue(Files.exists(chunkRoot.resolve(SESSION)));
+        verify(repository, never()).deleteById(any());
+    }
+
+    @Test
+    void abortDeletesAClaimedSession() throws Exception {
+        UploadSession session = givenSession(UploadSessionStatus.OPEN, Set.of());
+        Files.createDirectories(chunkRoot.resolve(SESSION));
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(UploadSession.class))).thenReturn(session);
+
+        service.abortSession(USER, SESSION);
+
+        assertFalse(Files.exists(chunkRoot.resolve(SESSION)));
+        verify(repository).deleteById(SESSION);
+    }
+
+    @Test
+    void chunkOfTheWrongSizeIsRejected() {
+        givenSession(UploadSessionStatus.OPEN, Set.of());
+
+        assertThrows(BadRequestException.class,
+                () -> service.uploadChunk(USER, SESSION, 1, new ByteArrayInputStream(new byte[10])));
+        verify(mongoTemplate, never()).findAndModify(any(Query.class), any(Update.class),
+                any(FindAndModifyOptions.class), eq(UploadSession.class));
+    }
+
+    @Test
+    void completionAssemblesChunksInOrder() throws Exception {
+        byte[] content = new byte[CHUNK + 100];
+        Arrays.fill(content, (byte) 7);
+        content[0] = (byte) 0xFF;
+        content[1] = (byte) 0xD8;
+        content[2] = (byte) 0xFF;
+        content[CHUNK] = 42;
+
+        UploadSession open = givenSession(UploadSessionStatus.OPEN, Set.of());
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(UploadSession.class))).thenReturn(open);
+        // Dernier morceau envoyé en premier : l'ordre d'arrivée ne compte pas
+        service.uploadChunk(USER, SESSION, 1, new ByteArrayInputStream(content, CHUNK, 100));
+        service.uploadChunk(USER, SESSION, 0, new ByteArrayInputStream(content, 0, CHUNK));
+
+        open.setReceivedChunks(Set.of(0, 1));
+        UploadSession assembling = session(UploadSessionStatus.ASSEMBLING, Set.of(0, 1));
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(UploadSession.class))).thenReturn(assembling);
+        AtomicReference<byte[]> assembled = new AtomicReference<>();
+        when(mediaService.uploadAssembledFile(eq(USER), any(Path.class), eq("photo.jpg"), eq("product-1")))
+                .thenAnswer(invocation -> {
+                    assembled.set(Files.readAllBytes(invocation.getArgument(1)));
+                    return new MediaUploadResponse();
+                });
+
+        service.completeSession(USER, SESSION);
+
+        assertArrayEquals(content, assembled.get());
+        assertFalse(Files.exists(chunkRoot.resolve(SESSION)));
+    }
+
+    @Test
+    void concurrentCompletionIsRefused() {
+        givenSession(UploadSessionStatus.OPEN, Set.of(0, 1));
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(UploadSession.class))).thenReturn(null);
+
+        assertThrows(BadRequestException.class, () -> service.completeSession(USER, SESSION));
+        verifyNoInteractions(mediaService);
+    }
+
+    @Test
+    void completionCanTakeOverAnAssemblyWhoseLeaseExpired() {
+        givenSession(UploadSessionStatus.ASSEMBLING, Set.of(0, 1));
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(UploadSession.class))).thenReturn(null);
+
+        assertThrows(BadRequestException.class, () -> service.completeSession(USER, SESSION));
+
+        // Réservation : OPEN, ou ASSEMBLING avec un bail absent ou plus vieux que le délai de finalisation
+        verify(mongoTemplate).findAndModify(argThat((Query query) -> {
+                    String filter = query.getQueryObject().toString();
+                    return filter.contains("OPEN") && filter.contains("ASSEMBLING")
+                            && filter.contains("assemblingSince") && filter.contains("$not");
+                }), argThat((Update update) -> update.getUpdateObject().get("$set", Document.class)
+                        .containsKey("assemblingSince")),
+                any(FindAndModifyOptions.class), eq(UploadSession.class));
+    }
+
+    @Test
+    void purgeReclaimsExpiredSessionsStuckInAssembly() throws Exception {
+        UploadSession stuck = session(UploadSessionStatus.ASSEMBLING, Set.of(0, 1));
+        stuck.setExpiresAt(LocalDateTime.now().minusHours(1));
+        when(repository.findByExpiresAtBefore(any())).thenReturn(List.of(stuck));
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(UploadSession.class))).thenReturn(stuck);
+        Files.createDirectories(chunkRoot.resolve(SESSION));
+
+        service.purgeExpiredSessions();
+
+        verify(mongoTemplate).findAndModify(argThat((Query query) ->
+                        query.getQueryObject().toString().contains("assemblingSince")), any(Update.class),
+                any(FindAndModifyOptions.class), eq(UploadSession.class));
+        verify(repository).deleteById(SESSION);
+        assertFalse(Files.exists(chunkRoot.resolve(SESSION)));
+    }
+
+    @Test
+    void completionReportsMissingChunks() {
+        givenSession(UploadSessionStatus.OPEN, Set.of(1));
+
+        BadRequestException error = assertThrows(BadRequestException.class,
+                () -> service.completeSession(USER, SESSION));
+        assertTrue(error.getMessage().contains("[0]"), error.getMessage());
+    }
+
+    private UploadSession givenSession(UploadSessionStatus status, Set<Integer> received) {
+        UploadSession session = session(status, received);
+        when(repository.findById(SESSION)).thenReturn(Optional.of(session));
+        return session;
+    }
+
+    private static UploadSession session(UploadSessionStatus status, Set<Integer> received) {
+        UploadSession session = new UploadSession();
+        session.setId(SESSION);
+        session.setUserId(USER);
+        session.setProductId("product-1");
+        session.setFileName("photo.jpg");
+        session.setTotalSize((long) CHUNK + 100);
+        session.setChunkSize(CHUNK);
+        session.setTotalChunks(2);
+        session.setReceivedChunks(new HashSet<>(received));
+        session.setStatus(status);
+        session.setCreatedAt(LocalDateTime.now());
+        session.setExpiresAt(LocalDateTime.now().plusHours(1));
+        return session;
+    }
+}
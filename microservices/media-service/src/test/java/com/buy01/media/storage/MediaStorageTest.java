@@ -0,0 +1,118 @@
+package com.buy01.media.storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MediaStorageTest {
+
+    @TempDir
+    Path root;
+
+    @Test
+    void shardedLayoutRoundTrip() throws Exception {
+        assertRoundTrip(new FileSystemMediaStorage(root, true));
+    }
+
+    @Test
+    void inMemoryRoundTrip() throws Exception {
+        assertRoundTrip(new InMemoryMediaStorage());
+    }
+
+    @Test
+    void shardedLayoutFansOutAndMigratesFlatFiles() throws Exception {
+        Files.writeString(root.resolve("legacy.jpg"), "old");
+        FileSystemMediaStorage storage = new FileSystemMediaStorage(root, true);
+
+        // Lisible avant migration grâce au repli sur l'ancien emplacement
+        assertTrue(storage.exists("legacy.jpg"));
+
+        assertEquals(1, storage.migrateFlatFiles());
+        assertFalse(Files.exists(root.resolve("legacy.jpg")));
+        Path migrated = storage.localPath("legacy.jpg").orElseThrow();
+        assertEquals(3, root.relativize(migrated).getNameCount());
+        assertEquals("old", Files.readString(migrated));
+
+        // Les miniatures partagent le répertoire de leur original
+        storage.write("legacy_128.jpg", new ByteArrayInputStream(new byte[1]));
+        assertEquals(migrated.getParent(), storage.localPath("legacy_128.jpg").orElseThrow().getParent());
+    }
+
+    @Test
+    void rejectsKeysEscapingTheRoot() throws Exception {
+        FileSystemMediaStorage storage = new FileSystemMediaStorage(root, false);
+        assertThrows(IllegalArgumentException.class, () -> storage.exists("../etc/passwd"));
+    }
+
+    @Test
+    void quarantineKeepsTheOriginalModificationTime() throws Exception {
+        assertQuarantineRoundTrip(new FileSystemMediaStorage(root, true));
+        assertQuarantineRoundTrip(new InMemoryMediaStorage());
+    }
+
+    private void assertQuarantineRoundTrip(MediaStorage storage) throws Exception {
+        storage.write("q.jpg", new ByteArrayInputStream(new byte[3]));
+        storage.localPath("q.jpg").ifPresent(path -> setModified(path, 1_000_000L));
+        long modified = storage.stat("q.jpg").orElseThrow().lastModified();
+
+        long before = System.currentTimeMillis();
+        storage.quarantine("q.jpg");
+        assertFalse(storage.exists("q.jpg"));
+        try (Stream<StoredFile> quarantined = storage.quarantined()) {
+            StoredFile file = quarantined.findFirst().orElseThrow();
+            assertEquals("q.jpg", file.key());
+            // lastModified d'un fichier en quarantaine = date de mise à l'écart
+            assertTrue(file.lastModified() >= before);
+        }
+
+        // Remis en place avec sa date d'origine : l'ETag reste le même
+        storage.restore("q.jpg");
+        assertEquals(modified, storage.stat("q.jpg").orElseThrow().lastModified());
+        try (Stream<StoredFile> quarantined = storage.quarantined()) {
+            assertEquals(0, quarantined.count());
+        }
+
+        storage.quarantine("q.jpg");
+        assertTrue(storage.deleteQuarantined("q.jpg"));
+        assertFalse(storage.deleteQuarantined("q.jpg"));
+    }
+
+    private static void setModified(Path path, long millis) {
+        try {
+            Files.setLastModifiedTime(path, FileTime.fromMillis(millis));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void assertRoundTrip(MediaStorage storage) throws Exception {
+        byte[] content = "image-bytes".getBytes(StandardCharsets.UTF_8);
+        assertEquals(content.length, storage.write("a.jpg", new ByteArrayInputStream(content)));
+
+        try (InputStream in = storage.open("a.jpg")) {
+            assertArrayEquals(content, in.readAllBytes());
+        }
+        assertEquals(content.length, storage.stat("a.jpg").orElseThrow().size());
+
+        storage.move("a.jpg", "b.jpg");
+        assertFalse(storage.exists("a.jpg"));
+        try (Stream<String> keys = storage.keys()) {
+            assertEquals(List.of("b.jpg"), keys.toList());
+        }
+
+        assertTrue(storage.delete("b.jpg"));
+        assertTrue(storage.stat("b.jpg").isEmpty());
+    }
+}
@@ -0,0 +1,74 @@
+package com.buy01.media.storage;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TieredMediaStorageTest {
+
+    @Test
+    void compressedDemotionRoundTrips() throws Exception {
+        InMemoryMediaStorage hot = new InMemoryMediaStorage();
+        InMemoryMediaStorage archive = new InMemoryMediaStorage();
+        TieredMediaStorage storage = new TieredMediaStorage(hot, archive, true);
+        byte[] content = randomBytes(256 * 1024);
+        storage.write("a.png", new ByteArrayInputStream(content));
+
+        assertTrue(storage.demote("a.png"));
+        assertFalse(hot.exists("a.png"));
+        assertTrue(archive.exists("a.png.gz"));
+
+        try (InputStream in = storage.open("a.png")) {
+            assertArrayEquals(content, in.readAllBytes());
+        }
+        assertTrue(hot.exists("a.png"));
+    }
+
+    @Test
+    void readRacingADemotionPromotesTheFileBack() throws Exception {
+        InMemoryMediaStorage archive = new InMemoryMediaStorage();
+        AtomicBoolean demoteDuringOpen = new AtomicBoolean(true);
+        TieredMediaStorage[] tiered = new TieredMediaStorage[1];
+        // Le mover descend le fichier entre la vérification de open et l'ouverture effective
+        MediaStorage hot = new DelegatingMediaStorage(new InMemoryMediaStorage()) {
+            @Override
+            public InputStream open(String key) throws IOException {
+                if (demoteDuringOpen.getAndSet(false)) {
+                    tiered[0].demote(key);
+                }
+                return super.open(key);
+            }
+        };
+        tiered[0] = new TieredMediaStorage(hot, archive, false);
+        byte[] content = randomBytes(1024);
+        tiered[0].write("b.jpg", new ByteArrayInputStream(content));
+
+        try (InputStream in = tiered[0].open("b.jpg")) {
+            assertArrayEquals(content, in.readAllBytes());
+        }
+        assertTrue(archive.exists("b.jpg"));
+    }
+
+    @Test
+    void statAfterDemotionPromotes() throws Exception {
+        InMemoryMediaStorage hot = new InMemoryMediaStorage();
+        TieredMediaStorage storage = new TieredMediaStorage(hot, new InMemoryMediaStorage(), true);
+        storage.write("c.gif", new ByteArrayInputStream(new byte[10]));
+        storage.demote("c.gif");
+
+        assertEquals(10, storage.stat("c.gif").orElseThrow().size());
+        assertTrue(hot.exists("c.gif"));
+    }
+
+    private static byte[] randomBytes(int size) {
+        byte[] bytes = new byte[size];
+        new Random(42).nextBytes(bytes);
+        return bytes;
+    }
+}
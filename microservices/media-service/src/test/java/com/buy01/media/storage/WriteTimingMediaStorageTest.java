@@ -0,0 +1,60 @@
+package com.buy01.media.storage;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WriteTimingMediaStorageTest {
+
+    @Test
+    void slowSourceIsNotCountedAsWriteLatency() throws Exception {
+        AtomicLong recorded = new AtomicLong(-1);
+        MediaStorage storage = new WriteTimingMediaStorage(new InMemoryMediaStorage(), recorded::set);
+
+        // Client lent : 5 lectures de 40 ms chacune
+        InputStream slowClient = new FilterInputStream(new ByteArrayInputStream(new byte[5 * 1024])) {
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                sleep(40);
+                return super.read(b, off, Math.min(len, 1024));
+            }
+        };
+
+        assertEquals(5 * 1024, storage.write("slow.jpg", slowClient));
+        assertTrue(recorded.get() >= 0);
+        assertTrue(recorded.get() < TimeUnit.MILLISECONDS.toNanos(100),
+                "write latency should exclude the time spent waiting on the client: " + recorded.get());
+    }
+
+    @Test
+    void slowStorageIsCounted() throws Exception {
+        AtomicLong recorded = new AtomicLong(-1);
+        MediaStorage slowDisk = new DelegatingMediaStorage(new InMemoryMediaStorage()) {
+            @Override
+            public long write(String key, InputStream content) throws IOException {
+                sleep(50);
+                return super.write(key, content);
+            }
+        };
+        MediaStorage storage = new WriteTimingMediaStorage(slowDisk, recorded::set);
+
+        storage.write("slow.jpg", new ByteArrayInputStream(new byte[16]));
+
+        assertTrue(recorded.get() >= TimeUnit.MILLISECONDS.toNanos(50));
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.buy01.product.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.Executor;
+
+@Configuration
+public class AsyncConfig {
+
+    // Appels parallèles vers media-service et user-service ; file pleine : tâche rejetée,
+    // la dépendance est signalée indisponible comme sur un délai dépassé (voir ProductViewService)
+    @Bean(name = "productViewExecutor")
+    public Executor productViewExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(8);
+        executor.setMaxPoolSize(16);
+        executor.setQueueCapacity(200);
+        executor.setThreadNamePrefix("product-view-");
+        executor.initialize();
+        return executor;
+    }
+}
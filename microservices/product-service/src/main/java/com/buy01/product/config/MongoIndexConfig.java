@@ -0,0 +1,46 @@
+package com.buy01.product.config;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.IndexResolver;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+
+// Index déclarés sur les documents (@Indexed, @CompoundIndex), créés une fois l'application démarrée.
+// Contrairement à auto-index-creation, une base injoignable au démarrage ne fait pas échouer le contexte
+@Configuration
+@RequiredArgsConstructor
+@Slf4j
+public class MongoIndexConfig {
+
+    private final MongoTemplate mongoTemplate;
+    private final MongoMappingContext mappingContext;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureIndexes() {
+        IndexResolver resolver = new MongoPersistentEntityIndexResolver(mappingContext);
+        for (MongoPersistentEntity<?> entity : mappingContext.getPersistentEntities()) {
+            if (!entity.isAnnotationPresent(Document.class)) {
+                continue;
+            }
+            try {
+                IndexOperations indexOps = mongoTemplate.indexOps(entity.getType());
+                resolver.resolveIndexFor(entity.getTypeInformation()).forEach(indexOps::ensureIndex);
+            } catch (DataAccessResourceFailureException e) {
+                // Base injoignable : inutile d'attendre le même délai pour chaque collection
+                log.error("MongoDB unreachable, indexes not created (they will be on next startup)", e);
+                return;
+            } catch (RuntimeException e) {
+                log.error("Could not create indexes for {}", entity.getCollection(), e);
+            }
+        }
+    }
+}
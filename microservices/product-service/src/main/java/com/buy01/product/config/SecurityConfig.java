@@ -25,7 +25,14 @@ public class SecurityConfig {
             .csrf(csrf -> csrf.disable())
             .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
             .authorizeHttpRequests(auth -> auth
-                .requestMatchers("/api/products", "/api/products/{id}").permitAll()
+                .requestMatchers(
+                    "/api/products",
+                    "/api/products/search",
+                    "/api/products/export",
+                    "/api/products/{id}",
+                    "/api/products/{id}/view",
+                    "/actuator/health"
+                ).permitAll()
                 .anyRequest().authenticated()
             )
             .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class);
@@ -1,17 +1,35 @@
 package com.buy01.product.controller;
 
 import com.buy01.product.dto.CreateProductRequest;
+import com.buy01.product.dto.CursorPage;
+import com.buy01.product.dto.ProductFilter;
+import com.buy01.product.dto.ProductImportResponse;
+import com.buy01.product.dto.ProductPage;
 import com.buy01.product.dto.ProductResponse;
+import com.buy01.product.dto.ProductViewResponse;
+import com.buy01.product.dto.StockReleaseRequest;
+import com.buy01.product.dto.StockRequest;
+import com.buy01.product.dto.StockReservationResponse;
 import com.buy01.product.dto.UpdateProductRequest;
+import com.buy01.product.service.IdempotencyService;
+import com.buy01.product.service.ProductImportService;
 import com.buy01.product.service.ProductService;
+import com.buy01.product.service.ProductViewService;
+import com.buy01.product.service.StockReservationService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
 
@@ -22,22 +40,66 @@ import java.util.Map;
 public class ProductController {
 
     private final ProductService productService;
+    private final IdempotencyService idempotencyService;
+    private final ProductViewService productViewService;
+    private final ProductImportService productImportService;
+    private final StockReservationService stockReservationService;
 
     @PostMapping
     @PreAuthorize("hasRole('SELLER')")
     public ResponseEntity<ProductResponse> createProduct(
             Authentication authentication,
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
             @Valid @RequestBody CreateProductRequest request) {
 
         String userId = authentication.getName();
-        ProductResponse product = productService.createProduct(userId, request);
-        return ResponseEntity.status(HttpStatus.CREATED).body(product);
+        // Rejeu après timeout : même clé -> produit d'origine, pas de doublon
+        return idempotencyService.execute("POST /api/products", userId, idempotencyKey, request, ProductResponse.class,
+                () -> ResponseEntity.status(HttpStatus.CREATED).body(productService.createProduct(userId, request)));
+    }
+
+    // Import en masse : CSV (en-tête name,description,price,quantity[,imageIds]) ou NDJSON (un produit par ligne)
+    @PostMapping(value = "/import", consumes = {"text/csv", "application/x-ndjson"})
+    @PreAuthorize("hasRole('SELLER')")
+    public ResponseEntity<ProductImportResponse> importProducts(
+            Authentication authentication,
+            HttpServletRequest request) throws IOException {
+
+        String userId = authentication.getName();
+        ProductImportResponse response = productImportService.importProducts(
+                userId, request.getInputStream(), request.getContentType());
+
+        // 201 si tout est passé, 207 en cas d'échec partiel, 400 si aucune ligne n'a été acceptée
+        HttpStatus status = response.getFailed() == 0 ? HttpStatus.CREATED
+                : response.getImported() > 0 ? HttpStatus.MULTI_STATUS
+                : HttpStatus.BAD_REQUEST;
+        return ResponseEntity.status(status).body(response);
     }
 
     @GetMapping
-    public ResponseEntity<List<ProductResponse>> getAllProducts() {
-        List<ProductResponse> products = productService.getAllProducts();
-        return ResponseEntity.ok(products);
+    public ResponseEntity<ProductPage> getAllProducts(
+            ProductFilter filter,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(productService.getAllProducts(filter, cursor, limit));
+    }
+
+    // Export complet ou incrémental (?since=2024-05-01T00:00:00, suppressions comprises) en NDJSON, écrit au fil de l'eau
+    @GetMapping("/export")
+    public void exportProducts(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime since,
+            HttpServletResponse response) throws IOException {
+        response.setContentType("application/x-ndjson");
+        response.setCharacterEncoding("UTF-8");
+        productService.exportProducts(since, response.getOutputStream());
+    }
+
+    // Recherche plein texte : ?q=chaussures running, résultats par pertinence
+    @GetMapping("/search")
+    public ResponseEntity<List<ProductResponse>> searchProducts(
+            @RequestParam("q") String query,
+            @RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(productService.searchProducts(query, limit));
     }
 
     @GetMapping("/{id}")
@@ -46,12 +108,22 @@ public class ProductController {
         return ResponseEntity.ok(product);
     }
 
+    // Produit, médias et seller en une réponse ; "unavailable" liste ce qui n'a pas pu être récupéré
+    @GetMapping("/{id}/view")
+    public ResponseEntity<ProductViewResponse> getProductView(
+            @PathVariable String id,
+            @RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorization) {
+        return ResponseEntity.ok(productViewService.getProductView(id, authorization));
+    }
+
     @GetMapping("/my-products")
     @PreAuthorize("hasRole('SELLER')")
-    public ResponseEntity<List<ProductResponse>> getMyProducts(Authentication authentication) {
+    public ResponseEntity<CursorPage<ProductResponse>> getMyProducts(
+            Authentication authentication,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
         String userId = authentication.getName();
-        List<ProductResponse> products = productService.getProductsByUserId(userId);
-        return ResponseEntity.ok(products);
+        return ResponseEntity.ok(productService.getProductsByUserId(userId, cursor, limit));
     }
 
     @PutMapping("/{id}")
@@ -66,6 +138,41 @@ public class ProductController {
         return ResponseEntity.ok(product);
     }
 
+    // Stock : décrément conditionnel atomique, 409 si le stock restant est insuffisant.
+    // La réservation est confirmée à la commande ; sinon son stock est rendu par release ou à l'expiration
+    @PostMapping("/{id}/reserve")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<StockReservationResponse> reserveStock(
+            Authentication authentication,
+            @PathVariable String id,
+            @Valid @RequestBody StockRequest request) {
+        String userId = authentication.getName();
+        return ResponseEntity.status(HttpStatus.CREATED)
+                .body(stockReservationService.reserve(userId, id, request.getQuantity()));
+    }
+
+    // Libération par l'auteur de la réservation, au plus la quantité encore réservée
+    @PostMapping("/{id}/release")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<StockReservationResponse> releaseStock(
+            Authentication authentication,
+            @PathVariable String id,
+            @Valid @RequestBody StockReleaseRequest request) {
+        String userId = authentication.getName();
+        return ResponseEntity.ok(stockReservationService.release(userId, id, request.getReservationId(),
+                request.getQuantity()));
+    }
+
+    @PostMapping("/{id}/reservations/{reservationId}/confirm")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<StockReservationResponse> confirmReservation(
+            Authentication authentication,
+            @PathVariable String id,
+            @PathVariable String reservationId) {
+        String userId = authentication.getName();
+        return ResponseEntity.ok(stockReservationService.confirm(userId, id, reservationId));
+    }
+
     @DeleteMapping("/{id}")
     @PreAuthorize("hasRole('SELLER')")
     public ResponseEntity<Map<String, String>> deleteProduct(
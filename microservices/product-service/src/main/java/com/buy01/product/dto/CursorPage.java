@@ -0,0 +1,15 @@
+package com.buy01.product.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPage<T> {
+    private List<T> items;
+    private String nextCursor;  // À renvoyer tel quel pour la page suivante ; null sur la dernière page
+}
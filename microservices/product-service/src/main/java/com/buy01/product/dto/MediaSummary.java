@@ -0,0 +1,13 @@
+package com.buy01.product.dto;
+
+import lombok.Data;
+
+@Data
+public class MediaSummary {
+    private String id;
+    private String fileUrl;
+    private String contentType;
+    private Integer width;
+    private Integer height;
+    private String placeholder;
+}
@@ -0,0 +1,14 @@
+package com.buy01.product.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PriceBucket {
+    private Double min;
+    private Double max;  // Borne exclue ; null pour la dernière tranche
+    private long count;
+}
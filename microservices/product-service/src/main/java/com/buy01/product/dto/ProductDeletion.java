@@ -0,0 +1,17 @@
+package com.buy01.product.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Ligne d'export d'un produit supprimé : updatedAt porte la date de suppression, comme pour la reprise
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductDeletion {
+    private String id;
+    private boolean deleted;
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,16 @@
+package com.buy01.product.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductFacets {
+    private List<PriceBucket> priceBuckets;
+    private long inStock;
+    private long outOfStock;
+}
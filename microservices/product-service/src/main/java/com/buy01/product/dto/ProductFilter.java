@@ -0,0 +1,13 @@
+package com.buy01.product.dto;
+
+import lombok.Data;
+
+// Paramètres de GET /api/products : ?minPrice=&maxPrice=&inStock=true&sellerId=&sort=price_asc
+@Data
+public class ProductFilter {
+    private Double minPrice;
+    private Double maxPrice;
+    private boolean inStock;
+    private String sellerId;
+    private String sort = "newest";  // newest, price_asc ou price_desc
+}
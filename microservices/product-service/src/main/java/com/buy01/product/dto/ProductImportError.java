@@ -0,0 +1,13 @@
+package com.buy01.product.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductImportError {
+    private int row;  // Numéro de ligne de données, lignes vides comprises (1 = première ligne après l'en-tête CSV)
+    private String error;
+}
@@ -0,0 +1,16 @@
+package com.buy01.product.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductImportResponse {
+    private int imported;
+    private int failed;
+    private List<ProductImportError> errors;  // Lignes rejetées uniquement
+}
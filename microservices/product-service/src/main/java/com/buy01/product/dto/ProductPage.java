@@ -0,0 +1,16 @@
+package com.buy01.product.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductPage {
+    private List<ProductResponse> items;
+    private String nextCursor;
+    private ProductFacets facets;  // Sur la première page seulement : les suivantes gardent les mêmes filtres
+}
@@ -0,0 +1,17 @@
+package com.buy01.product.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductViewResponse {
+    private ProductResponse product;
+    private List<MediaSummary> media;
+    private SellerSummary seller;
+    private List<String> unavailable;  // Parties non récupérées à temps ("media", "seller") : réponse partielle
+}
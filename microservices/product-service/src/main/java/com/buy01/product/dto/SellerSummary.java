@@ -0,0 +1,10 @@
+package com.buy01.product.dto;
+
+import lombok.Data;
+
+@Data
+public class SellerSummary {
+    private String id;
+    private String name;
+    private String avatar;
+}
@@ -0,0 +1,19 @@
+package com.buy01.product.dto;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockReleaseRequest {
+
+    @NotBlank(message = "Reservation id is required")
+    private String reservationId;
+
+    @Min(value = 1, message = "Quantity must be at least 1")
+    private Integer quantity;  // Absent : toute la quantité encore réservée
+}
@@ -0,0 +1,19 @@
+package com.buy01.product.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockReservationResponse {
+    private String reservationId;
+    private String productId;
+    private int quantity;  // Quantité encore réservée
+    private String status;
+    private LocalDateTime expiresAt;
+    private Integer remainingStock;  // Stock disponible du produit après l'opération ; null si le produit n'existe plus
+}
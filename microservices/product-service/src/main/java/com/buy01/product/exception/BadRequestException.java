@@ -0,0 +1,7 @@
+package com.buy01.product.exception;
+
+public class BadRequestException extends RuntimeException {
+    public BadRequestException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package com.buy01.product.exception;
+
+public class ConflictException extends RuntimeException {
+    public ConflictException(String message) {
+        super(message);
+    }
+}
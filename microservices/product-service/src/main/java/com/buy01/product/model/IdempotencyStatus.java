@@ -0,0 +1,6 @@
+package com.buy01.product.model;
+
+public enum IdempotencyStatus {
+    IN_PROGRESS,
+    COMPLETED
+}
@@ -4,6 +4,8 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.LocalDateTime;
@@ -14,6 +16,14 @@ import java.util.List;
 @NoArgsConstructor
 @AllArgsConstructor
 @Document(collection = "products")
+// Catalogue et liste du seller paginés par clé : tri par date ou par prix, puis _id (voir CursorPagination)
+@CompoundIndexes({
+        @CompoundIndex(name = "created_idx", def = "{'createdAt': -1, '_id': -1}"),
+        @CompoundIndex(name = "user_created_idx", def = "{'userId': 1, 'createdAt': -1, '_id': -1}"),
+        @CompoundIndex(name = "price_idx", def = "{'price': 1, '_id': 1}"),
+        @CompoundIndex(name = "user_price_idx", def = "{'userId': 1, 'price': 1, '_id': 1}"),
+        @CompoundIndex(name = "updated_idx", def = "{'updatedAt': 1, '_id': 1}")  // export incrémental
+})
 public class Product {
 
     @Id
@@ -31,6 +41,8 @@ public class Product {
 
     private List<String> imageIds = new ArrayList<>();  // IDs des images dans Media Service
 
+    private List<String> pendingReservations;  // Réservations PENDING dont le stock a déjà été retiré
+
     private LocalDateTime createdAt;
 
     private LocalDateTime updatedAt;
@@ -0,0 +1,30 @@
+package com.buy01.product.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+// Trace d'un produit supprimé, pour que l'export incrémental propage aussi les suppressions
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "product_tombstones")
+public class ProductTombstone {
+
+    // Au-delà, un export incrémental ne voit plus toutes les suppressions : le client repart d'un export complet
+    public static final Duration RETENTION = Duration.ofDays(30);
+
+    @Id
+    private String id;  // Id du produit supprimé
+
+    private String userId;
+
+    @Indexed(expireAfter = "30d")  // Index TTL aligné sur RETENTION ; sert aussi le tri de l'export
+    private LocalDateTime deletedAt;
+}
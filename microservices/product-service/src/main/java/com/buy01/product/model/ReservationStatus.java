@@ -0,0 +1,9 @@
+package com.buy01.product.model;
+
+public enum ReservationStatus {
+    PENDING,    // Écrite avant le décrément du stock ; ACTIVE une fois le stock pris
+    ACTIVE,
+    CONFIRMED,  // Vendu : le stock reste pris, la réservation n'expire plus
+    RELEASED,
+    EXPIRED
+}
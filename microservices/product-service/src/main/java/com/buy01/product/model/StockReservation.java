@@ -0,0 +1,38 @@
+package com.buy01.product.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+// Stock retiré d'un produit pour un acheteur : seul ce qui a été réservé peut être rendu, et une seule fois
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "stock_reservations")
+@CompoundIndex(name = "status_expires_idx", def = "{'status': 1, 'expiresAt': 1}")  // balayage des réservations expirées
+public class StockReservation {
+
+    @Id
+    private String id;
+
+    private String productId;
+
+    private String userId;  // Acheteur : le seul à pouvoir libérer la réservation
+
+    private int quantity;  // Quantité encore réservée, diminuée par les libérations partielles
+
+    private ReservationStatus status;
+
+    private LocalDateTime createdAt;
+
+    private LocalDateTime expiresAt;  // Au-delà, le stock est rendu automatiquement
+
+    @Indexed(expireAfter = "7d")  // Index TTL : absent tant que la réservation est active
+    private LocalDateTime closedAt;
+}
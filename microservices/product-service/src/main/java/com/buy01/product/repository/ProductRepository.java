@@ -4,10 +4,6 @@ import com.buy01.product.model.Product;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
 
-import java.util.List;
-
 @Repository
 public interface ProductRepository extends MongoRepository<Product, String> {
-
-    List<Product> findByUserId(String userId);
 }
\ No newline at end of file
@@ -0,0 +1,83 @@
+package com.buy01.product.service;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+// Lecture CSV (RFC 4180) enregistrement par enregistrement : champs entre guillemets, guillemets doublés
+// et retours à la ligne à l'intérieur d'un champ ; rien n'est chargé au-delà de l'enregistrement courant,
+// lui-même borné à maxRecordLength caractères
+final class CsvRecordReader {
+
+    static class MalformedCsvException extends IOException {
+        MalformedCsvException(String message) {
+            super(message);
+        }
+    }
+
+    private final Reader reader;
+    private final int maxRecordLength;
+
+    CsvRecordReader(Reader reader, int maxRecordLength) {
+        this.reader = reader;
+        this.maxRecordLength = maxRecordLength;
+    }
+
+    // Champs de l'enregistrement suivant, ou null en fin de flux.
+    // Enregistrement trop long : lu jusqu'au bout sans être conservé, la lecture peut reprendre au suivant
+    List<String> next() throws IOException {
+        int c = reader.read();
+        if (c == -1) {
+            return null;
+        }
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        int length = 0;
+        while (true) {
+            if (++length > maxRecordLength && fields != null) {
+                fields = null;  // on continue d'analyser (guillemets compris) pour retrouver la fin de l'enregistrement
+            }
+            if (quoted) {
+                if (c == -1) {
+                    throw new MalformedCsvException("Unterminated quoted field");
+                }
+                if (c == '"') {
+                    c = reader.read();
+                    if (c == '"') {
+                        append(fields, field, '"');  // guillemet doublé = guillemet littéral
+                        c = reader.read();
+                    } else {
+                        quoted = false;
+                    }
+                    continue;
+                }
+                append(fields, field, c);
+            } else if (c == '"' && field.isEmpty()) {
+                quoted = true;
+            } else if (c == ',') {
+                if (fields != null) {
+                    fields.add(field.toString());
+                }
+                field.setLength(0);
+            } else if (c == '\n' || c == -1) {
+                if (fields == null) {
+                    throw new RecordTooLongException(maxRecordLength);
+                }
+                fields.add(field.toString());
+                return fields;
+            } else if (c != '\r') {
+                append(fields, field, c);
+            }
+            c = reader.read();
+        }
+    }
+
+    // Enregistrement déjà trop long : seul l'état « champ vide ou non » compte encore pour les guillemets
+    private static void append(List<String> fields, StringBuilder field, int c) {
+        if (fields != null || field.isEmpty()) {
+            field.append((char) c);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.buy01.product.service;
+
+import com.buy01.product.dto.CursorPage;
+import com.buy01.product.exception.BadRequestException;
+import com.buy01.product.model.Product;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+// Pagination par clé (keyset) : tri stable sur un champ puis _id, reprise après le dernier élément servi.
+// Pas de skip ni de comptage : le coût d'une page ne dépend pas de sa position dans la collection.
+final class CursorPagination {
+
+    static final int DEFAULT_LIMIT = 20;
+    static final int MAX_LIMIT = 100;
+
+    private static final String SEPARATOR = "|";
+
+    // Ordres proposés au catalogue ; _id départage les égalités pour que l'ordre soit total
+    enum Order {
+        NEWEST("createdAt", Sort.Direction.DESC, Product::getCreatedAt),
+        PRICE_ASC("price", Sort.Direction.ASC, Product::getPrice),
+        PRICE_DESC("price", Sort.Direction.DESC, Product::getPrice);
+
+        private final String field;
+        private final Sort.Direction direction;
+        private final Function<Product, Object> value;
+
+        Order(String field, Sort.Direction direction, Function<Product, Object> value) {
+            this.field = field;
+            this.direction = direction;
+            this.value = value;
+        }
+
+        Sort sort() {
+            return Sort.by(direction, field, "_id");
+        }
+
+        private Object parse(String raw) {
+            return this == NEWEST ? LocalDateTime.parse(raw) : Double.valueOf(raw);
+        }
+    }
+
+    private record Position(Object value, String id) {
+    }
+
+    private CursorPagination() {
+    }
+
+    static Query query(Criteria filter, String cursor, Integer limit) {
+        return query(filter, cursor, limit, Order.NEWEST);
+    }
+
+    // Une ligne de plus que la page : sa présence indique qu'il existe une page suivante
+    static Query query(Criteria filter, String cursor, Integer limit, Order order) {
+        Criteria after = after(cursor, order);
+        Criteria criteria = after == null ? filter : new Criteria().andOperator(filter, after);
+        return Query.query(criteria)
+                .with(order.sort())
+                .limit(pageSize(limit) + 1);
+    }
+
+    // Condition « après la dernière ligne servie », ou null pour la première page
+    static Criteria after(String cursor, Order order) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        Position after = decode(cursor, order);
+        if (order.direction.isAscending()) {
+            return new Criteria().orOperator(
+                    Criteria.where(order.field).gt(after.value()),
+                    Criteria.where(order.field).is(after.value()).and("id").gt(after.id()));
+        }
+        return new Criteria().orOperator(
+                Criteria.where(order.field).lt(after.value()),
+                Criteria.where(order.field).is(after.value()).and("id").lt(after.id()));
+    }
+
+    static <T> CursorPage<T> page(List<Product> rows, Integer limit, Function<Product, T> mapper) {
+        return page(rows, limit, Order.NEWEST, mapper);
+    }
+
+    static <T> CursorPage<T> page(List<Product> rows, Integer limit, Order order, Function<Product, T> mapper) {
+        int size = pageSize(limit);
+        if (rows.size() <= size) {
+            return new CursorPage<>(rows.stream().map(mapper).toList(), null);
+        }
+        Product last = rows.get(size - 1);
+        return new CursorPage<>(rows.subList(0, size).stream().map(mapper).toList(), encode(order, last));
+    }
+
+    // Paramètre limit absent : taille par défaut
+    static int pageSize(Integer limit) {
+        return limit == null ? DEFAULT_LIMIT : Math.max(1, Math.min(MAX_LIMIT, limit));
+    }
+
+    // Curseur opaque pour le client : base64url de "ordre|valeur|id"
+    private static String encode(Order order, Product last) {
+        String raw = order.name() + SEPARATOR + order.value.apply(last) + SEPARATOR + last.getId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Position decode(String cursor, Order order) {
+        String[] parts;
+        try {
+            parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|", 3);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Invalid cursor");
+        }
+        if (parts.length != 3 || parts[2].isEmpty()) {
+            throw new BadRequestException("Invalid cursor");
+        }
+        if (!order.name().equals(parts[0])) {
+            throw new BadRequestException("Cursor does not match the requested sort order");
+        }
+        try {
+            return new Position(order.parse(parts[1]), parts[2]);
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new BadRequestException("Invalid cursor");
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package com.buy01.product.service;
+
+import com.buy01.product.exception.BadRequestException;
+import com.buy01.product.exception.ConflictException;
+import com.buy01.product.model.IdempotencyRecord;
+import com.buy01.product.model.IdempotencyStatus;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+// En-tête Idempotency-Key : un client qui rejoue une requête après un timeout reçoit la réponse d'origine.
+// Réponses récentes en mémoire, la collection Mongo (index TTL de 24 h) fait foi entre instances et redémarrages.
+@Service
+@Slf4j
+public class IdempotencyService {
+
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final int MAX_KEY_LENGTH = 255;
+    private static final Duration RETENTION = Duration.ofHours(24);  // aligné sur l'index TTL de IdempotencyRecord
+    private static final int MAX_CLAIM_ATTEMPTS = 3;
+
+    private final MongoTemplate mongoTemplate;
+    private final ObjectMapper objectMapper;
+    private final Duration lockTimeout;
+    private final Map<String, IdempotencyRecord> completed;
+
+    public IdempotencyService(MongoTemplate mongoTemplate,
+                              ObjectMapper objectMapper,
+                              @Value("${product.idempotency.cache-size:10000}") int cacheSize,
+                              @Value("${product.idempotency.lock-timeout:PT5M}") Duration lockTimeout) {
+        this.mongoTemplate = mongoTemplate;
+        this.objectMapper = objectMapper;
+        this.lockTimeout = lockTimeout;
+        // LRU bornée : les clés les moins rejouées sortent en premier, Mongo prend le relais
+        this.completed = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, IdempotencyRecord> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    // Exécute l'action une seule fois par clé ; sans clé, l'action est exécutée normalement
+    public <T> ResponseEntity<T> execute(String scope, String userId, String key, Object request,
+                                         Class<T> responseType, Supplier<ResponseEntity<T>> action) {
+        if (key == null) {
+            return action.get();
+        }
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new BadRequestException(HEADER + " must be between 1 and " + MAX_KEY_LENGTH + " characters");
+        }
+
+        String id = scope + ":" + userId + ":" + key;
+        String requestHash = fingerprint(request);
+
+        IdempotencyRecord cached = cached(id);
+        if (cached != null) {
+            return replay(cached, requestHash, responseType);
+        }
+
+        // Précision Mongo (milliseconde) : la valeur relue doit être égale à celle posée
+        LocalDateTime lockedAt = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+        IdempotencyRecord existing = claim(id, requestHash, lockedAt);
+        if (existing != null) {
+            return replay(existing, requestHash, responseType);
+        }
+
+        ResponseEntity<T> response;
+        try {
+            response = action.get();
+        } catch (RuntimeException e) {
+            // Échec : la clé est libérée pour que le client puisse réessayer, sauf si une autre tentative
+            // l'a reprise entre-temps (verrou expiré) : son lockedAt n'est plus le nôtre
+            mongoTemplate.remove(Query.query(Criteria.where("_id").is(id).and("lockedAt").is(lockedAt)),
+                    IdempotencyRecord.class);
+            throw e;
+        }
+        complete(id, requestHash, response);
+        return response;
+    }
+
+    // Réserve la clé ; renvoie l'enregistrement terminé à rejouer, ou null si l'appelant doit exécuter la requête
+    private IdempotencyRecord claim(String id, String requestHash, LocalDateTime lockedAt) {
+        for (int attempt = 0; attempt < MAX_CLAIM_ATTEMPTS; attempt++) {
+            try {
+                mongoTemplate.insert(new IdempotencyRecord(id, requestHash, IdempotencyStatus.IN_PROGRESS,
+                        null, null, null, lockedAt, lockedAt));
+                return null;
+            } catch (DuplicateKeyException e) {
+                // Clé déjà connue : requête terminée ou en cours sur cette instance ou une autre
+            }
+
+            IdempotencyRecord existing = mongoTemplate.findById(id, IdempotencyRecord.class);
+            if (existing == null) {
+                continue;  // libérée entre-temps par une tentative en échec
+            }
+            if (existing.getStatus() == IdempotencyStatus.COMPLETED) {
+                remember(existing);
+                return existing;
+            }
+            if (!existing.getRequestHash().equals(requestHash)) {
+                throw new ConflictException(HEADER + " was already used for a different request");
+            }
+
+            // Tentative abandonnée (instance arrêtée en plein traitement) : on la reprend après le délai de verrou
+            Query stale = Query.query(Criteria.where("_id").is(id)
+                    .and("status").is(IdempotencyStatus.IN_PROGRESS)
+                    .and("lockedAt").lt(lockedAt.minus(lockTimeout)));
+            IdempotencyRecord taken = mongoTemplate.findAndModify(stale, new Update().set("lockedAt", lockedAt),
+                    FindAndModifyOptions.options().returnNew(true), IdempotencyRecord.class);
+            if (taken == null) {
+                break;
+            }
+            log.warn("Taking over abandoned idempotent request {}", id);
+            return null;
+        }
+        throw new ConflictException("A request with this " + HEADER + " is already being processed");
+    }
+
+    private <T> void complete(String id, String requestHash, ResponseEntity<T> response) {
+        try {
+            URI location = response.getHeaders().getLocation();
+            Update update = new Update()
+                    .set("status", IdempotencyStatus.COMPLETED)
+                    .set("responseStatus", response.getStatusCode().value())
+                    .set("responseBody", objectMapper.writeValueAsString(response.getBody()))
+                    .set("responseLocation", location != null ? location.toString() : null);
+            IdempotencyRecord record = mongoTemplate.findAndModify(Query.query(Criteria.where("_id").is(id)), update,
+                    FindAndModifyOptions.options().returnNew(true), IdempotencyRecord.class);
+            if (record != null) {
+                remember(record);
+            }
+        } catch (JsonProcessingException | RuntimeException e) {
+            // La requête a réussi : on ne la fait pas échouer ; un rejeu reçoit 409 jusqu'à expiration du verrou
+            log.error("Could not record idempotent response {}", id, e);
+        }
+    }
+
+    private <T> ResponseEntity<T> replay(IdempotencyRecord record, String requestHash, Class<T> responseType) {
+        if (!record.getRequestHash().equals(requestHash)) {
+            throw new ConflictException(HEADER + " was already used for a different request");
+        }
+        try {
+            ResponseEntity.BodyBuilder builder = ResponseEntity.status(record.getResponseStatus())
+                    .header(REPLAYED_HEADER, "true");
+            if (record.getResponseLocation() != null) {
+                builder.location(URI.create(record.getResponseLocation()));
+            }
+            return builder.body(objectMapper.readValue(record.getResponseBody(), responseType));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Stored idempotent response is unreadable", e);
+        }
+    }
+
+    private IdempotencyRecord cached(String id) {
+        synchronized (completed) {
+            IdempotencyRecord record = completed.get(id);
+            if (record != null && record.getCreatedAt().plus(RETENTION).isBefore(LocalDateTime.now())) {
+                completed.remove(id);
+                return null;
+            }
+            return record;
+        }
+    }
+
+    private void remember(IdempotencyRecord record) {
+        synchronized (completed) {
+            completed.put(record.getId(), record);
+        }
+    }
+
+    private String fingerprint(Object request) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] json = objectMapper.writeValueAsString(request).getBytes(StandardCharsets.UTF_8);
+            return HexFormat.of().formatHex(digest.digest(json));
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Could not fingerprint request", e);
+        }
+    }
+}
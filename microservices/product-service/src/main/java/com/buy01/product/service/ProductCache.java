@@ -0,0 +1,90 @@
+package com.buy01.product.service;
+
+import com.buy01.product.model.Product;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+// Cache de lecture des produits (LRU bornée) ; invalidé localement à l'écriture et par product-events pour les autres instances
+@Component
+public class ProductCache {
+
+    private record Entry(Product product, long expiresAt) {
+    }
+
+    private final long ttlMillis;
+    private final Map<String, Entry> entries;
+
+    // Incrémenté à chaque invalidation : un chargement commencé avant n'est pas mis en cache (il peut être périmé)
+    private final AtomicLong generation = new AtomicLong();
+
+    private final Counter hits;
+    private final Counter misses;
+
+    public ProductCache(MeterRegistry meterRegistry,
+                        @Value("${product.cache.max-entries:10000}") int maxEntries,
+                        @Value("${product.cache.ttl:PT10M}") Duration ttl) {
+        this.ttlMillis = ttl.toMillis();
+        this.entries = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+
+        this.hits = Counter.builder("product.cache.requests").tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("product.cache.requests").tag("result", "miss").register(meterRegistry);
+        Gauge.builder("product.cache.size", this, ProductCache::size).register(meterRegistry);
+        Gauge.builder("product.cache.hit.ratio", this, ProductCache::hitRatio).register(meterRegistry);
+    }
+
+    public Optional<Product> get(String productId, Supplier<Optional<Product>> loader) {
+        long now = System.currentTimeMillis();
+        synchronized (entries) {
+            Entry entry = entries.get(productId);
+            if (entry != null && entry.expiresAt() > now) {
+                hits.increment();
+                return Optional.of(entry.product());
+            }
+        }
+
+        misses.increment();
+        long loadGeneration = generation.get();
+        Optional<Product> loaded = loader.get();
+        loaded.ifPresent(product -> {
+            synchronized (entries) {
+                if (generation.get() == loadGeneration) {
+                    entries.put(productId, new Entry(product, now + ttlMillis));
+                }
+            }
+        });
+        return loaded;
+    }
+
+    public void invalidate(String productId) {
+        synchronized (entries) {
+            generation.incrementAndGet();
+            entries.remove(productId);
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    private double hitRatio() {
+        double total = hits.count() + misses.count();
+        return total == 0 ? 0 : hits.count() / total;
+    }
+}
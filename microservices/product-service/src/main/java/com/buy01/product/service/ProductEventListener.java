@@ -0,0 +1,65 @@
+package com.buy01.product.service;
+
+import com.buy01.product.repository.ProductRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+// Écritures faites par n'importe quelle instance : cache et index de recherche locaux remis à jour
+@Component
+@Slf4j
+public class ProductEventListener {
+
+    private final ProductCache productCache;
+    private final ProductSearchIndex productSearchIndex;
+    private final ProductRepository productRepository;
+    private final Timer invalidationLag;
+
+    public ProductEventListener(ProductCache productCache,
+                                ProductSearchIndex productSearchIndex,
+                                ProductRepository productRepository,
+                                MeterRegistry meterRegistry) {
+        this.productCache = productCache;
+        this.productSearchIndex = productSearchIndex;
+        this.productRepository = productRepository;
+        // Délai entre l'envoi de l'événement et l'invalidation ici : durée pendant laquelle une lecture peut être périmée
+        this.invalidationLag = Timer.builder("product.cache.invalidation.lag").register(meterRegistry);
+    }
+
+    // Format : PRODUCT_CREATED|PRODUCT_UPDATED|PRODUCT_STOCK_CHANGED|PRODUCT_DELETED:<productId>:<userId>
+    // ou PRODUCTS_CREATED:<id1,id2,...>:<userId> pour un lot importé
+    @KafkaListener(topics = "product-events")
+    public void onProductEvent(ConsumerRecord<String, String> record) {
+        String[] parts = record.value().split(":");
+        if (parts.length < 2) {
+            log.warn("Ignoring malformed product event: {}", record.value());
+            return;
+        }
+        String type = parts[0];
+        String productId = parts[1];
+
+        switch (type) {
+            case "PRODUCT_CREATED", "PRODUCT_UPDATED" -> {
+                productCache.invalidate(productId);
+                productRepository.findById(productId)
+                        .ifPresentOrElse(productSearchIndex::index, () -> productSearchIndex.remove(productId));
+            }
+            case "PRODUCT_STOCK_CHANGED" -> productCache.invalidate(productId);
+            case "PRODUCT_DELETED" -> {
+                productCache.invalidate(productId);
+                productSearchIndex.remove(productId);
+            }
+            // Import en masse : la liste des ids du lot, séparés par des virgules (rien à invalider, ils sont nouveaux)
+            case "PRODUCTS_CREATED" -> productRepository.findAllById(Arrays.asList(productId.split(",")))
+                    .forEach(productSearchIndex::index);
+            default -> log.debug("Ignoring product event {}", type);
+        }
+        invalidationLag.record(Duration.ofMillis(Math.max(0, System.currentTimeMillis() - record.timestamp())));
+    }
+}
@@ -0,0 +1,313 @@
+package com.buy01.product.service;
+
+import com.buy01.product.dto.CreateProductRequest;
+import com.buy01.product.dto.ProductImportError;
+import com.buy01.product.dto.ProductImportResponse;
+import com.buy01.product.exception.BadRequestException;
+import com.buy01.product.model.Product;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.bulk.BulkWriteError;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+// Import en masse : lecture en flux, validation ligne par ligne, insertions groupées non ordonnées
+// et un événement Kafka par lot au lieu d'un par produit
+@Service
+@Slf4j
+public class ProductImportService {
+
+    private static final Set<String> REQUIRED_COLUMNS = Set.of("name", "description", "price", "quantity");
+
+    private final MongoTemplate mongoTemplate;
+    private final KafkaTemplate<String, String> kafkaTemplate;
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
+    private final ProductSearchIndex productSearchIndex;
+    private final int batchSize;
+    private final int maxRows;
+    private final int maxRecordLength;
+
+    public ProductImportService(MongoTemplate mongoTemplate,
+                                KafkaTemplate<String, String> kafkaTemplate,
+                                Validator validator,
+                                ObjectMapper objectMapper,
+                                ProductSearchIndex productSearchIndex,
+                                @Value("${product.import.batch-size:500}") int batchSize,
+                                @Value("${product.import.max-rows:50000}") int maxRows,
+                                @Value("${product.import.max-record-length:65536}") int maxRecordLength) {
+        this.mongoTemplate = mongoTemplate;
+        this.kafkaTemplate = kafkaTemplate;
+        this.validator = validator;
+        this.objectMapper = objectMapper;
+        this.productSearchIndex = productSearchIndex;
+        this.batchSize = batchSize;
+        this.maxRows = maxRows;
+        this.maxRecordLength = maxRecordLength;
+    }
+
+    public ProductImportResponse importProducts(String userId, InputStream body, String contentType) throws IOException {
+        log.info("Importing products for user: {} ({})", userId, contentType);
+        Batch batch = new Batch(userId);
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        if (contentType != null && contentType.toLowerCase(Locale.ROOT).contains("csv")) {
+            readCsv(reader, batch);
+        } else {
+            readNdjson(reader, batch);
+        }
+        batch.flush();
+
+        log.info("Imported {} products for user {}, {} rows rejected", batch.imported, userId, batch.errors.size());
+        return new ProductImportResponse(batch.imported, batch.errors.size(), batch.errors);
+    }
+
+    // En-tête obligatoire : name,description,price,quantity[,imageIds] ; imageIds séparés par des points-virgules.
+    // Numéro de ligne rapporté : rang de l'enregistrement après l'en-tête, lignes vides comprises comme en NDJSON
+    private void readCsv(BufferedReader reader, Batch batch) throws IOException {
+        CsvRecordReader csv = new CsvRecordReader(reader, maxRecordLength);
+        List<String> header = nextHeader(csv);
+        if (header == null) {
+            return;
+        }
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            columns.put(header.get(i).trim().toLowerCase(Locale.ROOT), i);
+        }
+        if (!columns.keySet().containsAll(REQUIRED_COLUMNS)) {
+            throw new BadRequestException("CSV header must contain name, description, price and quantity");
+        }
+
+        int row = 0;
+        while (true) {
+            List<String> fields;
+            String tooLong = null;
+            try {
+                fields = csv.next();
+            } catch (RecordTooLongException e) {
+                fields = List.of();
+                tooLong = e.getMessage();
+            } catch (CsvRecordReader.MalformedCsvException e) {
+                // Fichier mal formé : l'erreur est rapportée sur la ligne fautive et la lecture s'arrête là
+                batch.reject(row + 1, e.getMessage() + "; remaining rows were not read");
+                return;
+            }
+            if (fields == null) {
+                return;
+            }
+            if (++row > maxRows) {
+                batch.reject(row, "Import is limited to " + maxRows + " rows; remaining rows were not read");
+                return;
+            }
+            if (tooLong != null) {
+                batch.reject(row, tooLong);
+                continue;
+            }
+            if (fields.size() == 1 && fields.get(0).isBlank()) {
+                continue;  // ligne vide
+            }
+            try {
+                CreateProductRequest request = new CreateProductRequest();
+                request.setName(column(fields, columns, "name"));
+                request.setDescription(column(fields, columns, "description"));
+                String price = column(fields, columns, "price");
+                request.setPrice(price == null ? null : Double.valueOf(price));
+                String quantity = column(fields, columns, "quantity");
+                request.setQuantity(quantity == null ? null : Integer.valueOf(quantity));
+                String imageIds = column(fields, columns, "imageids");
+                if (imageIds != null) {
+                    request.setImageIds(Arrays.stream(imageIds.split(";")).map(String::trim)
+                            .filter(id -> !id.isEmpty()).toList());
+                }
+                batch.add(row, request);
+            } catch (NumberFormatException e) {
+                batch.reject(row, "Price and quantity must be numbers");
+            }
+        }
+    }
+
+    // Un CreateProductRequest JSON par ligne
+    private void readNdjson(BufferedReader reader, Batch batch) throws IOException {
+        int row = 0;
+        while (true) {
+            String line;
+            String tooLong = null;
+            try {
+                line = readLine(reader);
+            } catch (RecordTooLongException e) {
+                line = "";
+                tooLong = e.getMessage();
+            }
+            if (line == null) {
+                return;
+            }
+            if (++row > maxRows) {
+                batch.reject(row, "Import is limited to " + maxRows + " rows; remaining rows were not read");
+                return;
+            }
+            if (tooLong != null) {
+                batch.reject(row, tooLong);
+                continue;
+            }
+            if (line.isBlank()) {
+                continue;
+            }
+            try {
+                batch.add(row, objectMapper.readValue(line, CreateProductRequest.class));
+            } catch (JsonProcessingException e) {
+                batch.reject(row, "Invalid JSON: " + e.getOriginalMessage());
+            }
+        }
+    }
+
+    private static List<String> nextHeader(CsvRecordReader csv) throws IOException {
+        try {
+            return csv.next();
+        } catch (CsvRecordReader.MalformedCsvException | RecordTooLongException e) {
+            throw new BadRequestException("Invalid CSV header: " + e.getMessage());
+        }
+    }
+
+    // Comme BufferedReader.readLine, sans charger plus de maxRecordLength caractères : une ligne plus longue
+    // est lue jusqu'au bout puis signalée
+    private String readLine(BufferedReader reader) throws IOException {
+        StringBuilder line = new StringBuilder();
+        boolean tooLong = false;
+        int c;
+        while ((c = reader.read()) != -1 && c != '\n') {
+            if (line.length() < maxRecordLength) {
+                line.append((char) c);
+            } else {
+                tooLong = true;
+            }
+        }
+        if (tooLong) {
+            throw new RecordTooLongException(maxRecordLength);
+        }
+        if (c == -1 && line.isEmpty()) {
+            return null;
+        }
+        int end = line.length();
+        return end > 0 && line.charAt(end - 1) == '\r' ? line.substring(0, end - 1) : line.toString();
+    }
+
+    private static String column(List<String> fields, Map<String, Integer> columns, String name) {
+        Integer index = columns.get(name);
+        if (index == null || index >= fields.size()) {
+            return null;
+        }
+        String value = fields.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    // Lot en cours d'import ; inséré dès qu'il atteint batchSize produits valides
+    private class Batch {
+        private final String userId;
+        private final List<Product> products = new ArrayList<>();
+        private final List<Integer> rows = new ArrayList<>();
+        private final List<ProductImportError> errors = new ArrayList<>();
+        private int imported;
+
+        Batch(String userId) {
+            this.userId = userId;
+        }
+
+        void add(int row, CreateProductRequest request) {
+            Set<ConstraintViolation<CreateProductRequest>> violations = validator.validate(request);
+            if (!violations.isEmpty()) {
+                reject(row, violations.stream().map(ConstraintViolation::getMessage).sorted()
+                        .collect(Collectors.joining("; ")));
+                return;
+            }
+
+            LocalDateTime now = LocalDateTime.now();
+            Product product = new Product();
+            product.setId(new ObjectId().toHexString());  // id connu avant l'insertion, pour l'événement du lot
+            product.setName(request.getName());
+            product.setDescription(request.getDescription());
+            product.setPrice(request.getPrice());
+            product.setQuantity(request.getQuantity());
+            product.setUserId(userId);
+            product.setImageIds(request.getImageIds() != null ? request.getImageIds() : new ArrayList<>());
+            product.setCreatedAt(now);
+            product.setUpdatedAt(now);
+            products.add(product);
+            rows.add(row);
+
+            if (products.size() >= batchSize) {
+                flush();
+            }
+        }
+
+        void reject(int row, String error) {
+            errors.add(new ProductImportError(row, error));
+        }
+
+        // insertMany non ordonné : un document en échec n'empêche pas l'insertion des autres
+        void flush() {
+            if (products.isEmpty()) {
+                return;
+            }
+            BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Product.class);
+            bulk.insert(products);
+            Map<Integer, String> failures = new HashMap<>();
+            try {
+                bulk.execute();
+            } catch (BulkOperationException e) {
+                for (BulkWriteError error : e.getErrors()) {
+                    failures.put(error.getIndex(), error.getMessage());
+                }
+            }
+
+            List<String> insertedIds = new ArrayList<>();
+            for (int i = 0; i < products.size(); i++) {
+                if (failures.containsKey(i)) {
+                    reject(rows.get(i), failures.get(i));
+                } else {
+                    insertedIds.add(products.get(i).getId());
+                    productSearchIndex.index(products.get(i));
+                }
+            }
+            imported += insertedIds.size();
+            publish(insertedIds);
+
+            products.clear();
+            rows.clear();
+        }
+
+        // Un seul message par lot : PRODUCTS_CREATED:<id1,id2,...>:<userId>
+        private void publish(List<String> ids) {
+            if (ids.isEmpty()) {
+                return;
+            }
+            try {
+                String message = String.format("PRODUCTS_CREATED:%s:%s", String.join(",", ids), userId);
+                kafkaTemplate.send("product-events", message);
+            } catch (Exception e) {
+                log.error("Failed to send Kafka event", e);
+            }
+        }
+    }
+}
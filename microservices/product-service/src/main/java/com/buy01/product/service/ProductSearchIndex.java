@@ -0,0 +1,287 @@
+package com.buy01.product.service;
+
+import com.buy01.product.exception.ServiceUnavailableException;
+import com.buy01.product.model.Product;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+// Index inversé en mémoire sur name et description : classement BM25 et tolérance aux fautes de frappe.
+// Reconstruit au démarrage, tenu à jour par ProductService à chaque création, modification et suppression.
+@Component
+@Slf4j
+public class ProductSearchIndex {
+
+    public record Hit(String productId, double score) {
+    }
+
+    private record IndexedProduct(Map<String, Integer> termFrequencies, int length) {
+    }
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final int NAME_WEIGHT = 3;  // un terme du nom compte comme trois occurrences dans la description
+    private static final double TYPO_PENALTY = 0.5;  // score multiplié par ce facteur à chaque faute
+    private static final int MIN_TOKEN_LENGTH = 2;
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+
+    private final MongoTemplate mongoTemplate;
+    private final Duration readyTimeout;
+
+    // Ouvert par le premier chargement complet : avant, une recherche ne verrait qu'un index vide ou partiel
+    private final CountDownLatch ready = new CountDownLatch(1);
+    private final AtomicBoolean buildFailed = new AtomicBoolean();
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Map<String, Integer>> postings = new HashMap<>();  // terme -> (produit -> fréquence pondérée)
+    private final Map<String, IndexedProduct> products = new HashMap<>();
+    private final Map<Integer, Set<String>> termsByLength = new HashMap<>();  // candidats à comparer pour les fautes
+    private long totalLength;
+
+    public ProductSearchIndex(MongoTemplate mongoTemplate,
+                              @Value("${product.search.ready-timeout:PT5S}") Duration readyTimeout) {
+        this.mongoTemplate = mongoTemplate;
+        this.readyTimeout = readyTimeout;
+    }
+
+    // Au démarrage ; un échec (base injoignable) est retenté par la recherche suivante
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        Query query = new Query();
+        query.fields().include("name").include("description");
+
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            products.clear();
+            termsByLength.clear();
+            totalLength = 0;
+            try (Stream<Product> stream = mongoTemplate.stream(query, Product.class)) {
+                stream.forEach(this::add);
+            }
+            log.info("Search index built: {} products, {} terms", products.size(), postings.size());
+            ready.countDown();
+        } catch (RuntimeException e) {
+            log.error("Could not build the search index", e);
+            buildFailed.set(true);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void index(Product product) {
+        lock.writeLock().lock();
+        try {
+            removeProduct(product.getId());
+            add(product);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(String productId) {
+        lock.writeLock().lock();
+        try {
+            removeProduct(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Somme BM25 sur les termes de la requête ; pour chacun, la meilleure variante (exacte ou approchée) par produit
+    public List<Hit> search(String text, int limit) {
+        Set<String> queryTerms = new LinkedHashSet<>(tokenize(text));
+        if (queryTerms.isEmpty()) {
+            return List.of();
+        }
+        awaitReady();
+
+        lock.readLock().lock();
+        try {
+            int count = products.size();
+            if (count == 0) {
+                return List.of();
+            }
+            double averageLength = (double) totalLength / count;
+
+            Map<String, Double> scores = new HashMap<>();
+            for (String queryTerm : queryTerms) {
+                Map<String, Double> best = new HashMap<>();
+                matchingTerms(queryTerm).forEach((term, edits) -> {
+                    Map<String, Integer> posting = postings.get(term);
+                    double idf = Math.log(1 + (count - posting.size() + 0.5) / (posting.size() + 0.5));
+                    double weight = Math.pow(TYPO_PENALTY, edits);
+                    posting.forEach((productId, frequency) -> {
+                        double norm = 1 - B + B * products.get(productId).length() / averageLength;
+                        double score = weight * idf * frequency * (K1 + 1) / (frequency + K1 * norm);
+                        best.merge(productId, score, Math::max);
+                    });
+                });
+                best.forEach((productId, score) -> scores.merge(productId, score, Double::sum));
+            }
+
+            return scores.entrySet().stream()
+                    .sorted(Map.Entry.<String, Double>comparingByValue(Comparator.reverseOrder())
+                            .thenComparing(Map.Entry.comparingByKey()))
+                    .limit(limit)
+                    .map(entry -> new Hit(entry.getKey(), entry.getValue()))
+                    .toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean isReady() {
+        return ready.getCount() == 0;
+    }
+
+    private void awaitReady() {
+        if (isReady()) {
+            return;
+        }
+        if (buildFailed.compareAndSet(true, false)) {
+            rebuild();
+        }
+        try {
+            if (ready.await(readyTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        throw new ServiceUnavailableException("Search index is not ready yet",
+                Math.max(1, readyTimeout.toSeconds()));
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return products.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void add(Product product) {
+        Map<String, Integer> frequencies = new HashMap<>();
+        tokenize(product.getName()).forEach(term -> frequencies.merge(term, NAME_WEIGHT, Integer::sum));
+        tokenize(product.getDescription()).forEach(term -> frequencies.merge(term, 1, Integer::sum));
+        int length = frequencies.values().stream().mapToInt(Integer::intValue).sum();
+
+        frequencies.forEach((term, frequency) -> {
+            Map<String, Integer> posting = postings.computeIfAbsent(term, t -> {
+                termsByLength.computeIfAbsent(t.length(), l -> new HashSet<>()).add(t);
+                return new HashMap<>();
+            });
+            posting.put(product.getId(), frequency);
+        });
+        products.put(product.getId(), new IndexedProduct(frequencies, length));
+        totalLength += length;
+    }
+
+    private void removeProduct(String productId) {
+        IndexedProduct indexed = products.remove(productId);
+        if (indexed == null) {
+            return;
+        }
+        totalLength -= indexed.length();
+        indexed.termFrequencies().keySet().forEach(term -> {
+            Map<String, Integer> posting = postings.get(term);
+            posting.remove(productId);
+            if (posting.isEmpty()) {
+                postings.remove(term);
+                termsByLength.get(term.length()).remove(term);
+            }
+        });
+    }
+
+    // Terme exact, plus les termes de l'index à 1 faute (5 à 8 lettres) ou 2 fautes (au-delà) ; terme -> nombre de fautes
+    private Map<String, Integer> matchingTerms(String queryTerm) {
+        Map<String, Integer> matches = new HashMap<>();
+        if (postings.containsKey(queryTerm)) {
+            matches.put(queryTerm, 0);
+        }
+        int maxEdits = queryTerm.length() <= 4 ? 0 : queryTerm.length() <= 8 ? 1 : 2;
+        for (int length = queryTerm.length() - maxEdits; length <= queryTerm.length() + maxEdits; length++) {
+            for (String term : termsByLength.getOrDefault(length, Set.of())) {
+                int edits = editDistance(queryTerm, term, maxEdits);
+                if (edits > 0 && edits <= maxEdits) {
+                    matches.put(term, edits);
+                }
+            }
+        }
+        return matches;
+    }
+
+    // Minuscules, accents retirés, découpage sur tout ce qui n'est ni lettre ni chiffre
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        String normalized = DIACRITICS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("")
+                .toLowerCase(Locale.ROOT);
+        for (String token : SEPARATORS.split(normalized)) {
+            if (token.length() >= MIN_TOKEN_LENGTH) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    // Distance de Damerau-Levenshtein (transpositions adjacentes comprises), abandonnée dès qu'elle dépasse max
+    static int editDistance(String a, String b, int max) {
+        if (Math.abs(a.length() - b.length()) > max) {
+            return max + 1;
+        }
+        int[] previous2 = new int[b.length() + 1];
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(previous[j] + 1, current[j - 1] + 1), previous[j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    current[j] = Math.min(current[j], previous2[j - 2] + 1);
+                }
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (rowMin > max) {
+                return max + 1;
+            }
+            int[] recycled = previous2;
+            previous2 = previous;
+            previous = current;
+            current = recycled;
+        }
+        return previous[b.length()];
+    }
+}
@@ -1,28 +1,68 @@
 package com.buy01.product.service;
 
 import com.buy01.product.dto.CreateProductRequest;
+import com.buy01.product.dto.CursorPage;
+import com.buy01.product.dto.PriceBucket;
+import com.buy01.product.dto.ProductDeletion;
+import com.buy01.product.dto.ProductFacets;
+import com.buy01.product.dto.ProductFilter;
+import com.buy01.product.dto.ProductPage;
 import com.buy01.product.dto.ProductResponse;
 import com.buy01.product.dto.UpdateProductRequest;
+import com.buy01.product.exception.BadRequestException;
 import com.buy01.product.exception.ResourceNotFoundException;
 import com.buy01.product.exception.UnauthorizedException;
 import com.buy01.product.model.Product;
+import com.buy01.product.model.ProductTombstone;
 import com.buy01.product.repository.ProductRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.ConditionalOperators;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class ProductService {
 
+    // Bornes des tranches de prix des facettes ; la dernière tranche est ouverte
+    private static final List<Integer> PRICE_BOUNDARIES = List.of(0, 25, 50, 100, 250, 500, 1000);
+    private static final String OTHER_PRICES = "other";
+    private static final int EXPORT_BATCH_SIZE = 500;
+    // Fusion produits / suppressions dans l'ordre du tri Mongo (date, _id), null en premier
+    private static final Comparator<ExportPosition> EXPORT_ORDER = Comparator
+            .comparing(ExportPosition::at, Comparator.nullsFirst(Comparator.naturalOrder()))
+            .thenComparing(ExportPosition::id);
+
     private final ProductRepository productRepository;
     private final KafkaTemplate<String, String> kafkaTemplate;
+    private final MongoTemplate mongoTemplate;
+    private final ObjectMapper objectMapper;
+    private final ProductSearchIndex productSearchIndex;
+    private final ProductCache productCache;
 
     public ProductResponse createProduct(String userId, CreateProductRequest request) {
         log.info("Creating product for user: {}", userId);
@@ -38,6 +78,7 @@ public class ProductService {
         product.setUpdatedAt(LocalDateTime.now());
 
         product = productRepository.save(product);
+        productSearchIndex.index(product);
         log.info("Product created successfully with id: {}", product.getId());
 
         // Envoyer événement Kafka
@@ -53,58 +94,215 @@ public class ProductService {
 
     public ProductResponse getProductById(String productId) {
         log.info("Fetching product with id: {}", productId);
-        Product product = productRepository.findById(productId)
+        Product product = productCache.get(productId, () -> productRepository.findById(productId))
                 .orElseThrow(() -> new ResourceNotFoundException("Product not found with id: " + productId));
 
         return mapToResponse(product);
     }
 
-    public List<ProductResponse> getAllProducts() {
-        log.info("Fetching all products");
-        return productRepository.findAll()
-                .stream()
-                .map(this::mapToResponse)
-                .collect(Collectors.toList());
+    public ProductPage getAllProducts(ProductFilter filter, String cursor, Integer limit) {
+        log.info("Fetching products page: {}", filter);
+        CursorPagination.Order order = sortOrder(filter.getSort());
+        Criteria criteria = filterCriteria(filter);
+
+        // Produits : requête keyset servie par les index de tri, première page comprise
+        List<Product> rows = mongoTemplate.find(CursorPagination.query(criteria, cursor, limit, order), Product.class);
+        CursorPage<ProductResponse> page = CursorPagination.page(rows, limit, order, this::mapToResponse);
+
+        // Facettes sur la première page seulement : les suivantes gardent les mêmes filtres.
+        // Ni tri ni limite dans le $facet (un tri y est fait en mémoire, sans index)
+        ProductFacets facets = null;
+        if (cursor == null || cursor.isBlank()) {
+            Aggregation aggregation = Aggregation.newAggregation(
+                    Aggregation.match(criteria),
+                    Aggregation.facet(Aggregation.bucket("price")
+                                    .withBoundaries(PRICE_BOUNDARIES.toArray())
+                                    .withDefaultBucket(OTHER_PRICES)
+                                    .andOutputCount().as("count")).as("priceBuckets")
+                            .and(Aggregation.group()
+                                    .count().as("total")
+                                    .sum(ConditionalOperators.when(Criteria.where("quantity").gt(0)).then(1).otherwise(0))
+                                    .as("inStock")).as("stock"));
+            Document result = mongoTemplate.aggregate(aggregation, Product.class, Document.class).getUniqueMappedResult();
+            facets = facets(result != null ? result : new Document());
+        }
+        return new ProductPage(page.getItems(), page.getNextCursor(), facets);
+    }
+
+    // NDJSON : un produit par ligne, écrit au fil du curseur Mongo ; mémoire constante quelle que soit la taille du catalogue.
+    // Trié par updatedAt : le client reprend au dernier updatedAt reçu (since inclus, il dédoublonne par id).
+    // Un produit supprimé sort comme {"id", "deleted": true, "updatedAt": date de suppression}, fusionné dans le même
+    // ordre ; les traces expirent après ProductTombstone.RETENTION, un since plus ancien est donc refusé.
+    public long exportProducts(LocalDateTime since, OutputStream out) throws IOException {
+        log.info("Exporting products updated since {}", since);
+        if (since != null && since.isBefore(LocalDateTime.now().minus(ProductTombstone.RETENTION))) {
+            throw new BadRequestException("since is older than the " + ProductTombstone.RETENTION.toDays()
+                    + "-day deletion history, run a full export instead");
+        }
+        Query query = since == null ? new Query() : Query.query(Criteria.where("updatedAt").gte(since));
+        query.with(Sort.by(Sort.Direction.ASC, "updatedAt", "_id")).cursorBatchSize(EXPORT_BATCH_SIZE);
+        // Un export complet ne contient que les produits existants : pas de suppression à signaler
+        Query deletions = since == null ? null : Query.query(Criteria.where("deletedAt").gte(since))
+                .with(Sort.by(Sort.Direction.ASC, "deletedAt", "_id")).cursorBatchSize(EXPORT_BATCH_SIZE);
+
+        long exported = 0;
+        try (Stream<Product> products = mongoTemplate.stream(query, Product.class);
+             Stream<ProductTombstone> tombstones = deletions == null
+                     ? Stream.empty() : mongoTemplate.stream(deletions, ProductTombstone.class)) {
+            Iterator<Product> productIterator = products.iterator();
+            Iterator<ProductTombstone> tombstoneIterator = tombstones.iterator();
+            Product product = productIterator.hasNext() ? productIterator.next() : null;
+            ProductTombstone tombstone = tombstoneIterator.hasNext() ? tombstoneIterator.next() : null;
+            while (product != null || tombstone != null) {
+                if (tombstone == null || (product != null && EXPORT_ORDER.compare(
+                        new ExportPosition(product.getUpdatedAt(), product.getId()),
+                        new ExportPosition(tombstone.getDeletedAt(), tombstone.getId())) <= 0)) {
+                    out.write(objectMapper.writeValueAsBytes(mapToResponse(product)));
+                    product = productIterator.hasNext() ? productIterator.next() : null;
+                } else {
+                    out.write(objectMapper.writeValueAsBytes(
+                            new ProductDeletion(tombstone.getId(), true, tombstone.getDeletedAt())));
+                    tombstone = tombstoneIterator.hasNext() ? tombstoneIterator.next() : null;
+                }
+                out.write('\n');
+                exported++;
+            }
+        }
+        out.flush();
+        log.info("Exported {} products and deletions", exported);
+        return exported;
+    }
+
+    private record ExportPosition(LocalDateTime at, String id) {
+    }
+
+    // Prix et vendeur servis par les index (price, _id) et (userId, ...) ; le stock est un filtre résiduel
+    private Criteria filterCriteria(ProductFilter filter) {
+        List<Criteria> conditions = new ArrayList<>();
+        if (filter.getMinPrice() != null && filter.getMaxPrice() != null
+                && filter.getMinPrice() > filter.getMaxPrice()) {
+            throw new BadRequestException("minPrice must not be greater than maxPrice");
+        }
+        if (filter.getMinPrice() != null || filter.getMaxPrice() != null) {
+            Criteria price = Criteria.where("price");
+            if (filter.getMinPrice() != null) {
+                price = price.gte(filter.getMinPrice());
+            }
+            if (filter.getMaxPrice() != null) {
+                price = price.lte(filter.getMaxPrice());
+            }
+            conditions.add(price);
+        }
+        if (filter.isInStock()) {
+            conditions.add(Criteria.where("quantity").gt(0));
+        }
+        if (filter.getSellerId() != null && !filter.getSellerId().isBlank()) {
+            conditions.add(Criteria.where("userId").is(filter.getSellerId()));
+        }
+        return conditions.isEmpty() ? new Criteria() : new Criteria().andOperator(conditions);
+    }
+
+    private CursorPagination.Order sortOrder(String sort) {
+        if (sort == null || sort.isBlank()) {
+            return CursorPagination.Order.NEWEST;
+        }
+        return switch (sort.toLowerCase(Locale.ROOT)) {
+            case "newest" -> CursorPagination.Order.NEWEST;
+            case "price_asc" -> CursorPagination.Order.PRICE_ASC;
+            case "price_desc" -> CursorPagination.Order.PRICE_DESC;
+            default -> throw new BadRequestException("Unknown sort: " + sort + " (expected newest, price_asc or price_desc)");
+        };
     }
 
-    public List<ProductResponse> getProductsByUserId(String userId) {
+    // Toutes les tranches sont renvoyées, vides comprises, pour un affichage stable côté client
+    private ProductFacets facets(Document result) {
+        Map<Double, Long> counts = new HashMap<>();
+        long above = 0;
+        for (Document bucket : result.getList("priceBuckets", Document.class, List.of())) {
+            long count = ((Number) bucket.get("count")).longValue();
+            if (bucket.get("_id") instanceof Number lower) {
+                counts.put(lower.doubleValue(), count);
+            } else {
+                above = count;  // au-delà de la dernière borne (ou prix absent)
+            }
+        }
+
+        List<PriceBucket> buckets = new ArrayList<>();
+        for (int i = 0; i < PRICE_BOUNDARIES.size() - 1; i++) {
+            double min = PRICE_BOUNDARIES.get(i);
+            buckets.add(new PriceBucket(min, PRICE_BOUNDARIES.get(i + 1).doubleValue(), counts.getOrDefault(min, 0L)));
+        }
+        buckets.add(new PriceBucket(PRICE_BOUNDARIES.get(PRICE_BOUNDARIES.size() - 1).doubleValue(), null, above));
+
+        List<Document> stock = result.getList("stock", Document.class, List.of());
+        long total = stock.isEmpty() ? 0 : ((Number) stock.get(0).get("total")).longValue();
+        long inStock = stock.isEmpty() ? 0 : ((Number) stock.get(0).get("inStock")).longValue();
+        return new ProductFacets(buckets, inStock, total - inStock);
+    }
+
+    public CursorPage<ProductResponse> getProductsByUserId(String userId, String cursor, Integer limit) {
         log.info("Fetching products for user: {}", userId);
-        return productRepository.findByUserId(userId)
-                .stream()
+        return findPage(Criteria.where("userId").is(userId), cursor, limit);
+    }
+
+    // Classement fait par l'index en mémoire ; Mongo n'est lu que pour les produits retenus, par _id
+    public List<ProductResponse> searchProducts(String query, Integer limit) {
+        if (query == null || query.isBlank()) {
+            throw new BadRequestException("Search query is required");
+        }
+        log.info("Searching products: {}", query);
+
+        List<ProductSearchIndex.Hit> hits = productSearchIndex.search(query, CursorPagination.pageSize(limit));
+        Map<String, Product> found = new HashMap<>();
+        productRepository.findAllById(hits.stream().map(ProductSearchIndex.Hit::productId).toList())
+                .forEach(product -> found.put(product.getId(), product));
+        return hits.stream()
+                .map(hit -> found.get(hit.productId()))
+                .filter(Objects::nonNull)
                 .map(this::mapToResponse)
-                .collect(Collectors.toList());
+                .toList();
+    }
+
+    // Servi par les index composés (createdAt, _id) et (userId, createdAt, _id) déclarés sur Product
+    private CursorPage<ProductResponse> findPage(Criteria filter, String cursor, Integer limit) {
+        List<Product> rows = mongoTemplate.find(CursorPagination.query(filter, cursor, limit), Product.class);
+        return CursorPagination.page(rows, limit, this::mapToResponse);
     }
 
     public ProductResponse updateProduct(String userId, String productId, UpdateProductRequest request) {
         log.info("Updating product {} by user {}", productId, userId);
 
-        Product product = productRepository.findById(productId)
-                .orElseThrow(() -> new ResourceNotFoundException("Product not found with id: " + productId));
-
-        // Vérifier que l'utilisateur est le propriétaire
-        if (!product.getUserId().equals(userId)) {
-            throw new UnauthorizedException("You are not authorized to update this product");
-        }
-
-        // Mettre à jour les champs
+        // Mettre à jour les champs fournis uniquement ($set) : une réservation de stock concurrente n'est pas écrasée
+        Update update = new Update().set("updatedAt", LocalDateTime.now());
         if (request.getName() != null) {
-            product.setName(request.getName());
+            update.set("name", request.getName());
         }
         if (request.getDescription() != null) {
-            product.setDescription(request.getDescription());
+            update.set("description", request.getDescription());
         }
         if (request.getPrice() != null) {
-            product.setPrice(request.getPrice());
+            update.set("price", request.getPrice());
         }
         if (request.getQuantity() != null) {
-            product.setQuantity(request.getQuantity());
+            update.set("quantity", request.getQuantity());
         }
         if (request.getImageIds() != null) {
-            product.setImageIds(request.getImageIds());
+            update.set("imageIds", request.getImageIds());
         }
 
-        product.setUpdatedAt(LocalDateTime.now());
-        product = productRepository.save(product);
+        // Propriétaire vérifié dans la même requête
+        Query owned = Query.query(Criteria.where("id").is(productId).and("userId").is(userId));
+        Product product = mongoTemplate.findAndModify(owned, update,
+                FindAndModifyOptions.options().returnNew(true), Product.class);
+        if (product == null) {
+            if (!productRepository.existsById(productId)) {
+                throw new ResourceNotFoundException("Product not found with id: " + productId);
+            }
+            throw new UnauthorizedException("You are not authorized to update this product");
+        }
+
+        productCache.invalidate(productId);
+        productSearchIndex.index(product);
 
         log.info("Product updated successfully: {}", productId);
 
@@ -130,7 +328,11 @@ public class ProductService {
             throw new UnauthorizedException("You are not authorized to delete this product");
         }
 
+        // Trace écrite avant la suppression : si celle-ci échoue, la requête peut être rejouée
+        mongoTemplate.save(new ProductTombstone(productId, userId, LocalDateTime.now()));
         productRepository.delete(product);
+        productCache.invalidate(productId);
+        productSearchIndex.remove(productId);
         log.info("Product deleted successfully: {}", productId);
 
         // Envoyer événement Kafka
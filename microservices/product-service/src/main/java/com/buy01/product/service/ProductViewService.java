@@ -0,0 +1,130 @@
+package com.buy01.product.service;
+
+import com.buy01.product.dto.MediaSummary;
+import com.buy01.product.dto.ProductResponse;
+import com.buy01.product.dto.ProductViewResponse;
+import com.buy01.product.dto.SellerSummary;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestClient;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+// Page produit en un seul appel : médias et profil du seller récupérés en parallèle,
+// chacun avec son délai ; une dépendance lente ou en panne donne une réponse partielle, pas une erreur.
+@Service
+@Slf4j
+public class ProductViewService {
+
+    private final ProductService productService;
+    private final Executor productViewExecutor;
+    private final RestClient mediaClient;
+    private final RestClient userClient;
+    private final Duration mediaTimeout;
+    private final Duration sellerTimeout;
+
+    public ProductViewService(ProductService productService,
+                              @Qualifier("productViewExecutor") Executor productViewExecutor,
+                              RestClient.Builder loadBalancedRestClientBuilder,
+                              @Value("${product.view.media-timeout:PT1S}") Duration mediaTimeout,
+                              @Value("${product.view.seller-timeout:PT1S}") Duration sellerTimeout) {
+        this.productService = productService;
+        this.productViewExecutor = productViewExecutor;
+        this.mediaTimeout = mediaTimeout;
+        this.sellerTimeout = sellerTimeout;
+        this.mediaClient = loadBalancedRestClientBuilder.clone()
+                .baseUrl("http://media-service")
+                .requestFactory(requestFactory(mediaTimeout))
+                .build();
+        this.userClient = loadBalancedRestClientBuilder.clone()
+                .baseUrl("http://user-service")
+                .requestFactory(requestFactory(sellerTimeout))
+                .build();
+    }
+
+    public ProductViewResponse getProductView(String productId, String authorization) {
+        // Produit d'abord (cache local) : ses imageIds et son userId paramètrent les deux autres appels
+        ProductResponse product = productService.getProductById(productId);
+
+        List<String> imageIds = product.getImageIds() != null ? product.getImageIds() : List.of();
+        CompletableFuture<List<MediaSummary>> media = imageIds.isEmpty()
+                ? CompletableFuture.completedFuture(List.of())
+                : fetch("media", () -> fetchMedia(imageIds), mediaTimeout);
+        // Le profil n'est servi qu'aux utilisateurs connectés : on transmet leur jeton tel quel
+        CompletableFuture<SellerSummary> seller = authorization == null
+                ? CompletableFuture.completedFuture(null)
+                : fetch("seller", () -> fetchSeller(product.getUserId(), authorization), sellerTimeout);
+
+        List<String> unavailable = new ArrayList<>();
+        List<MediaSummary> mediaResult = media.join();
+        if (mediaResult == null) {
+            unavailable.add("media");
+            mediaResult = List.of();
+        }
+        SellerSummary sellerResult = seller.join();
+        if (sellerResult == null && authorization != null) {
+            unavailable.add("seller");
+        }
+        return new ProductViewResponse(product, mediaResult, sellerResult, unavailable);
+    }
+
+    // null en cas d'échec, de dépassement du délai ou de pool saturé
+    private <T> CompletableFuture<T> fetch(String dependency, Supplier<T> call, Duration timeout) {
+        CompletableFuture<T> future;
+        try {
+            future = CompletableFuture.supplyAsync(call, productViewExecutor);
+        } catch (RejectedExecutionException e) {
+            log.warn("Product view: {} unavailable (executor saturated)", dependency);
+            return CompletableFuture.completedFuture(null);
+        }
+        return future
+                .orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS)
+                .exceptionally(e -> {
+                    log.warn("Product view: {} unavailable ({})", dependency, e.toString());
+                    return null;
+                });
+    }
+
+    private List<MediaSummary> fetchMedia(List<String> imageIds) {
+        List<MediaSummary> media = mediaClient.get()
+                .uri(uri -> uri.path("/api/media/by-ids").queryParam("ids", String.join(",", imageIds)).build())
+                .retrieve()
+                .body(new ParameterizedTypeReference<List<MediaSummary>>() {});
+        if (media == null) {
+            return List.of();
+        }
+        // Ordre des imageIds du produit (la première image est la couverture)
+        return media.stream()
+                .sorted(Comparator.comparingInt(item -> imageIds.indexOf(item.getId())))
+                .toList();
+    }
+
+    private SellerSummary fetchSeller(String userId, String authorization) {
+        return userClient.get()
+                .uri("/api/users/{id}", userId)
+                .header(HttpHeaders.AUTHORIZATION, authorization)
+                .retrieve()
+                .body(SellerSummary.class);
+    }
+
+    // Le délai de lecture libère aussi le thread du pool quand l'attente côté appelant a déjà expiré
+    private static SimpleClientHttpRequestFactory requestFactory(Duration timeout) {
+        SimpleClientHttpRequestFactory factory = new SimpleClientHttpRequestFactory();
+        factory.setConnectTimeout(timeout);
+        factory.setReadTimeout(timeout);
+        return factory;
+    }
+}
@@ -0,0 +1,11 @@
+package com.buy01.product.service;
+
+import java.io.IOException;
+
+// Ligne d'import au-delà de la longueur autorisée ; le lecteur est déjà positionné sur la suivante
+class RecordTooLongException extends IOException {
+
+    RecordTooLongException(int maxLength) {
+        super("Row exceeds " + maxLength + " characters");
+    }
+}
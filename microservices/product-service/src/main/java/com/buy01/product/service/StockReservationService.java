@@ -0,0 +1,226 @@
+package com.buy01.product.service;
+
+import com.buy01.product.dto.StockReservationResponse;
+import com.buy01.product.exception.BadRequestException;
+import com.buy01.product.exception.ConflictException;
+import com.buy01.product.exception.ResourceNotFoundException;
+import com.buy01.product.exception.UnauthorizedException;
+import com.buy01.product.model.Product;
+import com.buy01.product.model.ReservationStatus;
+import com.buy01.product.model.StockReservation;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Locale;
+
+// Réservations de stock : chaque réservation est un document (quantité, acheteur, expiration).
+// Une libération ne rend que ce que sa réservation a pris ; une réservation oubliée rend son stock à l'expiration.
+// Sans transaction, la réservation est écrite PENDING avant de toucher au stock : une instance arrêtée entre les
+// deux écritures laisse un document que le balayage retrouve, jamais du stock pris sans réservation
+@Service
+@Slf4j
+public class StockReservationService {
+
+    private static final int SWEEP_BATCH_SIZE = 500;
+
+    private final MongoTemplate mongoTemplate;
+    private final KafkaTemplate<String, String> kafkaTemplate;
+    private final ProductCache productCache;
+    private final Duration ttl;
+
+    public StockReservationService(MongoTemplate mongoTemplate,
+                                   KafkaTemplate<String, String> kafkaTemplate,
+                                   ProductCache productCache,
+                                   @Value("${product.reservation.ttl:PT15M}") Duration ttl) {
+        this.mongoTemplate = mongoTemplate;
+        this.kafkaTemplate = kafkaTemplate;
+        this.productCache = productCache;
+        this.ttl = ttl;
+    }
+
+    // Décrément conditionnel atomique (quantity >= n) : jamais de stock négatif, même sur un produit très demandé
+    public StockReservationResponse reserve(String userId, String productId, int quantity) {
+        log.info("Reserving {} of product {} for user {}", quantity, productId, userId);
+        LocalDateTime now = LocalDateTime.now();
+        StockReservation reservation = mongoTemplate.insert(new StockReservation(new ObjectId().toHexString(),
+                productId, userId, quantity, ReservationStatus.PENDING, now, now.plus(ttl), null));
+
+        // Le décrément marque le produit avec l'id de la réservation, dans la même écriture : le balayage
+        // sait ainsi si le stock d'une réservation restée PENDING a été pris
+        Query available = Query.query(Criteria.where("id").is(productId).and("quantity").gte(quantity));
+        Update update = new Update().inc("quantity", -quantity).set("updatedAt", LocalDateTime.now())
+                .addToSet("pendingReservations", reservation.getId());
+        Product product = mongoTemplate.findAndModify(available, update,
+                FindAndModifyOptions.options().returnNew(true), Product.class);
+        if (product == null) {
+            mongoTemplate.remove(pending(reservation), StockReservation.class);
+            if (!mongoTemplate.exists(Query.query(Criteria.where("id").is(productId)), Product.class)) {
+                throw new ResourceNotFoundException("Product not found with id: " + productId);
+            }
+            throw new ConflictException("Insufficient stock for product: " + productId);
+        }
+
+        if (mongoTemplate.updateFirst(pending(reservation), new Update().set("status", ReservationStatus.ACTIVE),
+                StockReservation.class).getModifiedCount() == 0) {
+            // Balayée entre-temps : le stock n'est rendu qu'une fois, par qui retire la marque
+            returnPendingStock(productId, reservation);
+            throw new ConflictException("Reservation expired before it could be created, please retry");
+        }
+        // Marque devenue inutile ; si ce retrait échoue, elle ne concerne plus une réservation PENDING
+        mongoTemplate.updateFirst(Query.query(Criteria.where("id").is(productId)),
+                new Update().pull("pendingReservations", reservation.getId()), Product.class);
+        reservation.setStatus(ReservationStatus.ACTIVE);
+        stockChanged(product);
+        return toResponse(reservation, product.getQuantity());
+    }
+
+    // Commande passée : le stock reste pris et la réservation n'expirera plus
+    public StockReservationResponse confirm(String userId, String productId, String reservationId) {
+        log.info("Confirming reservation {} of product {} by user {}", reservationId, productId, userId);
+        StockReservation reservation = activeReservation(userId, productId, reservationId);
+        Update update = new Update()
+                .set("status", ReservationStatus.CONFIRMED)
+                .set("closedAt", LocalDateTime.now());
+        StockReservation updated = mongoTemplate.findAndModify(unchanged(reservation), update,
+                FindAndModifyOptions.options().returnNew(true), StockReservation.class);
+        if (updated == null) {
+            throw new ConflictException("Reservation was modified concurrently, please retry");
+        }
+        return toResponse(updated, null);
+    }
+
+    // quantity absente : toute la quantité encore réservée
+    public StockReservationResponse release(String userId, String productId, String reservationId, Integer quantity) {
+        log.info("Releasing reservation {} of product {} by user {}", reservationId, productId, userId);
+        StockReservation reservation = activeReservation(userId, productId, reservationId);
+        int released = quantity == null ? reservation.getQuantity() : quantity;
+        if (released > reservation.getQuantity()) {
+            throw new BadRequestException("Cannot release " + released + ", only " + reservation.getQuantity()
+                    + " reserved");
+        }
+
+        // Conditionné sur la quantité lue : deux libérations concurrentes ne rendent pas deux fois le même stock
+        int left = reservation.getQuantity() - released;
+        Update update = new Update().set("quantity", left);
+        if (left == 0) {
+            update.set("status", ReservationStatus.RELEASED).set("closedAt", LocalDateTime.now());
+        }
+        StockReservation updated = mongoTemplate.findAndModify(unchanged(reservation), update,
+                FindAndModifyOptions.options().returnNew(true), StockReservation.class);
+        if (updated == null) {
+            throw new ConflictException("Reservation was modified concurrently, please retry");
+        }
+        Product product = returnStock(productId, released);
+        return toResponse(updated, product != null ? product.getQuantity() : null);
+    }
+
+    // Réservations expirées : réclamées une à une (une seule instance rend le stock), puis stock rendu.
+    // Une réservation encore PENDING à son expiration a été interrompue (instance arrêtée) : son stock n'est
+    // rendu que si le produit porte sa marque, c'est-à-dire si le décrément a eu lieu
+    @Scheduled(fixedDelayString = "${product.reservation.sweep-interval:PT1M}")
+    public void expireReservations() {
+        Query expired = Query.query(Criteria.where("status").in(ReservationStatus.ACTIVE, ReservationStatus.PENDING)
+                .and("expiresAt").lt(LocalDateTime.now())).limit(SWEEP_BATCH_SIZE);
+        int count = 0;
+        for (StockReservation reservation : mongoTemplate.find(expired, StockReservation.class)) {
+            Update update = new Update()
+                    .set("status", ReservationStatus.EXPIRED)
+                    .set("quantity", 0)
+                    .set("closedAt", LocalDateTime.now());
+            if (mongoTemplate.findAndModify(unchanged(reservation), update, StockReservation.class) == null) {
+                continue;
+            }
+            if (reservation.getStatus() == ReservationStatus.PENDING) {
+                returnPendingStock(reservation.getProductId(), reservation);
+            } else {
+                returnStock(reservation.getProductId(), reservation.getQuantity());
+            }
+            count++;
+        }
+        if (count > 0) {
+            log.info("Expired {} stock reservation(s)", count);
+        }
+    }
+
+    // Une réservation échue mais pas encore balayée est traitée comme expirée
+    private StockReservation activeReservation(String userId, String productId, String reservationId) {
+        StockReservation reservation = mongoTemplate.findById(reservationId, StockReservation.class);
+        if (reservation == null || !reservation.getProductId().equals(productId)) {
+            throw new ResourceNotFoundException("Reservation not found with id: " + reservationId);
+        }
+        if (!reservation.getUserId().equals(userId)) {
+            throw new UnauthorizedException("You are not authorized to modify this reservation");
+        }
+        if (reservation.getStatus() == ReservationStatus.PENDING) {
+            throw new ConflictException("Reservation is not active yet");
+        }
+        if (reservation.getStatus() != ReservationStatus.ACTIVE) {
+            throw new ConflictException("Reservation is already " + reservation.getStatus().name().toLowerCase(Locale.ROOT));
+        }
+        if (!reservation.getExpiresAt().isAfter(LocalDateTime.now())) {
+            throw new ConflictException("Reservation has expired");
+        }
+        return reservation;
+    }
+
+    private static Query unchanged(StockReservation reservation) {
+        return Query.query(Criteria.where("_id").is(reservation.getId())
+                .and("status").is(reservation.getStatus())
+                .and("quantity").is(reservation.getQuantity()));
+    }
+
+    private static Query pending(StockReservation reservation) {
+        return Query.query(Criteria.where("_id").is(reservation.getId()).and("status").is(ReservationStatus.PENDING));
+    }
+
+    // Stock rendu et marque retirée dans la même écriture : sans marque (décrément jamais fait, ou déjà rendu),
+    // rien n'est rendu
+    private void returnPendingStock(String productId, StockReservation reservation) {
+        Update update = new Update().inc("quantity", reservation.getQuantity()).set("updatedAt", LocalDateTime.now())
+                .pull("pendingReservations", reservation.getId());
+        Product product = mongoTemplate.findAndModify(
+                Query.query(Criteria.where("id").is(productId).and("pendingReservations").is(reservation.getId())),
+                update, FindAndModifyOptions.options().returnNew(true), Product.class);
+        if (product != null) {
+            stockChanged(product);
+        }
+    }
+
+    // Produit supprimé entre-temps : rien à rendre
+    private Product returnStock(String productId, int quantity) {
+        Update update = new Update().inc("quantity", quantity).set("updatedAt", LocalDateTime.now());
+        Product product = mongoTemplate.findAndModify(Query.query(Criteria.where("id").is(productId)), update,
+                FindAndModifyOptions.options().returnNew(true), Product.class);
+        if (product != null) {
+            stockChanged(product);
+        }
+        return product;
+    }
+
+    // Seul le stock a changé : les autres instances invalident leur cache sans réindexer le texte
+    private void stockChanged(Product product) {
+        productCache.invalidate(product.getId());
+        try {
+            String message = String.format("PRODUCT_STOCK_CHANGED:%s:%s", product.getId(), product.getUserId());
+            kafkaTemplate.send("product-events", message);
+        } catch (Exception e) {
+            log.error("Failed to send Kafka event", e);
+        }
+    }
+
+    private static StockReservationResponse toResponse(StockReservation reservation, Integer remainingStock) {
+        return new StockReservationResponse(reservation.getId(), reservation.getProductId(), reservation.getQuantity(),
+                reservation.getStatus().name(), reservation.getExpiresAt(), remainingStock);
+    }
+}
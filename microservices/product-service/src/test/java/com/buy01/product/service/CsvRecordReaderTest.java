@@ -0,0 +1,62 @@
+package com.buy01.product.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CsvRecordReaderTest {
+
+    @Test
+    void quotedFieldsKeepCommasAndDoubledQuotes() throws Exception {
+        CsvRecordReader csv = reader("\"Lamp, desk\",\"The \"\"best\"\" lamp\",12.5\n");
+
+        assertEquals(List.of("Lamp, desk", "The \"best\" lamp", "12.5"), csv.next());
+        assertNull(csv.next());
+    }
+
+    @Test
+    void crlfLineEndingsAreStripped() throws Exception {
+        CsvRecordReader csv = reader("a,b\r\nc,\"d\"\r\n");
+
+        assertEquals(List.of("a", "b"), csv.next());
+        assertEquals(List.of("c", "d"), csv.next());
+        assertNull(csv.next());
+    }
+
+    @Test
+    void newlinesInsideQuotesBelongToTheField() throws Exception {
+        CsvRecordReader csv = reader("\"line one\nline two\",x\nnext,y");
+
+        assertEquals(List.of("line one\nline two", "x"), csv.next());
+        assertEquals(List.of("next", "y"), csv.next());
+        assertNull(csv.next());
+    }
+
+    @Test
+    void unterminatedQuoteIsMalformed() {
+        CsvRecordReader csv = reader("\"never closed,1\n");
+
+        assertThrows(CsvRecordReader.MalformedCsvException.class, csv::next);
+    }
+
+    @Test
+    void tooLongRecordIsSkippedUpToItsEnd() throws Exception {
+        // Le retour à la ligne entre guillemets ne doit pas être pris pour la fin de l'enregistrement
+        CsvRecordReader csv = reader("\"" + "x".repeat(30) + "\n" + "y".repeat(30) + "\",1\nok,2\n", 20);
+
+        assertThrows(RecordTooLongException.class, csv::next);
+        assertEquals(List.of("ok", "2"), csv.next());
+        assertNull(csv.next());
+    }
+
+    private static CsvRecordReader reader(String content) {
+        return reader(content, 1024);
+    }
+
+    private static CsvRecordReader reader(String content, int maxRecordLength) {
+        return new CsvRecordReader(new StringReader(content), maxRecordLength);
+    }
+}
@@ -0,0 +1,87 @@
+package com.buy01.product.service;
+
+import com.buy01.product.dto.CursorPage;
+import com.buy01.product.exception.BadRequestException;
+import com.buy01.product.model.Product;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.query.Criteria;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CursorPaginationTest {
+
+    private static final LocalDateTime T = LocalDateTime.of(2024, 5, 1, 12, 0);
+
+    @Test
+    void equalCreatedAtIsBrokenByIdDescending() {
+        List<Product> rows = List.of(product("c", T, 10.0), product("b", T, 10.0), product("a", T, 10.0));
+
+        CursorPage<String> page = CursorPagination.page(rows, 2, Product::getId);
+        assertEquals(List.of("c", "b"), page.getItems());
+
+        Document tie = tieBranch(CursorPagination.after(page.getNextCursor(), CursorPagination.Order.NEWEST));
+        assertEquals(T, tie.get("createdAt"));
+        assertEquals(new Document("$lt", "b"), tie.get("id"));
+    }
+
+    @Test
+    void equalPriceIsBrokenByIdInTheSortDirection() {
+        List<Product> rows = List.of(product("a", T, 5.0), product("b", T, 5.0), product("c", T, 5.0));
+
+        CursorPage<String> page = CursorPagination.page(rows, 2, CursorPagination.Order.PRICE_ASC, Product::getId);
+
+        Document tie = tieBranch(CursorPagination.after(page.getNextCursor(), CursorPagination.Order.PRICE_ASC));
+        assertEquals(5.0, tie.get("price"));
+        assertEquals(new Document("$gt", "b"), tie.get("id"));
+    }
+
+    @Test
+    void invalidOrTamperedCursorsAreRejected() {
+        for (String cursor : List.of("not base64!", encode("NEWEST|2024-05-01T12:00"), encode("NEWEST|2024-05-01T12:00|"),
+                encode("NEWEST|yesterday|id"), encode("OLDEST|2024-05-01T12:00|id"))) {
+            assertThrows(BadRequestException.class,
+                    () -> CursorPagination.after(cursor, CursorPagination.Order.NEWEST), cursor);
+        }
+        assertThrows(BadRequestException.class,
+                () -> CursorPagination.after(encode("PRICE_ASC|cheap|id"), CursorPagination.Order.PRICE_ASC));
+    }
+
+    @Test
+    void cursorFromAnotherSortOrderIsRejected() {
+        CursorPage<String> page = CursorPagination.page(
+                List.of(product("b", T, 5.0), product("a", T, 4.0)), 1, CursorPagination.Order.PRICE_DESC, Product::getId);
+
+        assertThrows(BadRequestException.class, () -> CursorPagination.query(Criteria.where("userId").is("u"),
+                page.getNextCursor(), 1, CursorPagination.Order.NEWEST));
+    }
+
+    @Test
+    void limitDefaultsAndIsBounded() {
+        assertEquals(CursorPagination.DEFAULT_LIMIT, CursorPagination.pageSize(null));
+        assertEquals(1, CursorPagination.pageSize(-5));
+        assertEquals(CursorPagination.MAX_LIMIT, CursorPagination.pageSize(10_000));
+    }
+
+    private static Document tieBranch(Criteria after) {
+        List<?> or = (List<?>) after.getCriteriaObject().get("$or");
+        return (Document) or.get(1);
+    }
+
+    private static Product product(String id, LocalDateTime createdAt, double price) {
+        Product product = new Product();
+        product.setId(id);
+        product.setCreatedAt(createdAt);
+        product.setPrice(price);
+        return product;
+    }
+
+    private static String encode(String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
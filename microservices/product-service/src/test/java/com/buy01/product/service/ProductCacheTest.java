@@ -0,0 +1,105 @@
+package com.buy01.product.service;
+
+import com.buy01.product.model.Product;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductCacheTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void secondReadIsServedFromMemory() {
+        ProductCache cache = new ProductCache(registry, 10, Duration.ofMinutes(10));
+        AtomicInteger loads = new AtomicInteger();
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals("p1", cache.get("p1", () -> {
+                loads.incrementAndGet();
+                return Optional.of(product("p1"));
+            }).orElseThrow().getId());
+        }
+
+        assertEquals(1, loads.get());
+        assertEquals(2.0 / 3, registry.get("product.cache.hit.ratio").gauge().value(), 1e-9);
+    }
+
+    @Test
+    void missingProductsAreNotCached() {
+        ProductCache cache = new ProductCache(registry, 10, Duration.ofMinutes(10));
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.get("gone", () -> {
+            loads.incrementAndGet();
+            return Optional.empty();
+        });
+        cache.get("gone", () -> {
+            loads.incrementAndGet();
+            return Optional.empty();
+        });
+
+        assertEquals(2, loads.get());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void expiredEntriesAreReloaded() throws Exception {
+        ProductCache cache = new ProductCache(registry, 10, Duration.ofMillis(20));
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.get("p1", () -> Optional.of(product("p" + loads.incrementAndGet())));
+        Thread.sleep(40);
+        assertEquals("p2", cache.get("p1", () -> Optional.of(product("p" + loads.incrementAndGet())))
+                .orElseThrow().getId());
+    }
+
+    @Test
+    void leastRecentlyReadEntryIsEvicted() {
+        ProductCache cache = new ProductCache(registry, 2, Duration.ofMinutes(10));
+        cache.get("a", () -> Optional.of(product("a")));
+        cache.get("b", () -> Optional.of(product("b")));
+        cache.get("a", Optional::empty);  // a devient le plus récent
+        cache.get("c", () -> Optional.of(product("c")));
+
+        assertEquals(2, cache.size());
+        assertTrue(cache.get("a", Optional::empty).isPresent());
+        assertTrue(cache.get("b", Optional::empty).isEmpty());
+    }
+
+    @Test
+    void invalidationRemovesTheEntry() {
+        ProductCache cache = new ProductCache(registry, 10, Duration.ofMinutes(10));
+        cache.get("p1", () -> Optional.of(product("p1")));
+
+        cache.invalidate("p1");
+
+        assertEquals(0, cache.size());
+        assertTrue(cache.get("p1", Optional::empty).isEmpty());
+    }
+
+    @Test
+    void loadOverlappingAnInvalidationIsNotCached() {
+        ProductCache cache = new ProductCache(registry, 10, Duration.ofMinutes(10));
+
+        // Lecture Mongo faite avant une écriture, terminée après son invalidation : valeur périmée
+        Optional<Product> stale = cache.get("p1", () -> {
+            cache.invalidate("p1");
+            return Optional.of(product("p1"));
+        });
+
+        assertTrue(stale.isPresent());
+        assertEquals(0, cache.size());
+    }
+
+    private static Product product(String id) {
+        Product product = new Product();
+        product.setId(id);
+        return product;
+    }
+}
@@ -0,0 +1,83 @@
+package com.buy01.product.service;
+
+import com.buy01.product.dto.ProductImportError;
+import com.buy01.product.dto.ProductImportResponse;
+import com.buy01.product.model.Product;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.kafka.core.KafkaTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class ProductImportServiceTest {
+
+    private static final int MAX_RECORD_LENGTH = 200;
+
+    private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    private ProductImportService service;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        when(mongoTemplate.bulkOps(any(BulkOperations.BulkMode.class), eq(Product.class)))
+                .thenReturn(mock(BulkOperations.class));
+        service = new ProductImportService(mongoTemplate, mock(KafkaTemplate.class),
+                Validation.buildDefaultValidatorFactory().getValidator(), new ObjectMapper(),
+                mock(ProductSearchIndex.class), 500, 1000, MAX_RECORD_LENGTH);
+    }
+
+    @Test
+    void blankLinesCountTheSameInCsvAndNdjson() throws Exception {
+        ProductImportResponse csv = importProducts("text/csv", """
+                name,description,price,quantity
+                Lamp,Desk lamp,12.5,3
+
+                Chair,Wooden chair,oops,1
+                """);
+        ProductImportResponse ndjson = importProducts("application/x-ndjson", """
+                {"name":"Lamp","description":"Desk lamp","price":12.5,"quantity":3}
+
+                {"name":"Chair","description":"Wooden chair","price":"oops","quantity":1}
+                """);
+
+        assertEquals(List.of(3), rows(csv));
+        assertEquals(List.of(3), rows(ndjson));
+    }
+
+    @Test
+    void overLongRowsAreRejectedAndReadingResumes() throws Exception {
+        String longName = "x".repeat(MAX_RECORD_LENGTH);
+        ProductImportResponse csv = importProducts("text/csv", "name,description,price,quantity\n"
+                + longName + ",Too long,1,1\n"
+                + "Lamp,Desk lamp,12.5,3\n");
+        ProductImportResponse ndjson = importProducts("application/x-ndjson",
+                "{\"name\":\"" + longName + "\",\"description\":\"Too long\",\"price\":1,\"quantity\":1}\n"
+                        + "{\"name\":\"Lamp\",\"description\":\"Desk lamp\",\"price\":12.5,\"quantity\":3}\n");
+
+        for (ProductImportResponse response : List.of(csv, ndjson)) {
+            assertEquals(1, response.getImported());
+            assertEquals(List.of(1), rows(response));
+            assertEquals("Row exceeds " + MAX_RECORD_LENGTH + " characters", response.getErrors().get(0).getError());
+        }
+    }
+
+    private ProductImportResponse importProducts(String contentType, String body) throws Exception {
+        return service.importProducts("seller-1",
+                new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), contentType);
+    }
+
+    private static List<Integer> rows(ProductImportResponse response) {
+        return response.getErrors().stream().map(ProductImportError::getRow).toList();
+    }
+}
@@ -0,0 +1,135 @@
+package com.buy01.product.service;
+
+import com.buy01.product.exception.ServiceUnavailableException;
+import com.buy01.product.model.Product;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class ProductSearchIndexTest {
+
+    private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+
+    @Test
+    void tokenizeLowercasesStripsAccentsAndShortTokens() {
+        assertEquals(List.of("cafe", "creme", "10", "ml"),
+                ProductSearchIndex.tokenize("Café-CRÈME, 10 ml a"));
+        assertEquals(List.of(), ProductSearchIndex.tokenize(null));
+        assertEquals(List.of(), ProductSearchIndex.tokenize("  !?  "));
+    }
+
+    @Test
+    void editDistanceCountsTranspositionsAndStopsAtTheBound() {
+        assertEquals(0, ProductSearchIndex.editDistance("lampe", "lampe", 2));
+        assertEquals(1, ProductSearchIndex.editDistance("lampe", "lmape", 2));  // transposition
+        assertEquals(1, ProductSearchIndex.editDistance("lampe", "lamp", 2));
+        assertEquals(2, ProductSearchIndex.editDistance("chaussure", "chasure", 2));
+        assertEquals(2, ProductSearchIndex.editDistance("table", "chaise", 1));  // borne dépassée : max + 1
+        assertEquals(2, ProductSearchIndex.editDistance("ab", "abcdef", 1));
+    }
+
+    @Test
+    void nameMatchesOutrankDescriptionMatches() {
+        ProductSearchIndex index = built(
+                product("1", "Lampe de bureau", "éclairage LED"),
+                product("2", "Bureau en chêne", "livré avec une lampe"),
+                product("3", "Chaise", "assise confortable"));
+
+        List<ProductSearchIndex.Hit> hits = index.search("lampe", 10);
+
+        assertEquals(List.of("1", "2"), hits.stream().map(ProductSearchIndex.Hit::productId).toList());
+        assertTrue(hits.get(0).score() > hits.get(1).score());
+    }
+
+    @Test
+    void rareTermsWeighMoreThanCommonOnes() {
+        ProductSearchIndex index = built(
+                product("1", "Table bois", null),
+                product("2", "Table verre", null),
+                product("3", "Table métal", null));
+
+        List<ProductSearchIndex.Hit> hits = index.search("table verre", 10);
+
+        assertEquals("2", hits.get(0).productId());
+        assertEquals(3, hits.size());
+    }
+
+    @Test
+    void toleratesTyposOnLongerWordsOnly() {
+        ProductSearchIndex index = built(
+                product("1", "Chaussure de randonnée", null),
+                product("2", "Sac", null));
+
+        assertEquals("1", index.search("chausure", 10).get(0).productId());  // 1 faute sur 8 lettres
+        assertEquals("1", index.search("randonee", 10).get(0).productId());
+        assertTrue(index.search("sax", 10).isEmpty());  // 3 lettres : correspondance exacte uniquement
+
+        // Une faute coûte : l'orthographe exacte reste devant
+        ProductSearchIndex both = built(product("1", "chaussure", null), product("2", "chaussures", null));
+        assertEquals("1", both.search("chaussure", 10).get(0).productId());
+    }
+
+    @Test
+    void removedAndUpdatedProductsLeaveTheIndex() {
+        ProductSearchIndex index = built(product("1", "Lampe", null), product("2", "Lampe rouge", null));
+
+        index.remove("1");
+        assertEquals(List.of("2"), index.search("lampe", 10).stream().map(ProductSearchIndex.Hit::productId).toList());
+        assertEquals(1, index.size());
+
+        index.index(product("2", "Fauteuil", null));
+        assertTrue(index.search("lampe", 10).isEmpty());
+        assertEquals("2", index.search("fauteuil", 10).get(0).productId());
+
+        index.remove("2");
+        assertTrue(index.search("fauteuil", 10).isEmpty());
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    void searchBeforeTheFirstBuildIsRefused() {
+        ProductSearchIndex index = new ProductSearchIndex(mongoTemplate, Duration.ofMillis(50));
+        index.index(product("1", "Lampe", null));  // événement reçu avant le chargement
+
+        assertFalse(index.isReady());
+        assertThrows(ServiceUnavailableException.class, () -> index.search("lampe", 10));
+    }
+
+    @Test
+    void failedBuildIsRetriedByTheNextSearch() {
+        ProductSearchIndex index = new ProductSearchIndex(mongoTemplate, Duration.ofMillis(50));
+        when(mongoTemplate.stream(any(Query.class), eq(Product.class)))
+                .thenThrow(new IllegalStateException("mongo down"))
+                .thenAnswer(invocation -> Stream.of(product("1", "Lampe", null)));
+
+        index.rebuild();
+        assertFalse(index.isReady());
+
+        assertEquals("1", index.search("lampe", 10).get(0).productId());
+        assertTrue(index.isReady());
+    }
+
+    private ProductSearchIndex built(Product... products) {
+        when(mongoTemplate.stream(any(Query.class), eq(Product.class))).thenReturn(Stream.of(products));
+        ProductSearchIndex index = new ProductSearchIndex(mongoTemplate, Duration.ofMillis(50));
+        index.rebuild();
+        return index;
+    }
+
+    private static Product product(String id, String name, String description) {
+        Product product = new Product();
+        product.setId(id);
+        product.setName(name);
+        product.setDescription(description);
+        return product;
+    }
+}
@@ -0,0 +1,140 @@
+package com.buy01.product.service;
+
+import com.buy01.product.dto.ProductFilter;
+import com.buy01.product.dto.ProductPage;
+import com.buy01.product.exception.BadRequestException;
+import com.buy01.product.model.Product;
+import com.buy01.product.model.ProductTombstone;
+import com.buy01.product.repository.ProductRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationResults;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.kafka.core.KafkaTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class ProductServiceTest {
+
+    private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    private final ProductRepository productRepository = mock(ProductRepository.class);
+    private ProductService service;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        service = new ProductService(productRepository, mock(KafkaTemplate.class), mongoTemplate,
+                new ObjectMapper().findAndRegisterModules(), mock(ProductSearchIndex.class), mock(ProductCache.class));
+    }
+
+    @Test
+    void firstPageReadsItemsWithTheKeysetQueryAndAggregatesOnlyTheFacets() {
+        List<Product> rows = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            rows.add(product("p" + i, 10.0 * (i + 1)));
+        }
+        when(mongoTemplate.find(any(Query.class), eq(Product.class))).thenReturn(rows);
+        Document facets = new Document("priceBuckets", List.of(new Document("_id", 0).append("count", 3)))
+                .append("stock", List.of(new Document("total", 3).append("inStock", 2)));
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq(Product.class), eq(Document.class)))
+                .thenReturn(new AggregationResults<>(List.of(facets), new Document()));
+
+        ProductFilter filter = new ProductFilter();
+        filter.setSort("price_asc");
+        ProductPage page = service.getAllProducts(filter, null, 2);
+
+        assertEquals(List.of("p0", "p1"), page.getItems().stream().map(item -> item.getId()).toList());
+        assertNotNull(page.getNextCursor());
+        assertEquals(2, page.getFacets().getInStock());
+        assertEquals(1, page.getFacets().getOutOfStock());
+
+        // Tri et limite portés par la requête (index), jamais par le $facet
+        verify(mongoTemplate).find(argThat((Query query) -> query.getLimit() == 3
+                && query.getSortObject().containsKey("price")), eq(Product.class));
+        verify(mongoTemplate).aggregate(argThat((Aggregation aggregation) -> {
+            String pipeline = aggregation.toPipeline(Aggregation.DEFAULT_CONTEXT).toString();
+            return !pipeline.contains("$sort") && !pipeline.contains("$limit");
+        }), eq(Product.class), eq(Document.class));
+    }
+
+    @Test
+    void laterPagesSkipTheFacetAggregation() {
+        when(mongoTemplate.find(any(Query.class), eq(Product.class)))
+                .thenReturn(List.of(product("p0", 10.0), product("p1", 20.0)));
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq(Product.class), eq(Document.class)))
+                .thenReturn(new AggregationResults<>(List.of(), new Document()));
+        ProductFilter filter = new ProductFilter();
+        ProductPage first = service.getAllProducts(filter, null, 1);
+        clearInvocations(mongoTemplate);
+
+        ProductPage next = service.getAllProducts(filter, first.getNextCursor(), 1);
+
+        assertNull(next.getFacets());
+        verify(mongoTemplate, never()).aggregate(any(Aggregation.class), eq(Product.class), eq(Document.class));
+    }
+
+    @Test
+    void incrementalExportInterleavesDeletionsInUpdateOrder() throws Exception {
+        LocalDateTime since = LocalDateTime.now().minusDays(1);
+        Product first = product("p1", 10.0);
+        first.setUpdatedAt(since.plusHours(1));
+        Product last = product("p3", 10.0);
+        last.setUpdatedAt(since.plusHours(3));
+        when(mongoTemplate.stream(any(Query.class), eq(Product.class))).thenReturn(Stream.of(first, last));
+        when(mongoTemplate.stream(any(Query.class), eq(ProductTombstone.class)))
+                .thenReturn(Stream.of(new ProductTombstone("p2", "seller-1", since.plusHours(2))));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        assertEquals(3, service.exportProducts(since, out));
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertTrue(lines[0].contains("\"id\":\"p1\""), lines[0]);
+        assertTrue(lines[1].contains("\"id\":\"p2\"") && lines[1].contains("\"deleted\":true"), lines[1]);
+        assertTrue(lines[2].contains("\"id\":\"p3\""), lines[2]);
+    }
+
+    @Test
+    void exportSinceBeforeTheDeletionHistoryIsRefused() {
+        LocalDateTime since = LocalDateTime.now().minus(ProductTombstone.RETENTION).minusDays(1);
+
+        assertThrows(BadRequestException.class, () -> service.exportProducts(since, new ByteArrayOutputStream()));
+        verifyNoInteractions(mongoTemplate);
+    }
+
+    @Test
+    void deletionLeavesATombstone() {
+        Product product = product("p1", 10.0);
+        product.setUserId("seller-1");
+        when(productRepository.findById("p1")).thenReturn(Optional.of(product));
+
+        service.deleteProduct("seller-1", "p1");
+
+        verify(mongoTemplate).save(argThat((ProductTombstone tombstone) -> "p1".equals(tombstone.getId())
+                && tombstone.getDeletedAt() != null));
+        verify(productRepository).delete(product);
+    }
+
+    private static Product product(String id, double price) {
+        Product product = new Product();
+        product.setId(id);
+        product.setPrice(price);
+        product.setQuantity(1);
+        product.setCreatedAt(LocalDateTime.now());
+        return product;
+    }
+}
@@ -0,0 +1,37 @@
+package com.buy01.product.service;
+
+import com.buy01.product.dto.ProductResponse;
+import com.buy01.product.dto.ProductViewResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.web.client.RestClient;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ProductViewServiceTest {
+
+    @Test
+    void saturatedPoolDegradesLikeATimeoutInsteadOfBlockingTheCaller() {
+        ProductService productService = mock(ProductService.class);
+        ProductResponse product = new ProductResponse();
+        product.setId("p1");
+        product.setUserId("seller-1");
+        product.setImageIds(List.of("m1", "m2"));
+        when(productService.getProductById("p1")).thenReturn(product);
+
+        ProductViewService service = new ProductViewService(productService, task -> {
+            throw new TaskRejectedException("pool saturated");
+        }, RestClient.builder(), Duration.ofSeconds(1), Duration.ofSeconds(1));
+
+        ProductViewResponse view = service.getProductView("p1", "Bearer token");
+
+        assertSame(product, view.getProduct());
+        assertEquals(List.of(), view.getMedia());
+        assertNull(view.getSeller());
+        assertEquals(List.of("media", "seller"), view.getUnavailable());
+    }
+}
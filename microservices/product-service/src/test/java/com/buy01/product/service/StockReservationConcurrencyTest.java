@@ -0,0 +1,218 @@
+package com.buy01.product.service;
+
+import com.buy01.product.dto.StockReservationResponse;
+import com.buy01.product.exception.BadRequestException;
+import com.buy01.product.exception.ConflictException;
+import com.buy01.product.exception.UnauthorizedException;
+import com.buy01.product.model.Product;
+import com.buy01.product.model.ReservationStatus;
+import com.buy01.product.model.StockReservation;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.kafka.core.KafkaTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+// Un produit très demandé : beaucoup plus de réservations concurrentes que de stock, aucune survente.
+// Vraies requêtes Mongo sur un serveur en mémoire : pas de base à démarrer pour lancer les tests
+class StockReservationConcurrencyTest {
+
+    private static final int STOCK = 50;
+    private static final int THREADS = 16;
+    private static final int ATTEMPTS = 200;
+    private static final String BUYER = "buyer-1";
+
+    private static MongoServer server;
+    private static MongoClient client;
+
+    private MongoTemplate mongoTemplate;
+    private StockReservationService service;
+
+    @BeforeAll
+    static void startMongo() {
+        server = new MongoServer(new MemoryBackend());
+        client = MongoClients.create(server.bindAndGetConnectionString());
+    }
+
+    @AfterAll
+    static void stopMongo() {
+        client.close();
+        server.shutdownNow();
+    }
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        mongoTemplate = new MongoTemplate(client, "stock-test");
+        mongoTemplate.getDb().drop();
+        service = new StockReservationService(mongoTemplate, mock(KafkaTemplate.class), mock(ProductCache.class),
+                Duration.ofMinutes(15));
+    }
+
+    @Test
+    void concurrentReservationsNeverOversell() throws Exception {
+        String productId = createProduct(STOCK);
+
+        AtomicInteger reserved = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        AtomicInteger lowestSeen = new AtomicInteger(STOCK);
+        CountDownLatch start = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < ATTEMPTS; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    try {
+                        int remaining = service.reserve(BUYER, productId, 1).getRemainingStock();
+                        lowestSeen.accumulateAndGet(remaining, Math::min);
+                        reserved.incrementAndGet();
+                    } catch (ConflictException e) {
+                        rejected.incrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(STOCK, reserved.get());
+        assertEquals(ATTEMPTS - STOCK, rejected.get());
+        assertTrue(lowestSeen.get() >= 0);
+        assertEquals(0, stock(productId));
+        assertEquals(STOCK, mongoTemplate.count(new Query(), StockReservation.class));
+    }
+
+    @Test
+    void releaseMakesStockReservableAgain() {
+        String productId = createProduct(2);
+
+        StockReservationResponse reservation = service.reserve(BUYER, productId, 2);
+        assertThrows(ConflictException.class, () -> service.reserve(BUYER, productId, 1));
+
+        service.release(BUYER, productId, reservation.getReservationId(), 1);
+        assertEquals(0, service.reserve(BUYER, productId, 1).getRemainingStock());
+    }
+
+    @Test
+    void releasingMoreThanWasReservedIsRefused() {
+        String productId = createProduct(10);
+        StockReservationResponse reservation = service.reserve(BUYER, productId, 2);
+
+        assertThrows(BadRequestException.class,
+                () -> service.release(BUYER, productId, reservation.getReservationId(), 3));
+        assertEquals(8, stock(productId));
+
+        // Libération totale puis seconde tentative : le stock n'est rendu qu'une fois
+        assertEquals(10, service.release(BUYER, productId, reservation.getReservationId(), null).getRemainingStock());
+        assertThrows(ConflictException.class,
+                () -> service.release(BUYER, productId, reservation.getReservationId(), 1));
+        assertEquals(10, stock(productId));
+    }
+
+    @Test
+    void onlyTheBuyerCanReleaseTheReservation() {
+        String productId = createProduct(5);
+        StockReservationResponse reservation = service.reserve(BUYER, productId, 5);
+
+        assertThrows(UnauthorizedException.class,
+                () -> service.release("someone-else", productId, reservation.getReservationId(), null));
+        assertEquals(0, stock(productId));
+    }
+
+    @Test
+    void expiredReservationsGiveTheirStockBackOnce() {
+        String productId = createProduct(5);
+        StockReservationResponse expired = service.reserve(BUYER, productId, 3);
+        StockReservationResponse confirmed = service.reserve(BUYER, productId, 2);
+        service.confirm(BUYER, productId, confirmed.getReservationId());
+        mongoTemplate.updateMulti(new Query(), new Update().set("expiresAt", LocalDateTime.now().minusMinutes(1)),
+                StockReservation.class);
+
+        service.expireReservations();
+        service.expireReservations();
+
+        assertEquals(3, stock(productId));
+        assertThrows(ConflictException.class,
+                () -> service.release(BUYER, productId, expired.getReservationId(), null));
+    }
+
+    @Test
+    void reservationInterruptedAfterTakingStockGivesItBackOnExpiry() {
+        String productId = createProduct(5);
+        // Instance arrêtée entre le décrément (marque posée) et le passage ACTIVE
+        StockReservation interrupted = pendingReservation(productId, 2);
+        mongoTemplate.updateFirst(Query.query(Criteria.where("id").is(productId)),
+                new Update().inc("quantity", -2).addToSet("pendingReservations", interrupted.getId()), Product.class);
+
+        service.expireReservations();
+        service.expireReservations();
+
+        assertEquals(5, stock(productId));
+        assertEquals(ReservationStatus.EXPIRED,
+                mongoTemplate.findById(interrupted.getId(), StockReservation.class).getStatus());
+    }
+
+    @Test
+    void reservationInterruptedBeforeTakingStockGivesNothingBack() {
+        String productId = createProduct(5);
+        StockReservation interrupted = pendingReservation(productId, 2);
+
+        service.expireReservations();
+
+        assertEquals(5, stock(productId));
+        assertEquals(ReservationStatus.EXPIRED,
+                mongoTemplate.findById(interrupted.getId(), StockReservation.class).getStatus());
+    }
+
+    private StockReservation pendingReservation(String productId, int quantity) {
+        LocalDateTime createdAt = LocalDateTime.now().minusHours(1);
+        return mongoTemplate.insert(new StockReservation(new ObjectId().toHexString(), productId, BUYER, quantity,
+                ReservationStatus.PENDING, createdAt, createdAt.plusMinutes(15), null));
+    }
+
+    private String createProduct(int quantity) {
+        Product product = new Product();
+        product.setName("Hot SKU");
+        product.setDescription("Stock reservation stress test");
+        product.setPrice(10.0);
+        product.setQuantity(quantity);
+        product.setUserId("stress-test-seller");
+        product.setCreatedAt(LocalDateTime.now());
+        product.setUpdatedAt(LocalDateTime.now());
+        return mongoTemplate.insert(product).getId();
+    }
+
+    private int stock(String productId) {
+        return mongoTemplate.findOne(Query.query(Criteria.where("id").is(productId)), Product.class).getQuantity();
+    }
+}